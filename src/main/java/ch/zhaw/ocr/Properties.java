@@ -3,6 +3,9 @@ package ch.zhaw.ocr;
 import java.util.Arrays;
 import java.util.List;
 
+import ch.zhaw.ocr.nn.Precision;
+import ch.zhaw.ocr.nn.helper.Sigmoid;
+
 /**
  * Global configuration of the OCR software 
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
@@ -27,6 +30,21 @@ public final class Properties {
 	public static final String dictionaryResourceFolder = "res" + fileSeparator + "dictionaryMaterial";
 
 	
+	/*
+	 * Bitmap Parser Configuration
+	 */
+	public static final int bitmapParserThreads = Runtime.getRuntime().availableProcessors();
+	public static final int bitmapParserMinBandHeight = 128;
+	// store pages as runs of ink pixels (less memory for sparse pages)
+	public static final boolean bitmapParserRunLength = false;
+	// pages with text rows of at least twice this height are scaled down (see Downscaler), 0 = never
+	public static final int downscaleTargetLineHeight = 64;
+	// arrays kept per thread for the next page (see MatrixArena)
+	public static final long matrixArenaMaxBytes = 64L * 1024 * 1024;
+	
+	// pixel-rows decoded at once by Ocr.parseLargeImage
+	public static final int stripHeight = 256;
+	
 	/*
 	 * KNN Configuration
 	 */
@@ -44,8 +62,33 @@ public final class Properties {
 	public static final int nnOutputLayerSize = nnOutputLayer.size();
 	
 	public static final int nnMaxIterationCount = 500;
+	// activation used to recognize characters (see Sigmoid)
+	public static final Sigmoid nnInferenceSigmoid = Sigmoid.exact;
+	// activation used to train the network
+	public static final Sigmoid nnTrainingSigmoid = Sigmoid.exact;
+	// float32 networks use the Vector API if it is compiled and available (see Kernels)
+	public static final boolean nnVectorKernels = true;
+	// weights used to recognize characters, int8 = 8 bit (see Calibration)
+	public static final Precision nnPrecision = Precision.float64;
+	
+	// characters computed together by NeuralNetwork.detectCharacters
+	public static final int nnBatchSize = 16;
+	// threads computing the batches of a text row, <= 1 = current thread only
+	public static final int nnThreads = Runtime.getRuntime().availableProcessors();
+	// most likely characters kept per character, the dictionary replaces a character only by these (see Hypotheses), 0 = by the whole alphabet
+	public static final int nnCandidates = 4;
 	
 	public static final String nnResourcePath = "res" + fileSeparator + "knnMaterial";
 	public static final String nnSerializationPath = "res" + fileSeparator + "knn.ser";
 	
+	// characters are recognized by a small network first and only escalated to the full one if it is not sure (see Cascade)
+	public static final boolean nnCascade = false;
+	public static final int nnCascadeHiddenLayerSize = 32;
+	// the small network needs more iterations than the full one to recognize the training material
+	public static final int nnCascadeMaxIterationCount = 2000;
+	// escalate characters whose most likely output value is below nnCascadeMinActivation or exceeds the second one by less than nnCascadeMinMargin
+	public static final double nnCascadeMinActivation = 0.8;
+	public static final double nnCascadeMinMargin = 0.5;
+	public static final String nnCascadeSerializationPath = "res" + fileSeparator + "knn-cascade.ser";
+	
 }
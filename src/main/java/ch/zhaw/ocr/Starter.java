@@ -5,6 +5,8 @@ import java.io.IOException;
 
 import ch.zhaw.ocr.dictionary.Dictionary;
 import ch.zhaw.ocr.gui.MainGui;
+import ch.zhaw.ocr.nn.Cascade;
+import ch.zhaw.ocr.nn.CharacterClassifier;
 import ch.zhaw.ocr.nn.NeuralNetwork;
 import ch.zhaw.ocr.textRecognition.Ocr;
 
@@ -35,7 +37,16 @@ public class Starter {
 					e.printStackTrace();
 				}
 				
-				ocr = new Ocr(nn, dict);
+				CharacterClassifier classifier = nn;
+				if (Properties.nnCascade && nn != null) {
+					try {
+						classifier = new Cascade(nn);
+					} catch (IOException e) {
+						System.out.println("Error while loading the cascade, using the neuronal network only");
+						e.printStackTrace();
+					}
+				}
+				ocr = new Ocr(classifier, dict);
 
 				new MainGui(ocr);
 
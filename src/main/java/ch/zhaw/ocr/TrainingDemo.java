@@ -16,6 +16,7 @@ import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
 import ch.zhaw.ocr.nn.CharacterRepresentation;
 import ch.zhaw.ocr.nn.NeuralNetwork;
 import ch.zhaw.ocr.nn.NeuralNetworkTraining;
+import ch.zhaw.ocr.textRecognition.ConsoleListener;
 
 public class TrainingDemo {
 	private BitmapParser bp;
@@ -74,7 +75,7 @@ public class TrainingDemo {
 		StringBuffer output = new StringBuffer();
 		
 		for(ContrastMatrix cm : matrices){
-			nn.detectCharacter(MatrixFactory.createMatrix(new CharacterRepresentation(cm).getComparisonVector()), output);
+			nn.detectCharacter(MatrixFactory.createMatrix(new CharacterRepresentation(cm).getComparisonVector()), new ConsoleListener(output));
 		}
 		System.out.println(output);
 	}
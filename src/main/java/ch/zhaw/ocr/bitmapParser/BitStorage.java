@@ -0,0 +1,101 @@
+package ch.zhaw.ocr.bitmapParser;
+
+/**
+ * BitStorage. Pixel storage behind a ContrastMatrix. All coordinates are
+ * coordinates of the storage, the window of a matrix is handled by the
+ * ContrastMatrix itself.
+ * 
+ * Implementations: PackedBits (every pixel as a bit) and RunLengthBits (the
+ * runs of ink pixels of every row, for sparse pages).
+ * 
+ * A storage may be shared by several ContrastMatrix views (see
+ * ContrastMatrix.getSubMatrix). Shared storage must not be written to.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+abstract class BitStorage {
+	final int width;
+	final int height;
+
+	// set as soon as more than one matrix refers to this storage
+	boolean shared = false;
+
+	BitStorage(int width, int height) {
+		if (width < 0 || height < 0) {
+			throw new NegativeArraySizeException();
+		}
+		this.width = width;
+		this.height = height;
+	}
+
+	abstract int get(int x, int y);
+
+	abstract void set(int x, int y, boolean ink);
+
+	/**
+	 * Get 64 pixels of row y starting at column x. Pixels beyond the end of
+	 * the row are 0.
+	 */
+	abstract long rowBits(int y, int x);
+
+	/**
+	 * Find the first pixel of row y in the columns [x, end) with the given
+	 * value
+	 * 
+	 * @return column of the pixel or end if there is none
+	 */
+	abstract int nextInRow(int y, int x, int end, boolean ink);
+
+	/**
+	 * Count the ink pixels of row y in the columns [x, x + length)
+	 */
+	abstract int countRow(int y, int x, int length);
+
+	/**
+	 * Count the ink pixels of column x in the rows [y, y + length)
+	 */
+	abstract int countCol(int x, int y, int length);
+
+	/**
+	 * Count the ink pixels of every column of a part of the storage
+	 * 
+	 * @return ink pixels of the columns [x, x + width) in the rows
+	 *         [y, y + height), the array may be longer (see MatrixArena)
+	 */
+	int[] countCols(int x, int y, int width, int height) {
+		int[] rv = MatrixArena.ints(width);
+		for (int i = 0; i < width; i++) {
+			rv[i] = countCol(x + i, y, height);
+		}
+		return rv;
+	}
+
+	/**
+	 * Decide whether a part of the given size is counted row by row or by
+	 * means of a summed-area table (see ContrastMatrix.getInkCount)
+	 * 
+	 * @return true if counting the rows directly is cheap
+	 */
+	abstract boolean countsDirectly(int rows, int length);
+
+	/**
+	 * Copy a part of this storage into a new, unshared storage of the same
+	 * kind
+	 */
+	abstract BitStorage copy(int offsetX, int offsetY, int width, int height);
+
+	/**
+	 * Invert all pixels (1 => 0 ; 0 => 1)
+	 */
+	abstract void invert();
+
+	/**
+	 * Create a new storage without the given column
+	 */
+	abstract BitStorage withoutCol(int colNo);
+
+	/**
+	 * Create a new storage without the given row
+	 */
+	abstract BitStorage withoutRow(int rowNo);
+}
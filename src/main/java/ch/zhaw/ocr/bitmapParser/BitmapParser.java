@@ -1,6 +1,7 @@
 package ch.zhaw.ocr.bitmapParser;
 
 import java.awt.image.BufferedImage;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -15,4 +16,13 @@ public interface BitmapParser {
 	 * @return List of contrast matrices
 	 */
 	public List<ContrastMatrix> parse(BufferedImage image);
+	
+	/**
+	 * Parse a given BufferedImage on demand. The matrices are created while
+	 * the iterator is consumed, so the first ones can be used before the
+	 * whole image is parsed.
+	 * @param image BufferedImage
+	 * @return Iterator over the contrast matrices
+	 */
+	public Iterator<ContrastMatrix> parseLazily(BufferedImage image);
 }
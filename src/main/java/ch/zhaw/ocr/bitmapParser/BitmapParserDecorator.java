@@ -1,7 +1,10 @@
 package ch.zhaw.ocr.bitmapParser;
 
 import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 
 /**
@@ -27,6 +30,84 @@ public abstract class BitmapParserDecorator implements BitmapParser {
 	 */
 	@Override
 	public List<ContrastMatrix> parse(BufferedImage image){
-		return bp.parse(image);
+		List<ContrastMatrix> matrices = bp.parse(image);
+		reset();
+		return process(matrices);
+	}
+	
+	/**
+	 * Parse a given BufferedImage on demand. A matrix of the decorated parser
+	 * is only processed when the matrices of the previous one are consumed.
+	 * @param image BufferedImage
+	 * @return Iterator over the contrast matrices
+	 */
+	@Override
+	public Iterator<ContrastMatrix> parseLazily(BufferedImage image){
+		Iterator<ContrastMatrix> matrices = bp.parseLazily(image);
+		reset();
+		return processLazily(matrices);
+	}
+	
+	/**
+	 * Pass matrices that do not come from the decorated parser (e.g. the lines
+	 * of a StripRowReader) through all decorators of the chain. The state kept
+	 * between matrices is kept between calls as well, so the matrices of a
+	 * page may be passed in several parts.
+	 * @param matrices matrices in the format of the decorated parser
+	 * @return List of contrast matrices
+	 */
+	public List<ContrastMatrix> parse(List<ContrastMatrix> matrices){
+		if (bp instanceof BitmapParserDecorator) {
+			matrices = ((BitmapParserDecorator) bp).parse(matrices);
+		}
+		return process(matrices);
+	}
+	
+	/**
+	 * Process the matrices of the decorated parser
+	 * @param matrices List of contrast matrices
+	 * @return List of contrast matrices
+	 */
+	protected abstract List<ContrastMatrix> process(List<ContrastMatrix> matrices);
+	
+	/**
+	 * Process the matrices of the decorated parser on demand. By default
+	 * process is called for one matrix at a time; since the state is kept
+	 * between calls, the result is the same as the one of process.
+	 * @param matrices Iterator over the contrast matrices
+	 * @return Iterator over the contrast matrices
+	 */
+	protected Iterator<ContrastMatrix> processLazily(final Iterator<ContrastMatrix> matrices){
+		return new Iterator<ContrastMatrix>() {
+			private Iterator<ContrastMatrix> processed = Collections.<ContrastMatrix>emptyList().iterator();
+			
+			@Override
+			public boolean hasNext() {
+				while (!processed.hasNext() && matrices.hasNext()) {
+					processed = process(Collections.singletonList(matrices.next())).iterator();
+				}
+				return processed.hasNext();
+			}
+			
+			@Override
+			public ContrastMatrix next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return processed.next();
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	/**
+	 * Forget the state kept between matrices. Called before a new image is
+	 * processed.
+	 */
+	protected void reset(){
 	}
 }
@@ -1,6 +1,5 @@
 package ch.zhaw.ocr.bitmapParser;
 
-import java.awt.image.BufferedImage;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -18,12 +17,11 @@ public class CharacterParser extends BitmapParserDecorator {
 
 	/**
 	 * Splits characters by identifying empty columns
-	 * @param image BufferedImage
+	 * @param matrices List of contrast matrices representing words
 	 * @return List of contrast matrices representing characters
 	 */
 	@Override
-	public List<ContrastMatrix> parse(BufferedImage image) {
-		List<ContrastMatrix> matrices = super.parse(image);
+	protected List<ContrastMatrix> process(List<ContrastMatrix> matrices) {
 		List<ContrastMatrix> rv = new LinkedList<ContrastMatrix>();
 
 		for (ContrastMatrix m : matrices) {
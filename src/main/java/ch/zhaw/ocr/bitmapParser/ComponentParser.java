@@ -0,0 +1,225 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * ComponentParser. Alternative to CharacterParser: splits words into
+ * characters by finding the 8-connected components of the ink pixels, so
+ * characters touching the same column (kerning, italics) are separated too.
+ * 
+ * 1. Find the runs of ink pixels of every pixel-row
+ * 2. Join touching runs of neighbouring pixel-rows (union-find)
+ * 3. Join components lying mostly above each other (dots of i, ä, ö, ü)
+ * 4. Return the characters from left to right, each containing only the
+ * pixels of its own components
+ * 
+ * The input matrices have to be text rows or words.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class ComponentParser extends BitmapParserDecorator {
+	// runs of ink pixels: pixel-row, first and last column, union-find parent
+	private int[] runY = new int[64];
+	private int[] runStart = new int[64];
+	private int[] runEnd = new int[64];
+	private int[] parent = new int[64];
+	private int runCount;
+
+	public ComponentParser(BitmapParser bp) {
+		super(bp);
+	}
+
+	/**
+	 * Splits characters by finding connected components
+	 * @param matrices List of contrast matrices representing words
+	 * @return List of contrast matrices representing characters
+	 */
+	@Override
+	protected List<ContrastMatrix> process(List<ContrastMatrix> matrices) {
+		List<ContrastMatrix> rv = new LinkedList<ContrastMatrix>();
+
+		for (ContrastMatrix m : matrices) {
+			if (m.getFunctionalChar() == null) {
+				m.trim();
+				findComponents(m);
+				createCharacters(rv);
+			} else {
+				// functional character => keep it
+				rv.add(m);
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Step 1 & 2: find the runs and join the touching ones
+	 */
+	private void findComponents(ContrastMatrix m) {
+		runCount = 0;
+		int previousRow = 0;
+		for (int y = 0; y < m.getHeight(); y++) {
+			int currentRow = runCount;
+			findRuns(m, y);
+
+			// runs of both pixel-rows are sorted => merge like sorted lists
+			int i = currentRow;
+			int j = previousRow;
+			while (i < runCount && j < currentRow) {
+				if (runEnd[j] + 1 < runStart[i]) {
+					j++;
+				} else if (runEnd[i] + 1 < runStart[j]) {
+					i++;
+				} else {
+					// diagonal neighbours count as touching
+					union(i, j);
+					if (runEnd[j] < runEnd[i]) {
+						j++;
+					} else {
+						i++;
+					}
+				}
+			}
+			previousRow = currentRow;
+		}
+	}
+
+	/**
+	 * Add the runs of ink pixels of pixel-row y
+	 */
+	private void findRuns(ContrastMatrix m, int y) {
+		int width = m.getWidth();
+		int x = 0;
+		while (x < width) {
+			int start = m.nextInRow(y, x, true);
+			if (start >= width) {
+				return;
+			}
+			x = m.nextInRow(y, start, false);
+			addRun(y, start, x - 1);
+		}
+	}
+
+	private void addRun(int y, int start, int end) {
+		if (runCount == runY.length) {
+			int size = 2 * runCount;
+			runY = Arrays.copyOf(runY, size);
+			runStart = Arrays.copyOf(runStart, size);
+			runEnd = Arrays.copyOf(runEnd, size);
+			parent = Arrays.copyOf(parent, size);
+		}
+		runY[runCount] = y;
+		runStart[runCount] = start;
+		runEnd[runCount] = end;
+		parent[runCount] = runCount;
+		runCount++;
+	}
+
+	private int find(int run) {
+		int root = run;
+		while (parent[root] != root) {
+			root = parent[root];
+		}
+		// path compression
+		while (parent[run] != root) {
+			int next = parent[run];
+			parent[run] = root;
+			run = next;
+		}
+		return root;
+	}
+
+	private void union(int a, int b) {
+		int rootA = find(a);
+		int rootB = find(b);
+		// the smaller index becomes the root
+		if (rootA < rootB) {
+			parent[rootB] = rootA;
+		} else {
+			parent[rootA] = rootB;
+		}
+	}
+
+	/**
+	 * Step 3 & 4: join the components lying above each other and copy their
+	 * pixels into new matrices
+	 */
+	private void createCharacters(List<ContrastMatrix> rv) {
+		// bounding box of every component, stored at its root
+		int[] minX = new int[runCount];
+		int[] maxX = new int[runCount];
+		int[] minY = new int[runCount];
+		int[] maxY = new int[runCount];
+		long[] roots = new long[runCount];
+		int rootCount = 0;
+		for (int r = 0; r < runCount; r++) {
+			int root = find(r);
+			if (root == r) {
+				minX[r] = runStart[r];
+				maxX[r] = runEnd[r];
+				minY[r] = runY[r];
+				maxY[r] = runY[r];
+				roots[rootCount++] = r;
+			} else {
+				// runs are ordered by pixel-row, the root is the topmost run
+				minX[root] = Math.min(minX[root], runStart[r]);
+				maxX[root] = Math.max(maxX[root], runEnd[r]);
+				maxY[root] = runY[r];
+			}
+		}
+		if (rootCount == 0) {
+			return;
+		}
+
+		// sort by first column, then by root
+		for (int i = 0; i < rootCount; i++) {
+			int root = (int) roots[i];
+			roots[i] = ((long) minX[root] << 32) | root;
+		}
+		Arrays.sort(roots, 0, rootCount);
+
+		// join components lying mostly above each other, in reading order
+		int[] characterOf = new int[runCount];
+		int[] characterRoots = new int[rootCount];
+		int characterCount = 0;
+		for (int i = 0; i < rootCount; i++) {
+			int root = (int) roots[i];
+			if (characterCount > 0) {
+				int c = characterRoots[characterCount - 1];
+				int overlap = Math.min(maxX[c], maxX[root])
+						- Math.max(minX[c], minX[root]) + 1;
+				int narrower = Math.min(maxX[c] - minX[c], maxX[root]
+						- minX[root]) + 1;
+				if (2 * overlap >= narrower) {
+					minX[c] = Math.min(minX[c], minX[root]);
+					maxX[c] = Math.max(maxX[c], maxX[root]);
+					minY[c] = Math.min(minY[c], minY[root]);
+					maxY[c] = Math.max(maxY[c], maxY[root]);
+					characterOf[root] = characterCount - 1;
+					continue;
+				}
+			}
+			characterRoots[characterCount] = root;
+			characterOf[root] = characterCount++;
+		}
+
+		// copy the runs into the characters
+		PackedBits[] characters = new PackedBits[characterCount];
+		for (int c = 0; c < characterCount; c++) {
+			int root = characterRoots[c];
+			characters[c] = new PackedBits(maxX[root] - minX[root] + 1,
+					maxY[root] - minY[root] + 1);
+		}
+		for (int r = 0; r < runCount; r++) {
+			int c = characterOf[find(r)];
+			int root = characterRoots[c];
+			characters[c].setRun(runY[r] - minY[root], runStart[r]
+					- minX[root], runEnd[r] - minX[root]);
+		}
+		for (PackedBits bits : characters) {
+			bits.buildCols();
+			rv.add(new ContrastMatrix(bits));
+		}
+	}
+}
@@ -3,13 +3,46 @@ package ch.zhaw.ocr.bitmapParser;
 /**
  * ContrastMatrix. Used to store contrast data (a 2 dimensional array of 0 and 1 values)
  * 
+ * The values are bit-packed (see PackedBits) or, for sparse pages,
+ * run-length encoded (see RunLengthBits, toRunLengthMatrix()). Both storages
+ * support the same operations. A matrix is a window (offset and size) on its
+ * storage: sub matrices share the storage of their parent and
+ * trim() only moves the window. The storage is copied on the first write to
+ * a shared storage or on an explicit call to compact().
+ * 
+ * The number of ink pixels per row and per column (projection profiles) is
+ * computed once when first needed and kept up to date by setValue(), so the
+ * empty / full checks of rows and columns are simple lookups. For checks of
+ * arbitrary rectangles a summed-area table (integral image) is built when
+ * first needed; it is dropped again as soon as a value changes. Run-length
+ * encoded matrices count on the runs instead and never build such a table.
+ * 
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
  * 
  */
 public class ContrastMatrix {
-	private int[][] contrastMatrix;
+	private BitStorage bits;
+	private int offsetX;
+	private int offsetY;
+	private int width;
+	private int height;
+
+	// ink pixels per row / column, null until needed; the arrays may be
+	// longer than the matrix (see MatrixArena)
+	private int[] rowProfile = null;
+	private int[] colProfile = null;
+
+	// summed-area table, (width + 1) * (height + 1) entries, null until needed
+	private int[] integral = null;
+
 	private FunctionalCharacter functionalChar = null;
 
+	// shared matrices of the functional characters
+	private static final ContrastMatrix spaceMatrix = new ContrastMatrix(
+			FunctionalCharacter.space);
+	private static final ContrastMatrix carriageReturnMatrix = new ContrastMatrix(
+			FunctionalCharacter.carriageReturn);
+
 	/**
 	 * Initialise an empty ContrastMatrix using the given height + width
 	 * 
@@ -17,7 +50,7 @@ public class ContrastMatrix {
 	 * @param height
 	 */
 	public ContrastMatrix(int width, int height) {
-		contrastMatrix = new int[width][height];
+		this(new PackedBits(width, height), 0, 0, width, height);
 	}
 
 	/**
@@ -25,10 +58,48 @@ public class ContrastMatrix {
 	 * 
 	 */
 	public ContrastMatrix(FunctionalCharacter functionalChar) {
-		contrastMatrix = new int[1][1];
+		this(1, 1);
 		this.functionalChar = functionalChar;
 	}
 
+	/**
+	 * Get the shared matrix representing a functional character. Use it
+	 * instead of new ContrastMatrix(functionalChar) to avoid creating a
+	 * matrix for every space and carriage return. The matrix must not be
+	 * changed.
+	 * 
+	 * @param functionalChar
+	 * @return matrix representing the functional character
+	 */
+	public static ContrastMatrix getFunctionalMatrix(
+			FunctionalCharacter functionalChar) {
+		switch (functionalChar) {
+		case space:
+			return spaceMatrix;
+		default:
+			return carriageReturnMatrix;
+		}
+	}
+
+	/**
+	 * Create a matrix owning the given storage
+	 */
+	ContrastMatrix(BitStorage bits) {
+		this(bits, 0, 0, bits.width, bits.height);
+	}
+
+	/**
+	 * Create a view on the given storage
+	 */
+	private ContrastMatrix(BitStorage bits, int offsetX, int offsetY,
+			int width, int height) {
+		this.bits = bits;
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.width = width;
+		this.height = height;
+	}
+
 	/**
 	 * Return the string representative of the current object
 	 */
@@ -39,7 +110,7 @@ public class ContrastMatrix {
 			StringBuffer sb = new StringBuffer();
 			for (int y = 0; y < getHeight(); y++) {
 				for (int x = 0; x < getWidth(); x++) {
-					sb.append(contrastMatrix[x][y]
+					sb.append(getValue(x, y)
 							+ ((x != getWidth() - 1) ? " " : ""));
 				}
 				sb.append(y != getHeight() ? System
@@ -59,19 +130,32 @@ public class ContrastMatrix {
 	 * @return value value of the field
 	 */
 	public int getValue(int x, int y) {
-		return contrastMatrix[x][y];
+		checkBounds(x, y);
+		return bits.get(offsetX + x, offsetY + y);
 	}
 
 	public int getWidth() {
-		return contrastMatrix.length;
+		return width;
 	}
 
 	public int getHeight() {
-		return contrastMatrix[0].length;
+		return height;
 	}
 
+	/**
+	 * Get the values as a 2 dimensional array [x][y]. The array is an
+	 * unpacked copy, changing it does not change the matrix.
+	 * 
+	 * @return values of the matrix
+	 */
 	public int[][] getContrastMatrix() {
-		return contrastMatrix;
+		int[][] rv = new int[width][height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				rv[x][y] = getValue(x, y);
+			}
+		}
+		return rv;
 	}
 
 	public FunctionalCharacter getFunctionalChar() {
@@ -79,7 +163,7 @@ public class ContrastMatrix {
 	}
 
 	/**
-	 * Set a matrix value
+	 * Set a matrix value. Every value != 0 is stored as 1.
 	 * 
 	 * @param x
 	 *            X-Coordinate
@@ -89,7 +173,76 @@ public class ContrastMatrix {
 	 *            value to set
 	 */
 	public void setValue(int x, int y, int value) {
-		contrastMatrix[x][y] = value;
+		if (getValue(x, y) == (value != 0 ? 1 : 0)) {
+			return;
+		}
+		if (bits.shared) {
+			compact();
+		}
+		bits.set(offsetX + x, offsetY + y, value != 0);
+		integral = null;
+
+		// keep the profiles up to date
+		int diff = (value != 0) ? 1 : -1;
+		if (rowProfile != null) {
+			rowProfile[y] += diff;
+		}
+		if (colProfile != null) {
+			colProfile[x] += diff;
+		}
+	}
+
+	/**
+	 * Copy the values of this matrix into a storage of its own. Sub matrices
+	 * and trimmed matrices only refer to the storage of the matrix they were
+	 * taken from; call this method if the matrix is kept for a long time or
+	 * if the storage must not be shared.
+	 */
+	public void compact() {
+		if (bits.shared || offsetX != 0 || offsetY != 0
+				|| width != bits.width || height != bits.height) {
+			bits = bits.copy(offsetX, offsetY, width, height);
+			offsetX = 0;
+			offsetY = 0;
+		}
+	}
+
+	/**
+	 * Create a run-length encoded copy of this matrix. The copy stores only
+	 * the runs of ink pixels of every row and supports all operations of a
+	 * ContrastMatrix without expanding to one bit per pixel.
+	 * 
+	 * @return run-length encoded matrix with the same values
+	 */
+	public ContrastMatrix toRunLengthMatrix() {
+		if (functionalChar != null) {
+			return this;
+		}
+		return new ContrastMatrix(new RunLengthBits(bits, offsetX, offsetY,
+				width, height));
+	}
+
+	/**
+	 * Create a bit-packed copy of this matrix (see toRunLengthMatrix())
+	 * 
+	 * @return bit-packed matrix with the same values
+	 */
+	public ContrastMatrix toDenseMatrix() {
+		if (functionalChar != null) {
+			return this;
+		}
+		if (bits instanceof RunLengthBits) {
+			return new ContrastMatrix(((RunLengthBits) bits).copy(offsetX,
+					offsetY, width, height).toPackedBits());
+		}
+		return new ContrastMatrix(bits.copy(offsetX, offsetY, width, height));
+	}
+
+	/**
+	 * @return true if the values are stored as runs (see toRunLengthMatrix())
+	 */
+	public boolean isRunLengthEncoded() {
+		return bits instanceof RunLengthBits;
 	}
 
 	/**
@@ -99,15 +252,13 @@ public class ContrastMatrix {
 	 *            column to delete
 	 */
 	public void removeCol(int colNo) {
-		int[][] newMatrix = new int[getWidth() - 1][getHeight()];
-		for (int x = 0; x < getWidth(); x++) {
-			for (int y = 0; y < getHeight(); y++) {
-				if (x != colNo) {
-					newMatrix[(x >= colNo) ? x - 1 : x][y] = contrastMatrix[x][y];
-				}
-			}
-		}
-		this.contrastMatrix = newMatrix;
+		checkBounds(colNo, 0);
+		compact();
+		bits = bits.withoutCol(colNo);
+		width--;
+		rowProfile = null;
+		colProfile = null;
+		integral = null;
 	}
 
 	/**
@@ -117,30 +268,38 @@ public class ContrastMatrix {
 	 *            row to delete
 	 */
 	public void removeRow(int rowNo) {
-		int[][] newMatrix = new int[getWidth()][getHeight() - 1];
-		for (int x = 0; x < getWidth(); x++) {
-			for (int y = 0; y < getHeight(); y++) {
-				if (y != rowNo) {
-					newMatrix[x][(y >= rowNo) ? y - 1 : y] = contrastMatrix[x][y];
-				}
-			}
-		}
-		this.contrastMatrix = newMatrix;
+		checkBounds(0, rowNo);
+		compact();
+		bits = bits.withoutRow(rowNo);
+		height--;
+		rowProfile = null;
+		colProfile = null;
+		integral = null;
 	}
 
 	/**
 	 * Invert the whole matrix (1 => 0 ; 0 => 1)
 	 */
 	public void invertMatrix() {
-		for (int x = 0; x < getWidth(); x++) {
-			for (int y = 0; y < getHeight(); y++) {
-				setValue(x, y, getValue(x, y) == 1 ? 0 : 1);
+		compact();
+		bits.invert();
+		integral = null;
+
+		if (rowProfile != null) {
+			for (int y = 0; y < height; y++) {
+				rowProfile[y] = width - rowProfile[y];
+			}
+		}
+		if (colProfile != null) {
+			for (int x = 0; x < width; x++) {
+				colProfile[x] = height - colProfile[x];
 			}
 		}
 	}
 
 	/**
-	 * Get a sub matrix
+	 * Get a sub matrix. The sub matrix is a view on the values of this
+	 * matrix, no values are copied.
 	 * 
 	 * @param offsetX
 	 * @param offsetY
@@ -154,17 +313,17 @@ public class ContrastMatrix {
 		if ((offsetX + width) > getWidth() && (offsetY + height) > getHeight()) {
 			return null;
 		}
-
-		ContrastMatrix rv = new ContrastMatrix(width, height);
-
-		// copy values
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				rv.setValue(x, y, getValue(offsetX + x, offsetY + y));
-			}
+		if (width < 0 || height < 0) {
+			throw new NegativeArraySizeException();
+		}
+		if (width > 0 && height > 0) {
+			checkBounds(offsetX, offsetY);
+			checkBounds(offsetX + width - 1, offsetY + height - 1);
 		}
 
-		return rv;
+		bits.shared = true;
+		return new ContrastMatrix(bits, this.offsetX + offsetX, this.offsetY
+				+ offsetY, width, height);
 	}
 
 	/**
@@ -175,12 +334,7 @@ public class ContrastMatrix {
 	 * @return indicates whether the column is full or not
 	 */
 	public boolean isFullRow(int y) {
-		for (int x = 0; x < getWidth(); x++) {
-			if (getValue(x, y) != 1) {
-				return false;
-			}
-		}
-		return true;
+		return getRowProfile()[y] == width;
 	}
 
 	/**
@@ -191,12 +345,7 @@ public class ContrastMatrix {
 	 * @return indicates whether the column is empty or not
 	 */
 	public boolean isEmptyRow(int y) {
-		for (int x = 0; x < getWidth(); x++) {
-			if (getValue(x, y) != 0) {
-				return false;
-			}
-		}
-		return true;
+		return getRowProfile()[y] == 0;
 	}
 
 	/**
@@ -218,14 +367,67 @@ public class ContrastMatrix {
 		endY = (endY < getHeight()) ? endY : (getHeight()-1);
 		endY = (endY >= 0) ? endY : 0;
 		
-		for(int x = startX; x <= endX;x++){
-			for(int y = startY; y <= endY;y++){
-				if(getValue(x, y) != 1){
-					return false;
-				}
+		if (endX < startX || endY < startY) {
+			return true;
+		}
+		return getInkCount(startX, endX, startY, endY) == (endX - startX + 1)
+				* (endY - startY + 1);
+	}
+
+	/**
+	 * Checks if any given part of the matrix is empty. Coordinates outside
+	 * of the matrix are moved to the border (like isFull).
+	 * @param startX start x coordinate of the part
+	 * @param endX end x coordinate of the part
+	 * @param startY start y coordinate of the part
+	 * @param endY end y coordinate of the part
+	 * @return indicates whether the given part is empty or not
+	 */
+	public boolean isEmpty(int startX, int endX, int startY, int endY){
+		startX = Math.min(Math.max(startX, 0), getWidth() - 1);
+		endX = Math.min(Math.max(endX, 0), getWidth() - 1);
+		startY = Math.min(Math.max(startY, 0), getHeight() - 1);
+		endY = Math.min(Math.max(endY, 0), getHeight() - 1);
+		
+		if (endX < startX || endY < startY) {
+			return true;
+		}
+		return getInkCount(startX, endX, startY, endY) == 0;
+	}
+
+	/**
+	 * Count the ink pixels (values == 1) of any given part of the matrix.
+	 * Uses a summed-area table: the first call costs one pass over the
+	 * matrix, every further call (until a value changes) is O(1). Parts of
+	 * only a few words (e.g. a short piece of a row) are counted directly,
+	 * so scanning rows while changing values does not rebuild the table.
+	 * Run-length encoded matrices always count the runs of the rows.
+	 * @param startX start x coordinate of the part
+	 * @param endX end x coordinate of the part (inclusive)
+	 * @param startY start y coordinate of the part
+	 * @param endY end y coordinate of the part (inclusive)
+	 * @return number of ink pixels in the given part
+	 */
+	public int getInkCount(int startX, int endX, int startY, int endY) {
+		if (endX < startX || endY < startY) {
+			return 0;
+		}
+		checkBounds(startX, startY);
+		checkBounds(endX, endY);
+
+		int length = endX - startX + 1;
+		if (integral == null && bits.countsDirectly(endY - startY + 1, length)) {
+			int rv = 0;
+			for (int y = startY; y <= endY; y++) {
+				rv += bits.countRow(offsetY + y, offsetX + startX, length);
 			}
+			return rv;
 		}
-		return true;
+
+		int[] sat = getIntegral();
+		int w1 = width + 1;
+		return sat[(endY + 1) * w1 + endX + 1] - sat[startY * w1 + endX + 1]
+				- sat[(endY + 1) * w1 + startX] + sat[startY * w1 + startX];
 	}
 	
 	/**
@@ -236,12 +438,7 @@ public class ContrastMatrix {
 	 * @return indicates whether the column is full or not
 	 */
 	public boolean isFullCol(int x) {
-		for (int y = 0; y < getHeight(); y++) {
-			if (getValue(x, y) != 1) {
-				return false;
-			}
-		}
-		return true;
+		return getColProfile()[x] == height;
 	}
 
 	/**
@@ -252,76 +449,72 @@ public class ContrastMatrix {
 	 * @return indicates whether the column is empty or not
 	 */
 	public boolean isEmptyCol(int x) {
-		for (int y = 0; y < getHeight(); y++) {
-			if (getValue(x, y) != 0) {
-				return false;
-			}
-		}
-		return true;
+		return getColProfile()[x] == 0;
+	}
+
+	/**
+	 * Get the number of ink pixels (values == 1) in the given row
+	 * 
+	 * @param y
+	 *            row number
+	 * @return number of ink pixels
+	 */
+	public int getRowInkCount(int y) {
+		return getRowProfile()[y];
+	}
+
+	/**
+	 * Get the number of ink pixels (values == 1) in the given column
+	 * 
+	 * @param x
+	 *            column number
+	 * @return number of ink pixels
+	 */
+	public int getColInkCount(int x) {
+		return getColProfile()[x];
 	}
 
 	/**
-	 * Remove empty leading & tailing rows / cols
+	 * Remove empty leading & tailing rows / cols. Only the bounding box of
+	 * the matrix is adjusted, no values are copied. A matrix without any
+	 * values stays unchanged.
 	 */
 	public void trim() {
 		if (getFunctionalChar() == null) {
-			boolean isEmpty;
-
-			// remove empty leading cols
-			isEmpty = true;
-			while (isEmpty) {
-				for (int y = 0; y < getHeight(); y++) {
-					if (getValue(0, y) != 0) {
-						isEmpty = false;
-					}
-				}
+			int left = 0;
+			int right = width - 1;
+			int top = 0;
+			int bottom = height - 1;
 
-				if (isEmpty) {
-					removeCol(0);
-				}
+			// empty leading / tailing cols
+			while (left <= right && isEmptyCol(left)) {
+				left++;
 			}
-
-			// remove empty tailing cols
-			isEmpty = true;
-			while (isEmpty) {
-				for (int y = 0; y < getHeight(); y++) {
-					if (getValue(getWidth() - 1, y) != 0) {
-						isEmpty = false;
-					}
-				}
-
-				if (isEmpty) {
-					removeCol(getWidth() - 1);
-				}
+			if (left > right) {
+				return;
+			}
+			while (isEmptyCol(right)) {
+				right--;
 			}
 
-			// remove empty leading rows
-			isEmpty = true;
-			while (isEmpty) {
-				for (int x = 0; x < getWidth(); x++) {
-					if (getValue(x, 0) != 0) {
-						isEmpty = false;
-					}
-				}
-
-				if (isEmpty) {
-					removeRow(0);
-				}
+			// empty leading / tailing rows
+			while (isEmptyRow(top)) {
+				top++;
+			}
+			while (isEmptyRow(bottom)) {
+				bottom--;
 			}
 
-			// remove empty tailing rows
-			isEmpty = true;
-			while (isEmpty) {
-				for (int x = 0; x < getWidth(); x++) {
-					if (getValue(x, getHeight() - 1) != 0) {
-						isEmpty = false;
-					}
-				}
+			// the removed rows / cols are empty => the counts of the
+			// remaining ones do not change and are moved to the front
+			System.arraycopy(rowProfile, top, rowProfile, 0, bottom - top + 1);
+			integral = null;
+			System.arraycopy(colProfile, left, colProfile, 0, right - left + 1);
 
-				if (isEmpty) {
-					removeRow(getHeight() - 1);
-				}
-			}
+			offsetX += left;
+			offsetY += top;
+			width = right - left + 1;
+			height = bottom - top + 1;
 		}
 	}
 
@@ -341,27 +534,110 @@ public class ContrastMatrix {
 				}
 			} else {
 				// default contrast matrix
-				// check all values
-				boolean equals = true;
-				if (getContrastMatrix().length == co.getContrastMatrix().length
-						&& getContrastMatrix()[0].length == co
-								.getContrastMatrix()[0].length) {
-					for (int x = 0; x < getContrastMatrix().length; x++) {
-						for (int y = 0; y < getContrastMatrix()[0].length; y++) {
-							if (getContrastMatrix()[x][y] != co
-									.getContrastMatrix()[x][y]) {
-								equals = false;
-							}
+				// check all values, a word at a time
+				if (getWidth() != co.getWidth() || getHeight() != co.getHeight()) {
+					return false;
+				}
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x += 64) {
+						long mask = PackedBits.mask(width - x);
+						if ((rowBits(y, x) & mask) != (co.rowBits(y, x) & mask)) {
+							return false;
 						}
 					}
-				} else {
-					equals = false;
 				}
-				return equals;
+				return true;
 			}
 		} else {
 			// no contrast matrix
 			return false;
 		}
 	}
+
+	private int[] getRowProfile() {
+		if (rowProfile == null) {
+			rowProfile = MatrixArena.ints(height);
+			for (int y = 0; y < height; y++) {
+				rowProfile[y] = bits.countRow(offsetY + y, offsetX, width);
+			}
+		}
+		return rowProfile;
+	}
+
+	/**
+	 * sat[(y + 1) * (width + 1) + (x + 1)] = ink pixels in [0, x] x [0, y]
+	 */
+	private int[] getIntegral() {
+		if (integral == null) {
+			int w1 = width + 1;
+			integral = MatrixArena.ints(w1 * (height + 1));
+			for (int y = 0; y < height; y++) {
+				int rowSum = 0;
+				int above = y * w1 + 1;
+				int current = (y + 1) * w1 + 1;
+				for (int x = 0; x < width; x += 64) {
+					long word = rowBits(y, x);
+					int n = Math.min(64, width - x);
+					for (int i = 0; i < n; i++) {
+						rowSum += (int) ((word >>> i) & 1L);
+						integral[current + x + i] = integral[above + x + i]
+								+ rowSum;
+					}
+				}
+			}
+		}
+		return integral;
+	}
+
+	private int[] getColProfile() {
+		if (colProfile == null) {
+			colProfile = bits.countCols(offsetX, offsetY, width, height);
+		}
+		return colProfile;
+	}
+
+	/**
+	 * Find the first pixel of row y at or after column x with the given value
+	 * 
+	 * @return column of the pixel or the width of the matrix if there is none
+	 */
+	int nextInRow(int y, int x, boolean ink) {
+		if (x >= width) {
+			return width;
+		}
+		return bits.nextInRow(offsetY + y, offsetX + x, offsetX + width, ink)
+				- offsetX;
+	}
+
+	/**
+	 * Get up to 64 values of a row at once: the value of column x + i is bit
+	 * i of the result. Values beyond the end of the row are 0.
+	 * 
+	 * @param y
+	 *            row number
+	 * @param x
+	 *            first column
+	 * @return values of the columns [x, x + 64) as bits
+	 */
+	public long getRowBits(int y, int x) {
+		checkBounds(x, y);
+		return rowBits(y, x) & PackedBits.mask(width - x);
+	}
+
+	/**
+	 * Get 64 values of row y starting at column x. Values beyond the end of
+	 * the row are undefined.
+	 */
+	long rowBits(int y, int x) {
+		return bits.rowBits(offsetY + y, offsetX + x);
+	}
+
+	private void checkBounds(int x, int y) {
+		if (x < 0 || x >= width) {
+			throw new ArrayIndexOutOfBoundsException(x);
+		}
+		if (y < 0 || y >= height) {
+			throw new ArrayIndexOutOfBoundsException(y);
+		}
+	}
 }
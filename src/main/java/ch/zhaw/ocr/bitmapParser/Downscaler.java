@@ -0,0 +1,163 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+
+import ch.zhaw.ocr.Properties;
+
+/**
+ * Downscaler. Reduces the resolution of pages with large text before they
+ * are segmented. The characters are reduced to a grid of 20 x 20 fields by
+ * CharacterRepresentation anyway, so high resolution scans only make the
+ * segmentation slower.
+ * 
+ * 1. Estimate the height of the text rows from the row profile: the height
+ * of the row containing the median ink pixel, so small specks of a scan do
+ * not count
+ * 2. If the rows are at least twice as high as the target height, scale the
+ * page down by the integer factor height / target: a pixel of the result is
+ * ink if at least half of its box of factor x factor pixels is ink
+ * 
+ * Has to be used directly on the pages, i.e. before RowParser or
+ * SinglePassParser.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class Downscaler extends BitmapParserDecorator {
+	private int targetLineHeight;
+
+	/**
+	 * Create a downscaler using Properties.downscaleTargetLineHeight
+	 */
+	public Downscaler(BitmapParser bp) {
+		this(bp, Properties.downscaleTargetLineHeight);
+	}
+
+	/**
+	 * Create a downscaler
+	 * 
+	 * @param bp
+	 * @param targetLineHeight
+	 *            height of the text rows to scale down to, 0 to never scale
+	 */
+	public Downscaler(BitmapParser bp, int targetLineHeight) {
+		super(bp);
+		this.targetLineHeight = targetLineHeight;
+	}
+
+	@Override
+	protected List<ContrastMatrix> process(List<ContrastMatrix> matrices) {
+		List<ContrastMatrix> rv = new LinkedList<ContrastMatrix>();
+
+		for (ContrastMatrix m : matrices) {
+			if (m.getFunctionalChar() == null && targetLineHeight > 0) {
+				int factor = getLineHeight(m) / targetLineHeight;
+				rv.add((factor >= 2) ? downscale(m, factor) : m);
+			} else {
+				// functional character => keep it
+				rv.add(m);
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Estimate the height of the text rows of a page: the rows are weighted by
+	 * their number of ink pixels
+	 * 
+	 * @param m
+	 *            page
+	 * @return height of the row containing the median ink pixel, 0 for an
+	 *         empty page
+	 */
+	static int getLineHeight(ContrastMatrix m) {
+		// height and ink pixels of every text row
+		final List<int[]> rows = new ArrayList<int[]>();
+		long inkCount = 0;
+		int rowStart = -1;
+		int rowInk = 0;
+		for (int y = 0; y <= m.getHeight(); y++) {
+			if (y < m.getHeight() && !m.isEmptyRow(y)) {
+				if (rowStart == -1) {
+					rowStart = y;
+				}
+				rowInk += m.getRowInkCount(y);
+			} else if (rowStart != -1) {
+				rows.add(new int[] { y - rowStart, rowInk });
+				inkCount += rowInk;
+				rowStart = -1;
+				rowInk = 0;
+			}
+		}
+
+		Collections.sort(rows, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return (a[0] < b[0]) ? -1 : ((a[0] == b[0]) ? 0 : 1);
+			}
+		});
+		long sum = 0;
+		for (int[] row : rows) {
+			sum += row[1];
+			if (2 * sum >= inkCount) {
+				return row[0];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Scale a matrix down using a box filter
+	 * 
+	 * @param m
+	 *            matrix
+	 * @param factor
+	 *            number of pixels per pixel of the result in each direction
+	 * @return new matrix, run-length encoded if m is
+	 */
+	static ContrastMatrix downscale(ContrastMatrix m, int factor) {
+		int width = (m.getWidth() + factor - 1) / factor;
+		int height = (m.getHeight() + factor - 1) / factor;
+		PackedBits bits = new PackedBits(width, height);
+
+		// ink pixels per box of the current row of boxes
+		int[] counts = new int[width];
+		for (int y = 0; y < height; y++) {
+			Arrays.fill(counts, 0);
+			int boxHeight = Math.min(factor, m.getHeight() - y * factor);
+			for (int r = 0; r < boxHeight; r++) {
+				int row = y * factor + r;
+				int end = 0;
+				// add the runs of ink pixels to the boxes they cover
+				while (true) {
+					int start = m.nextInRow(row, end, true);
+					if (start >= m.getWidth()) {
+						break;
+					}
+					end = m.nextInRow(row, start, false);
+					for (int x = start / factor; x * factor < end; x++) {
+						counts[x] += Math.min(end, (x + 1) * factor)
+								- Math.max(start, x * factor);
+					}
+				}
+			}
+
+			for (int x = 0; x < width; x++) {
+				// boxes at the right and bottom border may be smaller
+				int boxSize = Math.min(factor, m.getWidth() - x * factor)
+						* boxHeight;
+				if (counts[x] > 0 && 2 * counts[x] >= boxSize) {
+					bits.rows[y * bits.rowWords + (x >>> 6)] |= 1L << x;
+				}
+			}
+		}
+		bits.buildCols();
+
+		ContrastMatrix rv = new ContrastMatrix(bits);
+		return m.isRunLengthEncoded() ? rv.toRunLengthMatrix() : rv;
+	}
+}
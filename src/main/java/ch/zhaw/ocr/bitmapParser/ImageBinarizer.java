@@ -0,0 +1,370 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ImageBinarizer. Converts the pixels of an image into ink bits and writes
+ * them straight into a PackedBits storage. A pixel is ink (1) if the average
+ * of its red, green and blue value is < 150.
+ * 
+ * For the common image types the DataBuffer is read directly. Indexed and
+ * gray images are converted using a lookup table built from the ColorModel
+ * of the image, so the result is the same as with BufferedImage.getRGB().
+ * All other images are read with one getRGB() call per row.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+class ImageBinarizer {
+	// (red + green + blue) / 3 < 150 <=> red + green + blue < 450
+	private static final int darkSum = 3 * 150;
+
+	private BufferedImage image;
+	private PackedBits bits;
+	private Raster raster;
+
+	// pixel (x, y) of the image is element (x - translateX, y - translateY)
+	// of the sample model
+	private int translateX;
+	private int translateY;
+
+	// lookup table for indexed / gray images: pixel value => dark
+	private boolean[] darkPixel = null;
+
+	/**
+	 * Create a binarizer writing the pixels of the image into the given
+	 * storage. The storage must have the size of the image.
+	 * 
+	 * @param image
+	 *            image to be binarized
+	 * @param bits
+	 *            target storage
+	 */
+	ImageBinarizer(BufferedImage image, PackedBits bits) {
+		this.image = image;
+		this.bits = bits;
+		this.raster = image.getRaster();
+		this.translateX = raster.getSampleModelTranslateX();
+		this.translateY = raster.getSampleModelTranslateY();
+
+		switch (image.getType()) {
+		case BufferedImage.TYPE_BYTE_GRAY:
+		case BufferedImage.TYPE_BYTE_INDEXED:
+		case BufferedImage.TYPE_BYTE_BINARY:
+			darkPixel = buildLookupTable(image.getColorModel(), image
+					.getColorModel().getPixelSize());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Binarize the whole image in the current thread
+	 * 
+	 * @return number of dark pixels
+	 */
+	int binarize() {
+		int darkCount = binarizeRows(0, bits.height);
+		bits.buildCols();
+		return darkCount;
+	}
+
+	/**
+	 * Binarize the whole image in horizontal bands using the given pool. Every
+	 * band writes its own rows and counts its own dark pixels; the counts are
+	 * summed up when the bands are joined. The result is the same as with
+	 * binarize().
+	 * 
+	 * @param pool
+	 *            pool executing the bands
+	 * @param minBandHeight
+	 *            bands are not split below this number of rows
+	 * @return number of dark pixels
+	 */
+	int binarize(ForkJoinPool pool, int minBandHeight) {
+		int minBand = Math.max(1, minBandHeight);
+		int darkCount = pool.invoke(new BandTask(0, bits.height, minBand));
+		// the columns are split into bands of whole words
+		pool.invoke(new ColumnTask(0, bits.rowWords, PackedBits
+				.wordCount(minBand)));
+		return darkCount;
+	}
+
+	/**
+	 * Binarize the rows [startY, endY) of the image. Only the row-major bits
+	 * of the storage are written; call PackedBits.buildCols() once all rows
+	 * are done. Distinct row ranges may be binarized concurrently.
+	 * 
+	 * @param startY
+	 *            first row
+	 * @param endY
+	 *            row after the last row
+	 * @return number of dark pixels in the given rows
+	 */
+	int binarizeRows(int startY, int endY) {
+		switch (image.getType()) {
+		case BufferedImage.TYPE_INT_RGB:
+		case BufferedImage.TYPE_INT_ARGB:
+		case BufferedImage.TYPE_INT_BGR:
+			return binarizeInt(startY, endY);
+		case BufferedImage.TYPE_3BYTE_BGR:
+		case BufferedImage.TYPE_4BYTE_ABGR:
+			return binarizeInterleavedBytes(startY, endY);
+		case BufferedImage.TYPE_BYTE_GRAY:
+		case BufferedImage.TYPE_BYTE_INDEXED:
+			return binarizeIndexedBytes(startY, endY);
+		case BufferedImage.TYPE_BYTE_BINARY:
+			return binarizePackedBytes(startY, endY);
+		default:
+			return binarizeRgbRows(startY, endY);
+		}
+	}
+
+	/**
+	 * One int per pixel, 8 bits per color. Red and blue may be swapped
+	 * (TYPE_INT_BGR), the sum stays the same.
+	 */
+	private int binarizeInt(int startY, int endY) {
+		SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster
+				.getSampleModel();
+		int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+		int stride = sm.getScanlineStride();
+		int offset = raster.getDataBuffer().getOffset() - translateX;
+		int width = bits.width;
+		int darkCount = 0;
+
+		for (int y = startY; y < endY; y++) {
+			int i = offset + (y - translateY) * stride;
+			int row = y * bits.rowWords;
+			long word = 0;
+			for (int x = 0; x < width; x++) {
+				int p = data[i + x];
+				if ((p & 0xFF) + ((p >> 8) & 0xFF) + ((p >> 16) & 0xFF) < darkSum) {
+					word |= 1L << x;
+					darkCount++;
+				}
+				if ((x & 63) == 63 || x == width - 1) {
+					bits.rows[row + (x >>> 6)] = word;
+					word = 0;
+				}
+			}
+		}
+		return darkCount;
+	}
+
+	/**
+	 * One byte per color, interleaved (TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR)
+	 */
+	private int binarizeInterleavedBytes(int startY, int endY) {
+		ComponentSampleModel sm = (ComponentSampleModel) raster
+				.getSampleModel();
+		byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+		int stride = sm.getScanlineStride();
+		int pixelStride = sm.getPixelStride();
+		int[] bandOffsets = sm.getBandOffsets();
+		// band 0, 1, 2 = red, green, blue
+		int r = bandOffsets[0];
+		int g = bandOffsets[1];
+		int b = bandOffsets[2];
+		int offset = raster.getDataBuffer().getOffset() - translateX
+				* pixelStride;
+		int width = bits.width;
+		int darkCount = 0;
+
+		for (int y = startY; y < endY; y++) {
+			int i = offset + (y - translateY) * stride;
+			int row = y * bits.rowWords;
+			long word = 0;
+			for (int x = 0; x < width; x++, i += pixelStride) {
+				if ((data[i + r] & 0xFF) + (data[i + g] & 0xFF)
+						+ (data[i + b] & 0xFF) < darkSum) {
+					word |= 1L << x;
+					darkCount++;
+				}
+				if ((x & 63) == 63 || x == width - 1) {
+					bits.rows[row + (x >>> 6)] = word;
+					word = 0;
+				}
+			}
+		}
+		return darkCount;
+	}
+
+	/**
+	 * One byte per pixel, converted using the lookup table (TYPE_BYTE_GRAY,
+	 * TYPE_BYTE_INDEXED)
+	 */
+	private int binarizeIndexedBytes(int startY, int endY) {
+		ComponentSampleModel sm = (ComponentSampleModel) raster
+				.getSampleModel();
+		byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+		int stride = sm.getScanlineStride();
+		int pixelStride = sm.getPixelStride();
+		int offset = raster.getDataBuffer().getOffset() - translateX
+				* pixelStride + sm.getBandOffsets()[0];
+		int width = bits.width;
+		int darkCount = 0;
+
+		for (int y = startY; y < endY; y++) {
+			int i = offset + (y - translateY) * stride;
+			int row = y * bits.rowWords;
+			long word = 0;
+			for (int x = 0; x < width; x++, i += pixelStride) {
+				if (darkPixel[data[i] & 0xFF]) {
+					word |= 1L << x;
+					darkCount++;
+				}
+				if ((x & 63) == 63 || x == width - 1) {
+					bits.rows[row + (x >>> 6)] = word;
+					word = 0;
+				}
+			}
+		}
+		return darkCount;
+	}
+
+	/**
+	 * 1, 2 or 4 bits per pixel, converted using the lookup table
+	 * (TYPE_BYTE_BINARY)
+	 */
+	private int binarizePackedBytes(int startY, int endY) {
+		MultiPixelPackedSampleModel sm = (MultiPixelPackedSampleModel) raster
+				.getSampleModel();
+		byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+		int stride = sm.getScanlineStride();
+		int pixelBits = sm.getPixelBitStride();
+		int pixelMask = (1 << pixelBits) - 1;
+		int bitOffset = sm.getDataBitOffset() - translateX * pixelBits;
+		int offset = raster.getDataBuffer().getOffset();
+		int width = bits.width;
+		int darkCount = 0;
+
+		for (int y = startY; y < endY; y++) {
+			int i = offset + (y - translateY) * stride;
+			int row = y * bits.rowWords;
+			long word = 0;
+			for (int x = 0; x < width; x++) {
+				int bit = bitOffset + x * pixelBits;
+				int shift = 8 - pixelBits - (bit & 7);
+				if (darkPixel[(data[i + (bit >>> 3)] >> shift) & pixelMask]) {
+					word |= 1L << x;
+					darkCount++;
+				}
+				if ((x & 63) == 63 || x == width - 1) {
+					bits.rows[row + (x >>> 6)] = word;
+					word = 0;
+				}
+			}
+		}
+		return darkCount;
+	}
+
+	/**
+	 * Any other image type: one getRGB() call per row
+	 */
+	private int binarizeRgbRows(int startY, int endY) {
+		int width = bits.width;
+		int[] rgbRow = new int[width];
+		int darkCount = 0;
+
+		for (int y = startY; y < endY; y++) {
+			image.getRGB(0, y, width, 1, rgbRow, 0, width);
+			int row = y * bits.rowWords;
+			long word = 0;
+			for (int x = 0; x < width; x++) {
+				if (isDark(rgbRow[x])) {
+					word |= 1L << x;
+					darkCount++;
+				}
+				if ((x & 63) == 63 || x == width - 1) {
+					bits.rows[row + (x >>> 6)] = word;
+					word = 0;
+				}
+			}
+		}
+		return darkCount;
+	}
+
+	private static boolean isDark(int rgb) {
+		return ((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF) < darkSum;
+	}
+
+	/**
+	 * Decide for every possible pixel value whether it is dark, using the
+	 * color conversion of the ColorModel
+	 */
+	private static boolean[] buildLookupTable(ColorModel cm, int pixelBits) {
+		boolean[] rv = new boolean[1 << pixelBits];
+		for (int p = 0; p < rv.length; p++) {
+			rv[p] = isDark(cm.getRGB(p));
+		}
+		return rv;
+	}
+
+
+	/**
+	 * Binarizes the rows [startY, endY), split in halves as long as the band
+	 * is at least twice the minimum height
+	 */
+	private class BandTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+		private int startY;
+		private int endY;
+		private int minBandHeight;
+
+		BandTask(int startY, int endY, int minBandHeight) {
+			this.startY = startY;
+			this.endY = endY;
+			this.minBandHeight = minBandHeight;
+		}
+
+		@Override
+		protected Integer compute() {
+			if (endY - startY < 2 * minBandHeight) {
+				return binarizeRows(startY, endY);
+			}
+			int middle = (startY + endY) >>> 1;
+			BandTask upper = new BandTask(startY, middle, minBandHeight);
+			upper.fork();
+			int lower = new BandTask(middle, endY, minBandHeight).compute();
+			return upper.join() + lower;
+		}
+	}
+
+	/**
+	 * Builds the column-major bits of the row words [fromWord, toWord)
+	 */
+	private class ColumnTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int fromWord;
+		private int toWord;
+		private int minWords;
+
+		ColumnTask(int fromWord, int toWord, int minWords) {
+			this.fromWord = fromWord;
+			this.toWord = toWord;
+			this.minWords = minWords;
+		}
+
+		@Override
+		protected void compute() {
+			if (toWord - fromWord < 2 * minWords) {
+				bits.buildCols(fromWord, toWord);
+				return;
+			}
+			int middle = (fromWord + toWord) >>> 1;
+			invokeAll(new ColumnTask(fromWord, middle, minWords),
+					new ColumnTask(middle, toWord, minWords));
+		}
+	}
+}
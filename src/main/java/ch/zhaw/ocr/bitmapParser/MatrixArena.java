@@ -0,0 +1,213 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.zhaw.ocr.Properties;
+
+/**
+ * MatrixArena. Page-scoped pool for the arrays behind the contrast matrices
+ * (bits of PackedBits, row / column profiles and summed-area tables of
+ * ContrastMatrix).
+ * 
+ * Every thread has one arena. While it is open, the arrays are taken from
+ * the arrays of the previous pages instead of being allocated; release()
+ * hands all arrays taken since open() back to the pool at once. Without an
+ * open arena the arrays are allocated as usual.
+ * 
+ * Arrays are pooled in size classes m * 2^k (4 <= m < 8), so an array is at
+ * most 25% longer than requested. Arrays of less than 16 elements (e.g. the
+ * ones of single characters and functional characters) are never pooled. The pool keeps at most
+ * Properties.matrixArenaMaxBytes per thread.
+ * 
+ * Usage:
+ * 
+ * MatrixArena arena = MatrixArena.open();
+ * try {
+ *     ... parse a page, recognize the characters ...
+ * } finally {
+ *     arena.release();
+ * }
+ * 
+ * All matrices created while the arena is open must not be used after
+ * release(): their arrays are reused by the next page.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class MatrixArena {
+	private static final ThreadLocal<MatrixArena> arenas = new ThreadLocal<MatrixArena>() {
+		@Override
+		protected MatrixArena initialValue() {
+			return new MatrixArena();
+		}
+	};
+
+	// smaller arrays are cheaper to allocate than to pool, larger ones are
+	// always allocated
+	private static final int minPooledLength = 16;
+	private static final int maxPooledLength = 1 << 28;
+
+	// index 0: up to 8 elements, then 4 classes per power of two
+	private static final int classCount = 1 + 27 * 4;
+
+	private boolean open = false;
+
+	// free arrays per size class
+	private List<List<long[]>> freeLongs = new ArrayList<List<long[]>>();
+	private List<List<int[]>> freeInts = new ArrayList<List<int[]>>();
+
+	// arrays handed out since open()
+	private List<long[]> usedLongs = new ArrayList<long[]>();
+	private List<int[]> usedInts = new ArrayList<int[]>();
+
+	private long pooledBytes = 0;
+
+	// statistics since the arena was first opened
+	private long requestedBytes = 0;
+	private long allocatedBytes = 0;
+
+	private MatrixArena() {
+		for (int i = 0; i < classCount; i++) {
+			freeLongs.add(new ArrayList<long[]>());
+			freeInts.add(new ArrayList<int[]>());
+		}
+	}
+
+	/**
+	 * Open the arena of the current thread
+	 * 
+	 * @return the arena of the current thread
+	 * @throws IllegalStateException
+	 *             if the arena is already open
+	 */
+	public static MatrixArena open() {
+		MatrixArena arena = arenas.get();
+		if (arena.open) {
+			throw new IllegalStateException("Matrix arena is already open");
+		}
+		arena.open = true;
+		return arena;
+	}
+
+	/**
+	 * Hand all arrays taken since open() back to the pool and close the
+	 * arena
+	 */
+	public void release() {
+		for (long[] a : usedLongs) {
+			if (pooledBytes + 8L * a.length <= Properties.matrixArenaMaxBytes) {
+				freeLongs.get(sizeClass(a.length)).add(a);
+				pooledBytes += 8L * a.length;
+			}
+		}
+		for (int[] a : usedInts) {
+			if (pooledBytes + 4L * a.length <= Properties.matrixArenaMaxBytes) {
+				freeInts.get(sizeClass(a.length)).add(a);
+				pooledBytes += 4L * a.length;
+			}
+		}
+		usedLongs.clear();
+		usedInts.clear();
+		open = false;
+	}
+
+	/**
+	 * @return bytes of arrays requested from this arena
+	 */
+	public long getRequestedBytes() {
+		return requestedBytes;
+	}
+
+	/**
+	 * @return bytes of arrays this arena had to allocate because the pool had
+	 *         none of the requested size
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Get a zeroed array with at least n elements, from the arena of the
+	 * current thread if it is open
+	 */
+	static long[] longs(int n) {
+		MatrixArena arena = arenas.get();
+		if (!arena.open || n < minPooledLength
+				|| n > maxPooledLength) {
+			return new long[n];
+		}
+		return arena.takeLongs(n);
+	}
+
+	/**
+	 * Get a zeroed array with at least n elements, from the arena of the
+	 * current thread if it is open
+	 */
+	static int[] ints(int n) {
+		MatrixArena arena = arenas.get();
+		if (!arena.open || n < minPooledLength
+				|| n > maxPooledLength) {
+			return new int[n];
+		}
+		return arena.takeInts(n);
+	}
+
+	private long[] takeLongs(int n) {
+		int c = sizeClass(n);
+		List<long[]> free = freeLongs.get(c);
+		long[] rv;
+		if (free.isEmpty()) {
+			rv = new long[capacity(c)];
+			allocatedBytes += 8L * rv.length;
+		} else {
+			rv = free.remove(free.size() - 1);
+			pooledBytes -= 8L * rv.length;
+			Arrays.fill(rv, 0, n, 0L);
+		}
+		requestedBytes += 8L * n;
+		usedLongs.add(rv);
+		return rv;
+	}
+
+	private int[] takeInts(int n) {
+		int c = sizeClass(n);
+		List<int[]> free = freeInts.get(c);
+		int[] rv;
+		if (free.isEmpty()) {
+			rv = new int[capacity(c)];
+			allocatedBytes += 4L * rv.length;
+		} else {
+			rv = free.remove(free.size() - 1);
+			pooledBytes -= 4L * rv.length;
+			Arrays.fill(rv, 0, n, 0);
+		}
+		requestedBytes += 4L * n;
+		usedInts.add(rv);
+		return rv;
+	}
+
+	/**
+	 * Size class of arrays with n elements: the smallest class whose capacity
+	 * is at least n
+	 */
+	static int sizeClass(int n) {
+		if (n <= 8) {
+			return 0;
+		}
+		// (n - 1) >> shift is in [4, 8)
+		int shift = 29 - Integer.numberOfLeadingZeros(n - 1);
+		return 1 + (shift - 1) * 4 + ((n - 1) >> shift) - 4;
+	}
+
+	/**
+	 * Number of elements of the arrays of a size class
+	 */
+	static int capacity(int sizeClass) {
+		if (sizeClass == 0) {
+			return 8;
+		}
+		int shift = (sizeClass - 1) / 4 + 1;
+		return ((sizeClass - 1) % 4 + 5) << shift;
+	}
+}
@@ -0,0 +1,335 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * NetpbmReader. Reads PBM and PGM images (Netpbm formats P1, P2, P4 and P5)
+ * straight into a ContrastMatrix, without creating a BufferedImage. The file
+ * is memory-mapped; the rows of a raw PBM (P4) already are packed bits and
+ * are copied into the storage 64 pixels at a time.
+ * 
+ * The result is the same as the one of SimpleBitmapParser for the same
+ * image in RGB: a PBM pixel is ink if it is black (1), a PGM pixel if its
+ * gray value scaled to 0..255 is < 150. The matrix is inverted if there are
+ * more dark than bright pixels.
+ * 
+ * Only the first image of a file is read.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class NetpbmReader {
+	// same threshold as ImageBinarizer: gray * 255 / maxValue < 150
+	private static final int darkGray = 150;
+
+	private ByteBuffer buffer;
+	private char format;
+	private int width;
+	private int height;
+	private int maxValue = 1;
+
+	private PackedBits bits;
+
+	/**
+	 * Check whether the given file is a PBM or PGM image
+	 * 
+	 * @param p
+	 *            file to check
+	 * @return true if NetpbmReader can read the file
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static boolean canRead(Path p) throws IOException {
+		FileChannel channel = FileChannel.open(p, StandardOpenOption.READ);
+		try {
+			ByteBuffer magic = ByteBuffer.allocate(2);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+			}
+			return !magic.hasRemaining() && magic.get(0) == 'P'
+					&& "1245".indexOf(magic.get(1)) >= 0;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Read a PBM or PGM image
+	 * 
+	 * @param p
+	 *            image file
+	 * @return ContrastMatrix representing the image
+	 * @throws IOException
+	 *             if the file cannot be read or is no valid PBM / PGM image
+	 */
+	public static ContrastMatrix read(Path p) throws IOException {
+		FileChannel channel = FileChannel.open(p, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Image too large: " + p);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			return new NetpbmReader(buffer).read();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private NetpbmReader(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	private ContrastMatrix read() throws IOException {
+		readHeader();
+		bits = new PackedBits(width, height);
+
+		long darkCount;
+		switch (format) {
+		case '1':
+			darkCount = readPlainBitmap();
+			break;
+		case '2':
+			darkCount = readPlainGraymap();
+			break;
+		case '4':
+			darkCount = readRawBitmap();
+			break;
+		default:
+			darkCount = readRawGraymap();
+			break;
+		}
+		bits.buildCols();
+
+		ContrastMatrix rv = new ContrastMatrix(bits);
+		// invert matrix if there are more dark then bright pixels
+		if (darkCount > (long) width * height - darkCount) {
+			rv.invertMatrix();
+		}
+		return rv;
+	}
+
+	/**
+	 * Read the magic number, the size and the maximum gray value
+	 */
+	private void readHeader() throws IOException {
+		if (buffer.remaining() < 2 || buffer.get() != 'P') {
+			throw new IOException("No PBM / PGM image");
+		}
+		format = (char) buffer.get();
+		if ("1245".indexOf(format) < 0) {
+			throw new IOException("Unsupported Netpbm format P" + format);
+		}
+		width = readNumber();
+		height = readNumber();
+		if (width <= 0 || height <= 0) {
+			throw new IOException("Invalid image size " + width + "x" + height);
+		}
+		// the rows and the columns of the PackedBits are indexed with ints
+		if ((long) height * PackedBits.wordCount(width) > Integer.MAX_VALUE
+				|| (long) width * PackedBits.wordCount(height) > Integer.MAX_VALUE) {
+			throw new IOException("Image too large: " + width + "x" + height);
+		}
+		if (format == '2' || format == '5') {
+			maxValue = readNumber();
+			if (maxValue < 1 || maxValue > 65535) {
+				throw new IOException("Invalid maximum gray value " + maxValue);
+			}
+		}
+		if (format == '4' || format == '5') {
+			// exactly one whitespace character before the raster
+			if (!buffer.hasRemaining() || !isWhitespace(buffer.get())) {
+				throw new IOException("Invalid PBM / PGM header");
+			}
+		}
+		checkDataSize();
+	}
+
+	/**
+	 * Check that the file is long enough for the image before the matrix is
+	 * allocated: a raw image has a fixed size, a plain one needs at least one
+	 * byte per pixel
+	 */
+	private void checkDataSize() throws IOException {
+		long size;
+		switch (format) {
+		case '4':
+			size = (long) (width + 7) / 8 * height;
+			break;
+		case '5':
+			size = (long) width * height * ((maxValue < 256) ? 1 : 2);
+			break;
+		default:
+			size = (long) width * height;
+			break;
+		}
+		if (size > buffer.remaining()) {
+			throw new IOException("PBM / PGM image data too short");
+		}
+	}
+
+	/**
+	 * Read a decimal number of the header or of a plain image, skipping
+	 * whitespace and comments
+	 */
+	private int readNumber() throws IOException {
+		skipWhitespace();
+		long rv = 0;
+		int digits = 0;
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get(buffer.position());
+			if (b < '0' || b > '9') {
+				break;
+			}
+			buffer.get();
+			rv = rv * 10 + (b - '0');
+			if (rv > Integer.MAX_VALUE) {
+				throw new IOException("Invalid PBM / PGM number");
+			}
+			digits++;
+		}
+		if (digits == 0) {
+			throw new IOException("Invalid PBM / PGM number");
+		}
+		return (int) rv;
+	}
+
+	private void skipWhitespace() {
+		while (buffer.hasRemaining()) {
+			byte b = buffer.get(buffer.position());
+			if (b == '#') {
+				// comment up to the end of the line
+				while (buffer.hasRemaining() && buffer.get() != '\n') {
+				}
+			} else if (isWhitespace(b)) {
+				buffer.get();
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == 0x0B
+				|| b == '\f';
+	}
+
+	/**
+	 * P4: rows of packed bits, 1 is black, the first pixel is the most
+	 * significant bit, every row starts at a new byte
+	 */
+	private long readRawBitmap() {
+		int rowBytes = (width + 7) / 8;
+		int start = buffer.position();
+
+		long darkCount = 0;
+		for (int y = 0; y < height; y++) {
+			int rowStart = start + y * rowBytes;
+			for (int w = 0; w < bits.rowWords; w++) {
+				int offset = rowStart + w * 8;
+				long word;
+				if (w * 8 + 8 <= rowBytes) {
+					word = buffer.getLong(offset);
+				} else {
+					// last bytes of the row
+					word = 0;
+					for (int i = 0; w * 8 + i < rowBytes; i++) {
+						word |= (buffer.get(offset + i) & 0xFFL) << (56 - 8 * i);
+					}
+				}
+				// most significant bit first => pixel x is bit x
+				word = Long.reverse(word) & PackedBits.mask(width - w * 64);
+				bits.rows[y * bits.rowWords + w] = word;
+				darkCount += Long.bitCount(word);
+			}
+		}
+		return darkCount;
+	}
+
+	/**
+	 * P5: one (maxValue < 256) or two bytes (big endian) per pixel
+	 */
+	private long readRawGraymap() {
+		int bytesPerPixel = (maxValue < 256) ? 1 : 2;
+		int start = buffer.position();
+
+		// lookup table for one byte per pixel
+		boolean[] dark = null;
+		if (bytesPerPixel == 1) {
+			dark = new boolean[256];
+			for (int g = 0; g < dark.length; g++) {
+				dark[g] = isDark(g);
+			}
+		}
+
+		long darkCount = 0;
+		int position = start;
+		for (int y = 0; y < height; y++) {
+			for (int w = 0; w < bits.rowWords; w++) {
+				long word = 0;
+				int n = Math.min(64, width - w * 64);
+				for (int i = 0; i < n; i++) {
+					boolean ink;
+					if (dark != null) {
+						ink = dark[buffer.get(position) & 0xFF];
+					} else {
+						ink = isDark(buffer.getShort(position) & 0xFFFF);
+					}
+					position += bytesPerPixel;
+					if (ink) {
+						word |= 1L << i;
+					}
+				}
+				bits.rows[y * bits.rowWords + w] = word;
+				darkCount += Long.bitCount(word);
+			}
+		}
+		return darkCount;
+	}
+
+	/**
+	 * P1: the pixels as characters 0 and 1, whitespace is optional
+	 */
+	private long readPlainBitmap() throws IOException {
+		long darkCount = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				skipWhitespace();
+				if (!buffer.hasRemaining()) {
+					throw new IOException("PBM image data too short");
+				}
+				byte b = buffer.get();
+				if (b == '1') {
+					bits.setRun(y, x, x);
+					darkCount++;
+				} else if (b != '0') {
+					throw new IOException("Invalid PBM pixel " + (char) b);
+				}
+			}
+		}
+		return darkCount;
+	}
+
+	/**
+	 * P2: the pixels as decimal numbers separated by whitespace
+	 */
+	private long readPlainGraymap() throws IOException {
+		long darkCount = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (isDark(readNumber())) {
+					bits.setRun(y, x, x);
+					darkCount++;
+				}
+			}
+		}
+		return darkCount;
+	}
+
+	private boolean isDark(int gray) {
+		return (long) gray * 255 < (long) darkGray * maxValue;
+	}
+}
@@ -0,0 +1,360 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.util.Arrays;
+
+/**
+ * PackedBits. Bit-packed pixel storage behind a ContrastMatrix. Pixels are
+ * stored row by row with 64 pixels per long. A transposed copy (column by
+ * column) is kept alongside so that row and column scans can both work a word
+ * at a time.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+class PackedBits extends BitStorage {
+	// parts up to this number of words are counted without summed-area table
+	private static final int directCountWords = 4;
+
+	// row-major bits: pixel (x, y) is bit (x % 64) of rows[y * rowWords + x / 64],
+	// the arrays may be longer than needed (see MatrixArena)
+	final long[] rows;
+	final int rowWords;
+
+	// column-major bits: pixel (x, y) is bit (y % 64) of cols[x * colWords + y / 64]
+	final long[] cols;
+	final int colWords;
+
+	/**
+	 * Create an empty storage
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	PackedBits(int width, int height) {
+		super(width, height);
+		rowWords = wordCount(width);
+		colWords = wordCount(height);
+		rows = MatrixArena.longs(height * rowWords);
+		cols = MatrixArena.longs(width * colWords);
+	}
+
+	@Override
+	int get(int x, int y) {
+		return (int) ((rows[y * rowWords + (x >>> 6)] >>> x) & 1L);
+	}
+
+	@Override
+	void set(int x, int y, boolean ink) {
+		int r = y * rowWords + (x >>> 6);
+		int c = x * colWords + (y >>> 6);
+		if (ink) {
+			rows[r] |= 1L << x;
+			cols[c] |= 1L << y;
+		} else {
+			rows[r] &= ~(1L << x);
+			cols[c] &= ~(1L << y);
+		}
+	}
+
+	/**
+	 * Get 64 pixels of row y starting at column x. Pixels beyond the end of
+	 * the row are 0.
+	 */
+	@Override
+	long rowBits(int y, int x) {
+		return bitsAt(rows, y * rowWords, rowWords, x);
+	}
+
+	/**
+	 * Get 64 pixels of column x starting at row y. Pixels beyond the end of
+	 * the column are 0.
+	 */
+	long colBits(int x, int y) {
+		return bitsAt(cols, x * colWords, colWords, y);
+	}
+
+	@Override
+	int nextInRow(int y, int x, int end, boolean ink) {
+		for (; x < end; x += 64) {
+			long word = rowBits(y, x);
+			if (!ink) {
+				word = ~word;
+			}
+			if (word != 0) {
+				return Math.min(end, x + Long.numberOfTrailingZeros(word));
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * Count the ink pixels of row y in the columns [x, x + length)
+	 */
+	@Override
+	int countRow(int y, int x, int length) {
+		return count(rows, y * rowWords, rowWords, x, length);
+	}
+
+	/**
+	 * Count the ink pixels of column x in the rows [y, y + length)
+	 */
+	@Override
+	int countCol(int x, int y, int length) {
+		return count(cols, x * colWords, colWords, y, length);
+	}
+
+	@Override
+	boolean countsDirectly(int rows, int length) {
+		return rows * wordCount(length) <= directCountWords;
+	}
+
+	/**
+	 * Set the pixels [fromX, toX] of row y in the row-major bits only (see
+	 * buildCols)
+	 */
+	void setRun(int y, int fromX, int toX) {
+		int start = y * rowWords;
+		for (int w = fromX >>> 6; w <= toX >>> 6; w++) {
+			long bits = -1L;
+			if (w == fromX >>> 6) {
+				bits &= -1L << fromX;
+			}
+			if (w == toX >>> 6) {
+				bits &= mask((toX & 63) + 1);
+			}
+			rows[start + w] |= bits;
+		}
+	}
+
+	/**
+	 * Fill the column-major bits from the row-major bits. Used after the rows
+	 * have been written directly (see ImageBinarizer).
+	 */
+	void buildCols() {
+		buildCols(0, rowWords);
+	}
+
+	/**
+	 * Fill the column-major bits of the columns [fromWord * 64, toWord * 64)
+	 * from the row-major bits. Distinct word ranges may be filled
+	 * concurrently.
+	 */
+	void buildCols(int fromWord, int toWord) {
+		Arrays.fill(cols, Math.min(fromWord * 64, width) * colWords,
+				Math.min(toWord * 64, width) * colWords, 0L);
+		for (int y = 0; y < height; y++) {
+			long yBit = 1L << y;
+			int yWord = y >>> 6;
+			for (int w = fromWord; w < toWord; w++) {
+				long word = rows[y * rowWords + w];
+				while (word != 0) {
+					int x = (w << 6) + Long.numberOfTrailingZeros(word);
+					cols[x * colWords + yWord] |= yBit;
+					word &= word - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Count the pixels set in the row-major bits
+	 */
+	long countRows() {
+		long rv = 0;
+		for (int i = 0; i < height * rowWords; i++) {
+			rv += Long.bitCount(rows[i]);
+		}
+		return rv;
+	}
+
+	/**
+	 * Find the first pixel of row y with the given value
+	 * 
+	 * @return column of the pixel or width if there is none
+	 */
+	int firstInRow(int y, boolean ink) {
+		for (int w = 0; w < rowWords; w++) {
+			long word = lineWord(y, w, ink);
+			if (word != 0) {
+				return w * 64 + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return width;
+	}
+
+	/**
+	 * Find the last pixel of row y with the given value
+	 * 
+	 * @return column of the pixel or -1 if there is none
+	 */
+	int lastInRow(int y, boolean ink) {
+		for (int w = rowWords - 1; w >= 0; w--) {
+			long word = lineWord(y, w, ink);
+			if (word != 0) {
+				return w * 64 + 63 - Long.numberOfLeadingZeros(word);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Word w of row y, with the bits of the pixels with the given value set
+	 */
+	private long lineWord(int y, int w, boolean ink) {
+		long word = rows[y * rowWords + w];
+		return ink ? word : ~word & mask(width - w * 64);
+	}
+
+	/**
+	 * Copy a part of this storage into a new, unshared storage
+	 * 
+	 * @param offsetX
+	 * @param offsetY
+	 * @param width
+	 * @param height
+	 * @return new storage of the given size
+	 */
+	@Override
+	PackedBits copy(int offsetX, int offsetY, int width, int height) {
+		PackedBits rv = new PackedBits(width, height);
+		for (int y = 0; y < height; y++) {
+			copyLine(rows, (offsetY + y) * rowWords, rowWords, offsetX,
+					rv.rows, y * rv.rowWords, width);
+		}
+		for (int x = 0; x < width; x++) {
+			copyLine(cols, (offsetX + x) * colWords, colWords, offsetY,
+					rv.cols, x * rv.colWords, height);
+		}
+		return rv;
+	}
+
+	/**
+	 * Invert all pixels (1 => 0 ; 0 => 1)
+	 */
+	@Override
+	void invert() {
+		invertLines(rows, height, rowWords, width);
+		invertLines(cols, width, colWords, height);
+	}
+
+	/**
+	 * Create a new storage without the given column
+	 */
+	@Override
+	PackedBits withoutCol(int colNo) {
+		PackedBits rv = new PackedBits(width - 1, height);
+		for (int y = 0; y < height; y++) {
+			removeBit(rows, y * rowWords, rowWords, width, colNo, rv.rows, y
+					* rv.rowWords);
+		}
+		System.arraycopy(cols, 0, rv.cols, 0, colNo * colWords);
+		System.arraycopy(cols, (colNo + 1) * colWords, rv.cols, colNo
+				* colWords, (width - colNo - 1) * colWords);
+		return rv;
+	}
+
+	/**
+	 * Create a new storage without the given row
+	 */
+	@Override
+	PackedBits withoutRow(int rowNo) {
+		PackedBits rv = new PackedBits(width, height - 1);
+		for (int x = 0; x < width; x++) {
+			removeBit(cols, x * colWords, colWords, height, rowNo, rv.cols, x
+					* rv.colWords);
+		}
+		System.arraycopy(rows, 0, rv.rows, 0, rowNo * rowWords);
+		System.arraycopy(rows, (rowNo + 1) * rowWords, rv.rows, rowNo
+				* rowWords, (height - rowNo - 1) * rowWords);
+		return rv;
+	}
+
+	/**
+	 * Number of longs needed to store a line of the given length
+	 */
+	static int wordCount(int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	/**
+	 * Mask selecting the lowest n bits of a word (all bits for n >= 64)
+	 */
+	static long mask(int n) {
+		return (n >= 64) ? -1L : (1L << n) - 1;
+	}
+
+	/**
+	 * Read 64 bits of a line starting at an arbitrary bit position
+	 */
+	private static long bitsAt(long[] bits, int lineStart, int lineWords,
+			int from) {
+		int w = from >>> 6;
+		int s = from & 63;
+		long rv = bits[lineStart + w] >>> s;
+		if (s != 0 && w + 1 < lineWords) {
+			rv |= bits[lineStart + w + 1] << (64 - s);
+		}
+		return rv;
+	}
+
+	private static int count(long[] bits, int lineStart, int lineWords,
+			int from, int length) {
+		int rv = 0;
+		for (int i = 0; i < length; i += 64) {
+			rv += Long.bitCount(bitsAt(bits, lineStart, lineWords, from + i)
+					& mask(length - i));
+		}
+		return rv;
+	}
+
+	private static void copyLine(long[] src, int srcStart, int srcWords,
+			int from, long[] dst, int dstStart, int length) {
+		for (int i = 0; i < length; i += 64) {
+			dst[dstStart + (i >>> 6)] = bitsAt(src, srcStart, srcWords, from
+					+ i)
+					& mask(length - i);
+		}
+	}
+
+	private static void invertLines(long[] bits, int lines, int words,
+			int length) {
+		if (words == 0) {
+			return;
+		}
+		long lastMask = mask(length - (words - 1) * 64);
+		for (int l = 0; l < lines; l++) {
+			int start = l * words;
+			for (int i = 0; i < words; i++) {
+				bits[start + i] = ~bits[start + i];
+			}
+			// keep the unused bits of the last word cleared
+			bits[start + words - 1] &= lastMask;
+		}
+	}
+
+	/**
+	 * Copy a line of bits to a new line, leaving out the given bit
+	 */
+	private static void removeBit(long[] src, int srcStart, int srcWords,
+			int length, int bit, long[] dst, int dstStart) {
+		int dstWords = wordCount(length - 1);
+		if (dstWords == 0) {
+			return;
+		}
+		for (int i = 0; i < dstWords; i++) {
+			int from = i * 64;
+			// bits [from, from + 64) of the destination line
+			long low = src[srcStart + i];
+			long high = (i + 1 < srcWords) ? src[srcStart + i + 1] : 0;
+			long shifted = (low >>> 1) | (high << 63);
+			if (bit >= from + 64) {
+				dst[dstStart + i] = low;
+			} else if (bit < from) {
+				dst[dstStart + i] = shifted;
+			} else {
+				long keep = (1L << (bit - from)) - 1;
+				dst[dstStart + i] = (low & keep) | (shifted & ~keep);
+			}
+		}
+		dst[dstStart + dstWords - 1] &= mask(length - 1 - (dstWords - 1) * 64);
+	}
+}
@@ -1,6 +1,5 @@
 package ch.zhaw.ocr.bitmapParser;
 
-import java.awt.image.BufferedImage;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -13,6 +12,7 @@ import java.util.List;
  *
  */
 public class RowParser extends BitmapParserDecorator {
+	private int rowStart = -1;
 
 	public RowParser(BitmapParser bp) {
 		super(bp);
@@ -20,13 +20,14 @@ public class RowParser extends BitmapParserDecorator {
 	}
 
 	@Override
-	public List<ContrastMatrix> parse(BufferedImage image){
-		List<ContrastMatrix> matrices = super.parse(image);
-		
+	protected void reset(){
+		rowStart = -1;
+	}
+
+	@Override
+	protected List<ContrastMatrix> process(List<ContrastMatrix> matrices){
 		List<ContrastMatrix> rv = new LinkedList<ContrastMatrix>();
 		
-		int rowStart = -1;
-		
 		for(ContrastMatrix m : matrices){
 			if(m.getFunctionalChar() == null){
 				//trim
@@ -36,7 +37,7 @@ public class RowParser extends BitmapParserDecorator {
 					if(m.isEmptyRow(y)){
 						if(rowStart != -1){
 							rv.add(m.getSubMatrix(0, rowStart, m.getWidth(), y-rowStart));
-							rv.add(new ContrastMatrix(FunctionalCharacter.carriageReturn));
+							rv.add(ContrastMatrix.getFunctionalMatrix(FunctionalCharacter.carriageReturn));
 							rowStart = -1;
 						}
 					}else{
@@ -47,6 +48,7 @@ public class RowParser extends BitmapParserDecorator {
 				}
 				if(rowStart != -1){
 					rv.add(m.getSubMatrix(0, rowStart, m.getWidth(), m.getHeight() - rowStart));
+					rowStart = -1;
 				}
 			}else{
 				//functional character => keep it
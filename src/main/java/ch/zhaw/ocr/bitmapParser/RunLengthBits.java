@@ -0,0 +1,340 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.util.Arrays;
+
+/**
+ * RunLengthBits. Run-length encoded pixel storage behind a ContrastMatrix.
+ * Every row is stored as the sorted list of its runs of ink pixels, so the
+ * memory needed depends on the amount of ink rather than on the size of the
+ * page. Text pages are mostly background, which makes this storage a lot
+ * smaller than PackedBits.
+ * 
+ * All queries work on the runs directly: counting the pixels of a row costs
+ * one binary search plus one step per run, the ink per column is summed up
+ * from the run boundaries. Changing a pixel replaces the runs of its row.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+class RunLengthBits extends BitStorage {
+	private static final int[] noRuns = new int[0];
+
+	// runs of row y: run i covers the columns [runs[y][2 * i], runs[y][2 * i + 1])
+	private final int[][] runs;
+
+	/**
+	 * Create an empty storage
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	RunLengthBits(int width, int height) {
+		super(width, height);
+		runs = new int[height][];
+		Arrays.fill(runs, noRuns);
+	}
+
+	/**
+	 * Encode a part of another storage
+	 * 
+	 * @param bits
+	 *            storage to be encoded
+	 * @param offsetX
+	 * @param offsetY
+	 * @param width
+	 * @param height
+	 */
+	RunLengthBits(BitStorage bits, int offsetX, int offsetY, int width,
+			int height) {
+		this(width, height);
+		for (int y = 0; y < height; y++) {
+			setRow(y, bits, offsetY + y, offsetX);
+		}
+	}
+
+	/**
+	 * Replace row y by the pixels [x, x + width) of row srcY of the given
+	 * storage
+	 */
+	void setRow(int y, BitStorage src, int srcY, int x) {
+		int[] row = new int[8];
+		int length = 0;
+		for (int i = 0; i < width; i += 64) {
+			long word = src.rowBits(srcY, x + i) & PackedBits.mask(width - i);
+			while (word != 0) {
+				int start = Long.numberOfTrailingZeros(word);
+				int end = start + Long.numberOfTrailingZeros(~(word >>> start));
+				if (length > 0 && row[length - 1] == i + start) {
+					// run continues from the previous word
+					row[length - 1] = i + end;
+				} else {
+					if (length == row.length) {
+						row = Arrays.copyOf(row, 2 * length);
+					}
+					row[length++] = i + start;
+					row[length++] = i + end;
+				}
+				word &= (end >= 64) ? 0 : -1L << end;
+			}
+		}
+		runs[y] = (length == 0) ? noRuns : Arrays.copyOf(row, length);
+	}
+
+	/**
+	 * Create a storage with the same pixels as PackedBits
+	 */
+	PackedBits toPackedBits() {
+		PackedBits rv = new PackedBits(width, height);
+		for (int y = 0; y < height; y++) {
+			int[] row = runs[y];
+			for (int i = 0; i < row.length; i += 2) {
+				rv.setRun(y, row[i], row[i + 1] - 1);
+			}
+		}
+		rv.buildCols();
+		return rv;
+	}
+
+	/**
+	 * Number of runs of all rows
+	 */
+	int runCount() {
+		int rv = 0;
+		for (int[] row : runs) {
+			rv += row.length / 2;
+		}
+		return rv;
+	}
+
+	@Override
+	int get(int x, int y) {
+		int[] row = runs[y];
+		int i = firstRunEndingAfter(row, x);
+		return (i < row.length && row[i] <= x) ? 1 : 0;
+	}
+
+	@Override
+	void set(int x, int y, boolean ink) {
+		runs[y] = ink ? add(runs[y], x, x + 1) : remove(runs[y], x, x + 1);
+	}
+
+	@Override
+	long rowBits(int y, int x) {
+		int[] row = runs[y];
+		long rv = 0;
+		for (int i = firstRunEndingAfter(row, x); i < row.length
+				&& row[i] < x + 64; i += 2) {
+			int start = Math.max(row[i], x) - x;
+			int end = Math.min(row[i + 1], x + 64) - x;
+			rv |= PackedBits.mask(end) & (-1L << start);
+		}
+		return rv;
+	}
+
+	@Override
+	int nextInRow(int y, int x, int end, boolean ink) {
+		int[] row = runs[y];
+		int i = firstRunEndingAfter(row, x);
+		int rv;
+		if (ink) {
+			rv = (i < row.length) ? Math.max(row[i], x) : end;
+		} else {
+			rv = (i < row.length && row[i] <= x) ? row[i + 1] : x;
+		}
+		return Math.min(rv, end);
+	}
+
+	@Override
+	int countRow(int y, int x, int length) {
+		int[] row = runs[y];
+		int end = x + length;
+		int rv = 0;
+		for (int i = firstRunEndingAfter(row, x); i < row.length
+				&& row[i] < end; i += 2) {
+			rv += Math.min(row[i + 1], end) - Math.max(row[i], x);
+		}
+		return rv;
+	}
+
+	@Override
+	int countCol(int x, int y, int length) {
+		int rv = 0;
+		for (int i = y; i < y + length; i++) {
+			rv += get(x, i);
+		}
+		return rv;
+	}
+
+	/**
+	 * The runs only mark where the counts of the columns change
+	 */
+	@Override
+	int[] countCols(int x, int y, int width, int height) {
+		int end = x + width;
+		int[] rv = MatrixArena.ints(width + 1);
+		for (int r = y; r < y + height; r++) {
+			int[] row = runs[r];
+			for (int i = firstRunEndingAfter(row, x); i < row.length
+					&& row[i] < end; i += 2) {
+				rv[Math.max(row[i], x) - x]++;
+				rv[Math.min(row[i + 1], end) - x]--;
+			}
+		}
+		for (int i = 1; i < width; i++) {
+			rv[i] += rv[i - 1];
+		}
+		return rv;
+	}
+
+	/**
+	 * A summed-area table would need a value per pixel
+	 */
+	@Override
+	boolean countsDirectly(int rows, int length) {
+		return true;
+	}
+
+	@Override
+	RunLengthBits copy(int offsetX, int offsetY, int width, int height) {
+		RunLengthBits rv = new RunLengthBits(width, height);
+		int end = offsetX + width;
+		for (int y = 0; y < height; y++) {
+			int[] row = runs[offsetY + y];
+			int first = firstRunEndingAfter(row, offsetX);
+			int last = first;
+			while (last < row.length && row[last] < end) {
+				last += 2;
+			}
+			if (offsetX == 0 && last == row.length
+					&& (first == last || row[last - 1] <= end)) {
+				// rows are never changed in place => they can be shared
+				rv.runs[y] = row;
+			} else if (last > first) {
+				int[] copy = Arrays.copyOfRange(row, first, last);
+				for (int i = 0; i < copy.length; i++) {
+					copy[i] = Math.min(Math.max(copy[i], offsetX), end) - offsetX;
+				}
+				rv.runs[y] = copy;
+			}
+		}
+		return rv;
+	}
+
+	@Override
+	void invert() {
+		for (int y = 0; y < height; y++) {
+			int[] row = runs[y];
+			// the gaps between the runs become the runs
+			int[] inverted = new int[row.length + 2];
+			int length = 0;
+			int start = 0;
+			for (int i = 0; i < row.length; i += 2) {
+				if (row[i] > start) {
+					inverted[length++] = start;
+					inverted[length++] = row[i];
+				}
+				start = row[i + 1];
+			}
+			if (start < width) {
+				inverted[length++] = start;
+				inverted[length++] = width;
+			}
+			runs[y] = (length == 0) ? noRuns : Arrays.copyOf(inverted, length);
+		}
+	}
+
+	@Override
+	RunLengthBits withoutCol(int colNo) {
+		RunLengthBits rv = new RunLengthBits(width - 1, height);
+		for (int y = 0; y < height; y++) {
+			int[] row = remove(runs[y], colNo, colNo + 1);
+			int[] shifted = new int[row.length];
+			int length = 0;
+			for (int i = 0; i < row.length; i += 2) {
+				int start = (row[i] > colNo) ? row[i] - 1 : row[i];
+				int end = (row[i + 1] > colNo) ? row[i + 1] - 1 : row[i + 1];
+				if (length > 0 && shifted[length - 1] == start) {
+					// the removed column was the gap between two runs
+					shifted[length - 1] = end;
+				} else {
+					shifted[length++] = start;
+					shifted[length++] = end;
+				}
+			}
+			rv.runs[y] = (length == 0) ? noRuns : Arrays.copyOf(shifted, length);
+		}
+		return rv;
+	}
+
+	@Override
+	RunLengthBits withoutRow(int rowNo) {
+		RunLengthBits rv = new RunLengthBits(width, height - 1);
+		System.arraycopy(runs, 0, rv.runs, 0, rowNo);
+		System.arraycopy(runs, rowNo + 1, rv.runs, rowNo, height - rowNo - 1);
+		return rv;
+	}
+
+	/**
+	 * Index of the first run ending after column x (binary search)
+	 * 
+	 * @return index of the start of the run or row.length if there is none
+	 */
+	private static int firstRunEndingAfter(int[] row, int x) {
+		int low = 0;
+		int high = row.length / 2;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (row[2 * mid + 1] <= x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return 2 * low;
+	}
+
+	/**
+	 * Runs of a row with the columns [from, to) added
+	 */
+	private static int[] add(int[] row, int from, int to) {
+		int[] rv = new int[row.length + 2];
+		int length = 0;
+		int i = 0;
+		// runs ending before the new one
+		for (; i < row.length && row[i + 1] < from; i += 2) {
+			rv[length++] = row[i];
+			rv[length++] = row[i + 1];
+		}
+		// runs touching the new one are merged into it
+		for (; i < row.length && row[i] <= to; i += 2) {
+			from = Math.min(from, row[i]);
+			to = Math.max(to, row[i + 1]);
+		}
+		rv[length++] = from;
+		rv[length++] = to;
+		for (; i < row.length; i += 2) {
+			rv[length++] = row[i];
+			rv[length++] = row[i + 1];
+		}
+		return Arrays.copyOf(rv, length);
+	}
+
+	/**
+	 * Runs of a row with the columns [from, to) removed
+	 */
+	private static int[] remove(int[] row, int from, int to) {
+		int[] rv = new int[row.length + 2];
+		int length = 0;
+		for (int i = 0; i < row.length; i += 2) {
+			// part before and part after the removed columns
+			if (row[i] < Math.min(row[i + 1], from)) {
+				rv[length++] = row[i];
+				rv[length++] = Math.min(row[i + 1], from);
+			}
+			if (Math.max(row[i], to) < row[i + 1]) {
+				rv[length++] = Math.max(row[i], to);
+				rv[length++] = row[i + 1];
+			}
+		}
+		return (length == 0) ? noRuns : Arrays.copyOf(rv, length);
+	}
+}
@@ -1,8 +1,12 @@
 package ch.zhaw.ocr.bitmapParser;
 
 import java.awt.image.BufferedImage;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import ch.zhaw.ocr.Properties;
 
 /**
  * SimpleBitmapParser parses a given image, enhances the contrast and returns a ContrastMatix
@@ -10,7 +14,57 @@ import java.util.List;
  *
  */
 public class SimpleBitmapParser implements BitmapParser{
+	// pool shared by all parsers using the default configuration
+	private static ForkJoinPool defaultPool = null;
+
 	private List<ContrastMatrix> matrices;
+	private ForkJoinPool pool;
+	private int minBandHeight;
+	private boolean runLength;
+
+	/**
+	 * Create a parser binarizing large images in parallel, configured by
+	 * Properties.bitmapParserThreads, Properties.bitmapParserMinBandHeight
+	 * and Properties.bitmapParserRunLength
+	 */
+	public SimpleBitmapParser() {
+		this(getDefaultPool(), Properties.bitmapParserMinBandHeight,
+				Properties.bitmapParserRunLength);
+	}
+
+	/**
+	 * Create a parser binarizing images in horizontal bands
+	 * 
+	 * @param pool
+	 *            pool executing the bands, null to binarize in the current
+	 *            thread
+	 * @param minBandHeight
+	 *            minimal number of rows per band
+	 */
+	public SimpleBitmapParser(ForkJoinPool pool, int minBandHeight) {
+		this(pool, minBandHeight, false);
+	}
+
+	/**
+	 * Create a parser binarizing images in horizontal bands
+	 * 
+	 * @param pool
+	 *            pool executing the bands, null to binarize in the current
+	 *            thread
+	 * @param minBandHeight
+	 *            minimal number of rows per band
+	 * @param runLength
+	 *            create run-length encoded matrices (see
+	 *            ContrastMatrix.toRunLengthMatrix()). The bands are binarized
+	 *            one after the other and only their runs are kept, so the
+	 *            page is never stored with one bit per pixel.
+	 */
+	public SimpleBitmapParser(ForkJoinPool pool, int minBandHeight,
+			boolean runLength) {
+		this.pool = pool;
+		this.minBandHeight = minBandHeight;
+		this.runLength = runLength;
+	}
 		
 	@Override
 	/**
@@ -22,35 +76,50 @@ public class SimpleBitmapParser implements BitmapParser{
 	public List<ContrastMatrix> parse(BufferedImage image) {
 		matrices = new LinkedList<ContrastMatrix>();
 		
-		ContrastMatrix rv = new ContrastMatrix(image.getWidth(),
-				image.getHeight());
+		if (runLength) {
+			RunLengthBits runs = new RunLengthBits(image.getWidth(),
+					image.getHeight());
+			int darkCount = binarizeRunLength(image, runs);
+			addPage(new ContrastMatrix(runs), image, darkCount);
+			return matrices;
+		}
 
-		int brightCount = 0;
-		int darkCount = 0;
+		PackedBits bits = new PackedBits(image.getWidth(), image.getHeight());
+
+		// reads the raster of the image directly where possible
+		ImageBinarizer binarizer = new ImageBinarizer(image, bits);
+		int darkCount;
+		if (pool == null || image.getHeight() < 2 * minBandHeight) {
+			darkCount = binarizer.binarize();
+		} else {
+			darkCount = binarizer.binarize(pool, minBandHeight);
+		}
+		addPage(new ContrastMatrix(bits), image, darkCount);
+		return matrices;
+	}
 
-		int rgb = 0;
-		int red = 0;
-		int green = 0;
-		int blue = 0;
-
-		for (int y = 0; y < image.getHeight(); y++) {
-			for (int x = 0; x < image.getWidth(); x++) {
-				rgb = image.getRGB(x, y);
-
-				red = (rgb >> 16) & 0x000000FF;
-				green = (rgb >> 8) & 0x000000FF;
-				blue = (rgb) & 0x000000FF;
-
-				// average rgb value < 150 = 1
-				if ((red + blue + green) / 3 < 150) {
-					rv.setValue(x, y, 1);
-					darkCount++;
-				} else {
-					rv.setValue(x, y, 0);
-					brightCount++;
-				}
+	/**
+	 * Binarize the image band by band, keeping only the runs of every row
+	 * 
+	 * @return number of dark pixels
+	 */
+	private int binarizeRunLength(BufferedImage image, RunLengthBits runs) {
+		int bandHeight = Math.max(1, minBandHeight);
+		int darkCount = 0;
+		for (int y = 0; y < image.getHeight(); y += bandHeight) {
+			int h = Math.min(bandHeight, image.getHeight() - y);
+			PackedBits band = new PackedBits(image.getWidth(), h);
+			darkCount += new ImageBinarizer(image.getSubimage(0, y,
+					image.getWidth(), h), band).binarizeRows(0, h);
+			for (int r = 0; r < h; r++) {
+				runs.setRow(y + r, band, r, 0);
 			}
 		}
+		return darkCount;
+	}
+
+	private void addPage(ContrastMatrix rv, BufferedImage image, int darkCount) {
+		int brightCount = image.getWidth() * image.getHeight() - darkCount;
 
 		// invert matrix if there are more dark then bright pixels
 		if (darkCount > brightCount) {
@@ -58,6 +127,23 @@ public class SimpleBitmapParser implements BitmapParser{
 		}
 
 		matrices.add(rv);
-		return matrices;
+	}
+
+	/**
+	 * The image is binarized as a whole, so the matrix is created at once
+	 */
+	@Override
+	public Iterator<ContrastMatrix> parseLazily(BufferedImage image) {
+		return parse(image).iterator();
+	}
+
+	private static synchronized ForkJoinPool getDefaultPool() {
+		if (Properties.bitmapParserThreads <= 1) {
+			return null;
+		}
+		if (defaultPool == null) {
+			defaultPool = new ForkJoinPool(Properties.bitmapParserThreads);
+		}
+		return defaultPool;
 	}
 }
@@ -0,0 +1,251 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * SinglePassParser. Does the work of RowParser, UnderlineRemover, WordParser
+ * and CharacterParser in one decorator:
+ * 1. Split the page at empty pixel-rows into text rows
+ * 2. Remove the underlines of every text row
+ * 3. Split the text row at word spaces and the words at empty columns
+ * 
+ * The rows, words and characters are found using the row and column
+ * profiles of the page and the text rows. Intermediate lists and repeated
+ * trimming are avoided. The result is the same as the one of
+ * CharacterParser(WordParser(UnderlineRemover(RowParser(bp)))).
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class SinglePassParser extends BitmapParserDecorator {
+	// functional character waiting for the next text row that is kept
+	private ContrastMatrix functionalChar = null;
+
+	// space sizes found in all text rows so far
+	private int minSpaceSize = 0;
+	private int maxSpaceSize = 0;
+
+	public SinglePassParser(BitmapParser bp) {
+		super(bp);
+	}
+
+	@Override
+	protected void reset() {
+		functionalChar = null;
+		minSpaceSize = 0;
+		maxSpaceSize = 0;
+	}
+
+	/**
+	 * Splits the pages into characters
+	 * @param matrices List of contrast matrices representing pages
+	 * @return List of contrast matrices representing characters
+	 */
+	@Override
+	protected List<ContrastMatrix> process(List<ContrastMatrix> matrices) {
+		List<ContrastMatrix> rv = new LinkedList<ContrastMatrix>();
+		Iterator<ContrastMatrix> characters = processLazily(matrices.iterator());
+		while (characters.hasNext()) {
+			rv.add(characters.next());
+		}
+		return rv;
+	}
+
+	/**
+	 * Splits the pages into characters, one text row at a time
+	 * @param matrices Iterator over the contrast matrices representing pages
+	 * @return Iterator over the contrast matrices representing characters
+	 */
+	@Override
+	protected Iterator<ContrastMatrix> processLazily(Iterator<ContrastMatrix> matrices) {
+		return new RowIterator(matrices);
+	}
+
+	/**
+	 * Remove the underlines of a text row and split it into characters
+	 */
+	private void parseRow(ContrastMatrix m, List<ContrastMatrix> rv) {
+		m.trim();
+
+		// a row that is a full underline is removed
+		int inkCount = 0;
+		for (int y = 0; y < m.getHeight(); y++) {
+			inkCount += m.getRowInkCount(y);
+		}
+		if (inkCount == m.getWidth() * m.getHeight()) {
+			return;
+		}
+
+		if (functionalChar != null) {
+			rv.add(functionalChar);
+			functionalChar = null;
+		}
+
+		UnderlineRemover.removeUnderlines(m);
+
+		// row was only an underline
+		inkCount = 0;
+		for (int y = 0; y < m.getHeight(); y++) {
+			inkCount += m.getRowInkCount(y);
+		}
+		if (inkCount == 0) {
+			return;
+		}
+
+		m.trim();
+
+		// find min / max space sizes
+		int spaceCounter = 0;
+		for (int x = 0; x < m.getWidth(); x++) {
+			if (m.isEmptyCol(x)) {
+				spaceCounter++;
+			} else {
+				if (spaceCounter > 0) {
+					if (minSpaceSize == 0 || minSpaceSize > spaceCounter) {
+						minSpaceSize = spaceCounter;
+					}
+					if (maxSpaceSize < spaceCounter) {
+						maxSpaceSize = spaceCounter;
+					}
+				}
+				spaceCounter = 0;
+			}
+		}
+
+		// split words at spaces closer to the max than to the min space size
+		int wordStart = -1;
+		int wordEnd = -1;
+		spaceCounter = 0;
+		for (int x = 0; x < m.getWidth(); x++) {
+			if (m.isEmptyCol(x)) {
+				spaceCounter++;
+				if (wordStart != -1 && wordEnd == -1) {
+					wordEnd = x;
+				}
+			} else {
+				if (wordStart == -1) {
+					wordStart = x;
+				}
+				if (spaceCounter != 0
+						&& (maxSpaceSize - spaceCounter) < (spaceCounter - minSpaceSize)) {
+					parseWord(m, wordStart, wordEnd, rv);
+					rv.add(ContrastMatrix.getFunctionalMatrix(FunctionalCharacter.space));
+					wordStart = x;
+				}
+				wordEnd = -1;
+				spaceCounter = 0;
+			}
+		}
+		if (wordStart != -1) {
+			parseWord(m, wordStart, m.getWidth(), rv);
+		}
+	}
+
+	/**
+	 * Split the columns [startX, endX) of a text row into characters. All
+	 * characters of a word get the height of the word.
+	 */
+	private void parseWord(ContrastMatrix m, int startX, int endX,
+			List<ContrastMatrix> rv) {
+		// the word starts and ends with ink => trim only removes rows
+		ContrastMatrix word = m.getSubMatrix(startX, 0, endX - startX,
+				m.getHeight());
+		word.trim();
+
+		int characterStart = -1;
+		for (int x = startX; x < endX; x++) {
+			if (m.isEmptyCol(x)) {
+				if (characterStart != -1) {
+					rv.add(word.getSubMatrix(characterStart - startX, 0, x
+							- characterStart, word.getHeight()));
+					characterStart = -1;
+				}
+			} else if (characterStart == -1) {
+				characterStart = x;
+			}
+		}
+		if (characterStart != -1) {
+			rv.add(word.getSubMatrix(characterStart - startX, 0, endX
+					- characterStart, word.getHeight()));
+		}
+	}
+
+	/**
+	 * Cuts the next text row of the current page when the characters of the
+	 * previous one have been consumed
+	 */
+	private class RowIterator implements Iterator<ContrastMatrix> {
+		private Iterator<ContrastMatrix> pages;
+		private LinkedList<ContrastMatrix> characters = new LinkedList<ContrastMatrix>();
+
+		private ContrastMatrix page = null;
+		private int y = 0;
+
+		RowIterator(Iterator<ContrastMatrix> pages) {
+			this.pages = pages;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (characters.isEmpty()) {
+				if (page != null) {
+					nextRow();
+				} else if (!pages.hasNext()) {
+					return false;
+				} else {
+					ContrastMatrix m = pages.next();
+					if (m.getFunctionalChar() == null) {
+						page = m;
+						page.trim();
+						y = 0;
+					} else {
+						// functional character => keep it until the next text row
+						functionalChar = m;
+					}
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public ContrastMatrix next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return characters.removeFirst();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Parse the text row starting at the next non empty pixel-row
+		 */
+		private void nextRow() {
+			while (y < page.getHeight() && page.isEmptyRow(y)) {
+				y++;
+			}
+			if (y == page.getHeight()) {
+				page = null;
+				return;
+			}
+
+			int rowStart = y;
+			while (y < page.getHeight() && !page.isEmptyRow(y)) {
+				y++;
+			}
+			parseRow(page.getSubMatrix(0, rowStart, page.getWidth(), y
+					- rowStart), characters);
+
+			// an empty pixel-row follows => carriage return
+			if (y < page.getHeight()) {
+				functionalChar = ContrastMatrix
+						.getFunctionalMatrix(FunctionalCharacter.carriageReturn);
+			}
+		}
+	}
+}
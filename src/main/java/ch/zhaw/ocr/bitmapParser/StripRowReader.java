@@ -0,0 +1,192 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * StripRowReader. Reads the text rows of an image without decoding the whole
+ * image at once. The image is decoded in horizontal strips; a text row is
+ * returned as soon as the empty pixel-row below it has been read. Only the
+ * current strip and the current text row are kept in memory.
+ * 
+ * The rows are the same as the ones of RowParser(SimpleBitmapParser). Since
+ * the inversion of the image and the trimmed width of the rows depend on the
+ * whole page, the image is decoded twice: the first pass only counts the dark
+ * pixels and measures the bounding box of the ink.
+ * 
+ * Note that some formats (e.g. PNG) have to decode all rows above a strip to
+ * read it. A larger strip height means less decoding but more memory.
+ * 
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class StripRowReader {
+	private ImageInputStream input;
+	private ImageReader reader;
+	private int stripHeight;
+
+	private int width;
+	private int height;
+
+	// page: inversion and horizontal bounding box of the ink
+	private boolean invert;
+	private int startX;
+	private int rowWidth;
+	private int rowWords;
+
+	// current strip
+	private PackedBits strip = null;
+	private int stripY = 0;
+	private int y = 0;
+
+	// current text row: rowWords longs per pixel-row
+	private long[] row = new long[0];
+	private int rowHeight = 0;
+
+	/**
+	 * Open an image
+	 * 
+	 * @param f
+	 *            image file
+	 * @param stripHeight
+	 *            number of pixel-rows decoded at once
+	 * @throws IOException
+	 *             if the image cannot be read
+	 */
+	public StripRowReader(File f, int stripHeight) throws IOException {
+		this.stripHeight = Math.max(1, stripHeight);
+
+		input = ImageIO.createImageInputStream(f);
+		if (input == null) {
+			throw new IOException("Can't read input file " + f);
+		}
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+		if (!readers.hasNext()) {
+			input.close();
+			throw new IOException("No image reader for " + f);
+		}
+		reader = readers.next();
+		reader.setInput(input, false, true);
+
+		width = reader.getWidth(0);
+		height = reader.getHeight(0);
+
+		measurePage();
+	}
+
+	/**
+	 * Read the next text row
+	 * 
+	 * @return the next text row or null if there are no more rows
+	 * @throws IOException
+	 *             if the image cannot be read
+	 */
+	public ContrastMatrix readRow() throws IOException {
+		if (rowWidth == 0) {
+			// no ink at all
+			return null;
+		}
+		while (y < height) {
+			if (y >= stripY + stripHeight || strip == null) {
+				readStrip(y);
+			}
+
+			// append the pixel-row to the text row if it isn't empty
+			boolean empty = true;
+			int start = rowHeight * rowWords;
+			if (row.length < start + rowWords) {
+				row = Arrays.copyOf(row, Math.max(2 * row.length, start
+						+ rowWords));
+			}
+			for (int i = 0; i < rowWords; i++) {
+				long bits = strip.rowBits(y - stripY, startX + i * 64);
+				if (invert) {
+					bits = ~bits;
+				}
+				bits &= PackedBits.mask(rowWidth - i * 64);
+				row[start + i] = bits;
+				empty &= (bits == 0);
+			}
+			y++;
+
+			if (!empty) {
+				rowHeight++;
+			} else if (rowHeight > 0) {
+				return createRow();
+			}
+		}
+
+		if (rowHeight > 0) {
+			return createRow();
+		}
+		return null;
+	}
+
+	/**
+	 * Release the image reader
+	 */
+	public void close() throws IOException {
+		reader.dispose();
+		input.close();
+	}
+
+	/**
+	 * First pass: decide whether the image has to be inverted and find the
+	 * columns containing ink
+	 */
+	private void measurePage() throws IOException {
+		long darkCount = 0;
+		int darkMinX = width;
+		int darkMaxX = -1;
+		int brightMinX = width;
+		int brightMaxX = -1;
+
+		for (int s = 0; s < height; s += stripHeight) {
+			readStrip(s);
+			darkCount += strip.countRows();
+			for (int r = 0; r < strip.height; r++) {
+				darkMinX = Math.min(darkMinX, strip.firstInRow(r, true));
+				darkMaxX = Math.max(darkMaxX, strip.lastInRow(r, true));
+				brightMinX = Math.min(brightMinX, strip.firstInRow(r, false));
+				brightMaxX = Math.max(brightMaxX, strip.lastInRow(r, false));
+			}
+		}
+		strip = null;
+
+		// invert if there are more dark then bright pixels
+		invert = darkCount > (long) width * height - darkCount;
+		startX = invert ? brightMinX : darkMinX;
+		rowWidth = Math.max(0, (invert ? brightMaxX : darkMaxX) - startX + 1);
+		rowWords = PackedBits.wordCount(rowWidth);
+	}
+
+	/**
+	 * Decode and binarize the strip starting at the given pixel-row
+	 */
+	private void readStrip(int startY) throws IOException {
+		int h = Math.min(stripHeight, height - startY);
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setSourceRegion(new Rectangle(0, startY, width, h));
+		BufferedImage image = reader.read(0, param);
+
+		strip = new PackedBits(width, h);
+		new ImageBinarizer(image, strip).binarizeRows(0, h);
+		stripY = startY;
+	}
+
+	private ContrastMatrix createRow() {
+		PackedBits bits = new PackedBits(rowWidth, rowHeight);
+		System.arraycopy(row, 0, bits.rows, 0, rowHeight * rowWords);
+		bits.buildCols();
+		rowHeight = 0;
+		return new ContrastMatrix(bits);
+	}
+}
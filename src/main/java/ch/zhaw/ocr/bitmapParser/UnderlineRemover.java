@@ -1,6 +1,5 @@
 package ch.zhaw.ocr.bitmapParser;
 
-import java.awt.image.BufferedImage;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -9,6 +8,8 @@ import java.util.List;
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
  */
 public class UnderlineRemover extends BitmapParserDecorator {
+	// functional character waiting for the next line that is kept
+	private ContrastMatrix functionalChar = null;
 
 	public UnderlineRemover(BitmapParser bp) {
 		super(bp);
@@ -16,10 +17,13 @@ public class UnderlineRemover extends BitmapParserDecorator {
 	}
 	
 	@Override
-	public List<ContrastMatrix> parse(BufferedImage image){
-		List<ContrastMatrix> matrices =  super.parse(image);
+	protected void reset(){
+		functionalChar = null;
+	}
+	
+	@Override
+	protected List<ContrastMatrix> process(List<ContrastMatrix> matrices){
 		List<ContrastMatrix> returnMatrices = new LinkedList<ContrastMatrix>();
-		ContrastMatrix functionalChar = null;
 		
 		for (ContrastMatrix m : matrices) {
 			if (m.getFunctionalChar() == null) {
@@ -41,61 +45,7 @@ public class UnderlineRemover extends BitmapParserDecorator {
 						functionalChar = null;
 					}
 
-					int start = -1;
-					int end = -1;
-					for (int y = 0; y < m.getHeight(); y++) {
-						if (m.isFullRow(y)) {
-							if (start >= 0) {
-								end = y;
-							} else {
-								start = y;
-							}
-						} 
-					}
-					
-					//In case a underline was found
-					if (start > 0 && end > 0) {
-						removeUnderline(m, 0, m.getWidth(), start, end);
-					}
-					
-					//Now we have to check if only single Signs are underlined
-					//therefore we check the row with the rowhight
-					int yStart = -1;
-					int yEnd = -1;
-					int height = m.getHeight();
-					for (int y = 0; y < m.getHeight(); y++) {
-						for (int x = 0; x < m.getWidth() - height; x++) {
-							
-							int xEnd = x + height;
-							
-							if (m.isFull(x, xEnd, y, y)) {
-								yStart = y;
-								yEnd = y;
-								//Check how long the underline is
-								boolean isStillUnderlined = true;
-								for (int xUnderline = xEnd; isStillUnderlined && xUnderline < m.getWidth(); xUnderline ++) {
-									if (m.getValue(xUnderline, y) != 1) {
-										isStillUnderlined = false;
-									} else {
-										xEnd = xUnderline;
-									}
-								}
-								//check how many y's is underline
-								boolean isUnderline = true;
-								for (int yUnderline = yStart + 1; isUnderline; yUnderline ++) {
-									if (yUnderline > m.getHeight()) {
-										break;
-									}
-									isUnderline = m.isFull(x, xEnd, yUnderline, yUnderline);
-									if (isUnderline) {
-										yEnd = yUnderline;
-									}
-								}
-								
-								removeUnderline(m, x, xEnd, yStart, yEnd);
-							}
-						}
-					}
+					removeUnderlines(m);
 					
 					//Check if the row only was an underline that is removed now
 					boolean isEmpty = true;
@@ -119,7 +69,69 @@ public class UnderlineRemover extends BitmapParserDecorator {
 		return returnMatrices;
 	}
 	
-	private void removeUnderline(ContrastMatrix m, int xStart, int xEnd, int yStart, int yEnd) {
+	/**
+	 * Remove the underlines of a trimmed text row: first the ones spanning
+	 * the whole row, then the ones below single signs. The search for single
+	 * underlined signs skips from an empty pixel to the next one instead of
+	 * checking every column of the row, so it costs a few steps per run of
+	 * ink (also on run-length encoded matrices).
+	 */
+	static void removeUnderlines(ContrastMatrix m) {
+		int start = -1;
+		int end = -1;
+		for (int y = 0; y < m.getHeight(); y++) {
+			if (m.isFullRow(y)) {
+				if (start >= 0) {
+					end = y;
+				} else {
+					start = y;
+				}
+			}
+		}
+		if (start > 0 && end > 0) {
+			removeUnderline(m, 0, m.getWidth(), start, end);
+		}
+
+		int height = m.getHeight();
+		for (int y = 0; y < m.getHeight(); y++) {
+			int x = 0;
+			while (x < m.getWidth() - height) {
+				// a full part starts with ink
+				x = m.nextInRow(y, x, true);
+				if (x >= m.getWidth() - height) {
+					break;
+				}
+				int xEnd = x + height;
+
+				// [x, xEnd] is not full for any start up to the empty pixel
+				int empty = m.nextInRow(y, x, false);
+				if (empty <= xEnd) {
+					x = empty + 1;
+					continue;
+				}
+
+				int yStart = y;
+				int yEnd = y;
+				// check how long the underline is
+				for (int xUnderline = xEnd; xUnderline < m.getWidth()
+						&& m.getValue(xUnderline, y) == 1; xUnderline++) {
+					xEnd = xUnderline;
+				}
+				// check how many y's is underline
+				for (int yUnderline = yStart + 1; yUnderline <= m.getHeight(); yUnderline++) {
+					if (!m.isFull(x, xEnd, yUnderline, yUnderline)) {
+						break;
+					}
+					yEnd = yUnderline;
+				}
+
+				removeUnderline(m, x, xEnd, yStart, yEnd);
+				x++;
+			}
+		}
+	}
+
+	static void removeUnderline(ContrastMatrix m, int xStart, int xEnd, int yStart, int yEnd) {
 		
 		for (int x = xStart; x <= xEnd; x++) {
 			
@@ -1,6 +1,5 @@
 package ch.zhaw.ocr.bitmapParser;
 
-import java.awt.image.BufferedImage;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -9,6 +8,11 @@ import java.util.List;
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
  */
 public class WordParser extends BitmapParserDecorator {
+	// space sizes found in all lines so far
+	private int minSpaceSize = 0;
+	private int maxSpaceSize = 0;
+
+	private int spaceCounter = 0;
 
 	public WordParser(BitmapParser bp) {
 		super(bp);
@@ -16,16 +20,16 @@ public class WordParser extends BitmapParserDecorator {
 	}
 
 	@Override
-	public List<ContrastMatrix> parse(BufferedImage image) {
-		List<ContrastMatrix> matrices = super.parse(image);
+	protected void reset() {
+		minSpaceSize = 0;
+		maxSpaceSize = 0;
+		spaceCounter = 0;
+	}
 
+	@Override
+	protected List<ContrastMatrix> process(List<ContrastMatrix> matrices) {
 		List<ContrastMatrix> rv = new LinkedList<ContrastMatrix>();
 
-		int minSpaceSize = 0;
-		int maxSpaceSize = 0;
-
-		int spaceCounter = 0;
-
 		int wordStart = -1;
 		int wordEndTmp = -1;
 
@@ -85,7 +89,7 @@ public class WordParser extends BitmapParserDecorator {
 							if ((maxSpaceSize - spaceCounter) < (spaceCounter - minSpaceSize)) {
 								rv.add(m.getSubMatrix(wordStart, 0,
 										wordEndTmp - wordStart, m.getHeight()));
-								rv.add(new ContrastMatrix(FunctionalCharacter.space));
+								rv.add(ContrastMatrix.getFunctionalMatrix(FunctionalCharacter.space));
 								//System.out.println((maxSpaceSize - spaceCounter)
 								//		+ " - " + (spaceCounter - minSpaceSize));
 								wordStart = x;
@@ -66,6 +66,22 @@ public class Dictionary {
 	 * @return corrected version of the word
 	 */
 	public String correctWord(String word) {
+		return correctWord(word, null, 0);
+	}
+
+	/**
+	 * Correct a word, replacing a character only by the ones the neural
+	 * network considered for its position (see Hypotheses) instead of by
+	 * every letter of the alphabet
+	 * @param word input word
+	 * @param candidates k characters per character of the word: the ones of character i are at i * k to i * k + k - 1, null to use the alphabet
+	 * @param k number of candidates per character
+	 * @return corrected version of the word
+	 */
+	public String correctWord(String word, char[] candidates, int k) {
+		if (candidates != null && candidates.length < word.length() * k) {
+			throw new IllegalArgumentException(k + " candidates per character needed");
+		}
 		String rv = null;
 
 		// cancel dictionary lookup if more then 2 chars are unknown
@@ -107,6 +123,8 @@ public class Dictionary {
 		// capital letter
 		boolean hasCapitalLetter = Character.isUpperCase(word.charAt(0));
 		word = word.toLowerCase();
+		char[][] replacements = getReplacements(word.length(),
+				firstSignChar != 0 ? 1 : 0, candidates, k);
 
 		/*
 		 * Step 2: Find word in dictionary / correct it if necessary
@@ -122,7 +140,7 @@ public class Dictionary {
 
 		// build a list of all words with replaced unkown char
 		// search these words
-		Set<String> unknownCharReplaced = replaceUnknownChar(word);
+		Set<String> unknownCharReplaced = replaceUnknownChar(word, replacements);
 		Set<String> unkownCharReplacedInDict = findDictionaryEntries(unknownCharReplaced);
 		rv = getBestWord(unkownCharReplacedInDict);
 		if (rv != null) {
@@ -132,7 +150,7 @@ public class Dictionary {
 
 		// build a list of all words with distance 1
 		// search these words
-		Set<String> distance1 = editDistance1(unknownCharReplaced);
+		Set<String> distance1 = editDistance1(unknownCharReplaced, replacements);
 		Set<String> distance1InDict = findDictionaryEntries(distance1);
 
 		rv = getBestWord(distance1InDict);
@@ -143,7 +161,7 @@ public class Dictionary {
 
 		// build a list of all words with distance 2
 		// search these words
-		Set<String> distance2 = editDistance2(distance1);
+		Set<String> distance2 = editDistance2(distance1, replacements);
 		Set<String> distance2InDict = findDictionaryEntries(distance2);
 
 		rv = getBestWord(distance2InDict);
@@ -190,16 +208,40 @@ public class Dictionary {
 		return input;
 	}
 
-	private Set<String> replaceUnknownChar(String word) {
+	/**
+	 * Get the characters which may replace each character of the
+	 * (pre-processed) word
+	 * @param length length of the word
+	 * @param start index of the first character of the word in the candidates
+	 * @param candidates see correctWord, null to use the alphabet everywhere
+	 * @param k number of candidates per character
+	 * @return lower case replacements per character
+	 */
+	private char[][] getReplacements(int length, int start, char[] candidates, int k) {
+		char[][] rv = new char[length][];
+		for (int i = 0; i < length; i++) {
+			if (candidates == null) {
+				rv[i] = alphabet;
+			} else {
+				rv[i] = new char[k];
+				for (int r = 0; r < k; r++) {
+					rv[i][r] = Character.toLowerCase(candidates[(start + i) * k + r]);
+				}
+			}
+		}
+		return rv;
+	}
+
+	private Set<String> replaceUnknownChar(String word, char[][] replacements) {
 		Set<String> rv = new HashSet<String>();
 
 		char[] wArray = word.toCharArray();
 
-		// replace each character of the word with each character of our given
-		// alphabet
+		// replace each unknown character of the word with each of its
+		// replacements
 		for (int i = 0; i < wArray.length; i++) {
 			if (wArray[i] == Properties.unknownChar) {
-				for (char c : alphabet) {
+				for (char c : replacements[i]) {
 					char[] copy = wArray.clone();
 					copy[i] = c;
 					rv.add(String.valueOf(copy));
@@ -214,16 +256,16 @@ public class Dictionary {
 		return rv;
 	}
 
-	private Set<String> editDistance1(Set<String> unknownCharReplaced) {
+	private Set<String> editDistance1(Set<String> unknownCharReplaced, char[][] replacements) {
 		Set<String> rv = new HashSet<String>();
 
 		for (String word : unknownCharReplaced) {
 			char[] wArray = word.toCharArray();
 
-			// replace each character of the word with each character of our
-			// given alphabet
+			// replace each character of the word with each of its
+			// replacements
 			for (int i = 0; i < wArray.length; i++) {
-				for (char c : alphabet) {
+				for (char c : replacements[i]) {
 					char[] copy = wArray.clone();
 					copy[i] = c;
 					rv.add(String.valueOf(copy));
@@ -238,10 +280,11 @@ public class Dictionary {
 	 * Builds a list of
 	 * 
 	 * @param distance1
+	 * @param replacements
 	 * @return
 	 */
-	private Set<String> editDistance2(Set<String> distance1) {
-		return editDistance1(distance1);
+	private Set<String> editDistance2(Set<String> distance1, char[][] replacements) {
+		return editDistance1(distance1, replacements);
 	}
 
 	/**
@@ -32,6 +32,7 @@ import ch.zhaw.ocr.gui.helper.ImageFileFilter;
 import ch.zhaw.ocr.gui.helper.SpringUtilities;
 import ch.zhaw.ocr.gui.helper.TextFileFilter;
 import ch.zhaw.ocr.gui.helper.TextFileHandler;
+import ch.zhaw.ocr.textRecognition.ConsoleListener;
 
 /**
  * InputTab. Offers a UI to parse an image and display the result. 
@@ -86,7 +87,7 @@ public class InputTab {
 						imagePath.setText(file.getPath());
 						gui.setConsoleText(new StringBuffer());
 						analysedText.setText(gui.getOcr().parseImage(file,
-								gui.getConsoleText()));
+								new ConsoleListener(gui.getConsoleText())));
 						gui.getKnnPanel().setConsoleText(gui.getConsoleText());
 
 						// save analysed image and text for historiy
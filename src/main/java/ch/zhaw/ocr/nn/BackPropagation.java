@@ -5,15 +5,19 @@ import hu.kazocsaba.math.matrix.MatrixFactory;
 
 import java.util.List;
 
+import ch.zhaw.ocr.Properties;
 import ch.zhaw.ocr.nn.helper.CostFunctionResult;
+import ch.zhaw.ocr.nn.helper.FloatKernel;
+import ch.zhaw.ocr.nn.helper.Kernels;
 import ch.zhaw.ocr.nn.helper.MatrixHelper;
 
 /**
  * Class Backpropagation contains as well the cost function of our neural network as a method to randomly initialise theta matrices
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
- *
+ * 
  */
 public class BackPropagation {
+	private static final FloatKernel kernel = Kernels.getFloatKernel();
 
 	/**
 	 * Randomly initialise a theta matrix
@@ -28,6 +32,31 @@ public class BackPropagation {
 		return MatrixHelper.addScalar(rv, -1 * epsilonInit);
 	}
 
+	/**
+	 * nnCostFunction computed with the given precision: float32 uses
+	 * nnCostFunctionFloat, all other precisions (int8 networks are quantized
+	 * after the training) use doubles.
+	 * @param mergedThetas a vector containing theta values
+	 * @param inputLayerSize size of the neural network input layer
+	 * @param hiddenLayerSize size of the neural network hidden layer
+	 * @param outputLayerSize size of the neural network output layer
+	 * @param trainingVectors List of input vectors. Must be aligned with expectedResults
+	 * @param expectedResults List of target output vectors. Must be aligned with trainingVectors 
+	 * @param precision precision of the trained network
+	 * @return CostFunction result containing the costs and a list of partial devirates of the theta matrices
+	 */
+	public CostFunctionResult nnCostFunction(Matrix mergedThetas, 
+			int inputLayerSize, int hiddenLayerSize, int outputLayerSize,
+			List<Matrix> trainingVectors, List<Integer> expectedResults,
+			Precision precision) {
+		if (precision == Precision.float32) {
+			return nnCostFunctionFloat(mergedThetas, inputLayerSize,
+					hiddenLayerSize, outputLayerSize, trainingVectors, expectedResults);
+		}
+		return nnCostFunction(mergedThetas, inputLayerSize, hiddenLayerSize,
+				outputLayerSize, trainingVectors, expectedResults);
+	}
+
 	/**
 	 * nnCostFunction. Used to traing a neural network using a BackPropagation algorithm
 	 * @param mergedThetas a vector containing theta values
@@ -63,11 +92,11 @@ public class BackPropagation {
 			a1 = MatrixHelper.add1ToVector(a1, "horizontal");
 
 			Matrix z2 = theta1.mul(a1.transpose());
-			Matrix a2 = MatrixHelper.sigmoid(z2);
+			Matrix a2 = MatrixHelper.sigmoid(z2, Properties.nnTrainingSigmoid);
 			a2 = MatrixHelper.add1ToVector(a2, "vertical");
 
 			Matrix z3 = theta2.mul(a2);
-			Matrix a3 = MatrixHelper.sigmoid(z3);
+			Matrix a3 = MatrixHelper.sigmoid(z3, Properties.nnTrainingSigmoid);
 
 			Matrix h = MatrixFactory.copy(a3);
 
@@ -115,5 +144,128 @@ public class BackPropagation {
 		
 		return new CostFunctionResult(J, mergedThetaGrad);		
 	}
-	
+
+	/**
+	 * nnCostFunction computed with floats on arrays instead of matrices:
+	 * thetas, layers, deltas and gradients are floats (half of the memory
+	 * traffic), only the costs are summed up as doubles. Same result as
+	 * nnCostFunction up to the rounding of floats. The loops over the layers
+	 * are computed by the FloatKernel of Kernels (Vector API if available).
+	 * @param mergedThetas a vector containing theta values
+	 * @param inputLayerSize size of the neural network input layer
+	 * @param hiddenLayerSize size of the neural network hidden layer
+	 * @param outputLayerSize size of the neural network output layer
+	 * @param trainingVectors List of input vectors. Must be aligned with expectedResults
+	 * @param expectedResults List of target output vectors. Must be aligned with trainingVectors 
+	 * @return CostFunction result containing the costs and a list of partial devirates of the theta matrices
+	 */
+	public CostFunctionResult nnCostFunctionFloat(Matrix mergedThetas,
+			int inputLayerSize, int hiddenLayerSize, int outputLayerSize,
+			List<Matrix> trainingVectors, List<Integer> expectedResults) {
+
+		if(trainingVectors.size() != expectedResults.size()){
+			throw new IllegalArgumentException("trainingVectors and expectedResults must have the same size!");
+		}
+
+		// row-major thetas with the bias in column 0; the merged vector is column-major
+		int cols1 = inputLayerSize + 1;
+		int cols2 = hiddenLayerSize + 1;
+		float[] theta1 = new float[hiddenLayerSize * cols1];
+		float[] theta2 = new float[outputLayerSize * cols2];
+		unmerge(mergedThetas, 0, hiddenLayerSize, cols1, theta1);
+		unmerge(mergedThetas, theta1.length, outputLayerSize, cols2, theta2);
+
+		float[] theta1Grad = new float[theta1.length];
+		float[] theta2Grad = new float[theta2.length];
+		float[] a1 = new float[cols1];
+		float[] a2 = new float[cols2];
+		float[] delta2 = new float[hiddenLayerSize];
+		float[] delta3 = new float[outputLayerSize];
+		a1[0] = 1;
+		a2[0] = 1;
+
+		double s = 0;
+
+		for (int i = 0; i < trainingVectors.size(); i++) {
+			Matrix x = trainingVectors.get(i);
+			for (int k = 1; k < cols1; k++) {
+				a1[k] = (float) x.get(0, k - 1);
+			}
+			forward(theta1, a1, hiddenLayerSize, a2, 1);
+
+			int expected = expectedResults.get(i);
+			for (int o = 0; o < outputLayerSize; o++) {
+				// the costs use the double output value: as a float it is 1 for z > 17
+				double h = Properties.nnTrainingSigmoid.apply(kernel.dot(theta2, o * cols2, a2, 0, cols2));
+				// (-yk * log(h)) - ((1 - yk) * log(1-h) ), only the term with yk or 1 - yk = 1
+				s -= (o == expected) ? Math.log(h) : Math.log(1 - h);
+				delta3[o] = (float) h - ((o == expected) ? 1 : 0);
+			}
+
+			// delta_2 = ((Theta2)' * delta_3) .* (a2 .* (ones(size(a2))-a2)), without the bias
+			for (int h = 0; h < hiddenLayerSize; h++) {
+				delta2[h] = 0;
+			}
+			for (int o = 0; o < outputLayerSize; o++) {
+				kernel.axpy(delta3[o], theta2, o * cols2 + 1, delta2, 0, hiddenLayerSize);
+			}
+			for (int h = 0; h < hiddenLayerSize; h++) {
+				delta2[h] *= a2[h + 1] * (1 - a2[h + 1]);
+			}
+
+			addOuterProduct(delta2, a1, theta1Grad);
+			addOuterProduct(delta3, a2, theta2Grad);
+		}
+
+		double J = s / trainingVectors.size();
+
+		float factor = (float) ((double)1/trainingVectors.size());
+		Matrix mergedThetaGrad = MatrixFactory.createMatrix(theta1Grad.length + theta2Grad.length, 1);
+		merge(theta1Grad, hiddenLayerSize, cols1, factor, mergedThetaGrad, 0);
+		merge(theta2Grad, outputLayerSize, cols2, factor, mergedThetaGrad, theta1Grad.length);
+
+		return new CostFunctionResult(J, mergedThetaGrad);
+	}
+
+	/**
+	 * dst[start + j] = sigmoid(theta(j, :) * a) for all rows j of theta
+	 */
+	private static void forward(float[] theta, float[] a, int rows, float[] dst, int start) {
+		int cols = a.length;
+		for (int j = 0; j < rows; j++) {
+			float z = kernel.dot(theta, j * cols, a, 0, cols);
+			dst[start + j] = (float) Properties.nnTrainingSigmoid.apply(z);
+		}
+	}
+
+	/**
+	 * grad += delta * a'
+	 */
+	private static void addOuterProduct(float[] delta, float[] a, float[] grad) {
+		for (int j = 0; j < delta.length; j++) {
+			kernel.axpy(delta[j], a, 0, grad, j * a.length, a.length);
+		}
+	}
+
+	/**
+	 * Read a column-major part of a merged theta vector into a row-major array
+	 */
+	private static void unmerge(Matrix merged, int start, int rows, int cols, float[] dst) {
+		for (int col = 0; col < cols; col++) {
+			for (int row = 0; row < rows; row++) {
+				dst[row * cols + col] = (float) merged.get(start + col * rows + row, 0);
+			}
+		}
+	}
+
+	/**
+	 * Write a row-major array times a factor column-major into a merged vector
+	 */
+	private static void merge(float[] src, int rows, int cols, float factor, Matrix merged, int start) {
+		for (int col = 0; col < cols; col++) {
+			for (int row = 0; row < rows; row++) {
+				merged.set(start + col * rows + row, 0, src[row * cols + col] * factor);
+			}
+		}
+	}
 }
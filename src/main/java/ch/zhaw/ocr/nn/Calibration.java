@@ -0,0 +1,193 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.Matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.bitmapParser.BitmapParser;
+import ch.zhaw.ocr.bitmapParser.CharacterParser;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+
+/**
+ * Calibration report of the precisions of a network. The characters of the
+ * training material (every image contains one character per output unit,
+ * see NeuralNetworkTraining) are recognized by the engine of every
+ * Precision; the report compares the results with float64 and shows the
+ * memory of the weights and the throughput of a batch containing all
+ * characters. reportCascade compares a Cascade with its full network the
+ * same way.
+ * 
+ * Run the main method to get the report of the production network.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class Calibration {
+	private static final int throughputRounds = 20;
+
+	private double[] inputs;
+	private List<Integer> expectedOutput = new ArrayList<Integer>();
+
+	/**
+	 * Read the characters of the images of a folder
+	 * @param resourceFolder folder containing the training material
+	 * @throws IOException
+	 */
+	public Calibration(File resourceFolder) throws IOException {
+		BitmapParser bmp = new CharacterParser(new SimpleBitmapParser());
+		List<ContrastMatrix> characters = new ArrayList<ContrastMatrix>();
+		for (File f : resourceFolder.listFiles()) {
+			if (f.getName().endsWith(".png") || f.getName().endsWith(".jpg")) {
+				int i = 0;
+				for (ContrastMatrix cm : bmp.parse(ImageIO.read(f))) {
+					characters.add(cm);
+					expectedOutput.add(i++);
+				}
+			}
+		}
+		inputs = new double[characters.size() * Properties.nnInputLayerSize];
+		for (int i = 0; i < characters.size(); i++) {
+			CharacterRepresentation.extract(characters.get(i), inputs, i * Properties.nnInputLayerSize);
+		}
+	}
+
+	/**
+	 * Get the number of characters
+	 * @return number of characters of the material
+	 */
+	public int getCharacterCount() {
+		return expectedOutput.size();
+	}
+
+	/**
+	 * Recognize all characters
+	 * @param engine
+	 * @return position of the most likely character of each
+	 */
+	public int[] detect(InferenceEngine engine) {
+		int[] positions = new int[getCharacterCount()];
+		engine.detect(inputs, 0, positions.length, positions, new double[positions.length], 0);
+		return positions;
+	}
+
+	/**
+	 * Recognize all characters
+	 * @param classifier
+	 * @return position of the most likely character of each
+	 */
+	public int[] detect(CharacterClassifier classifier) {
+		Hypotheses hypotheses = new Hypotheses(1);
+		classifier.detectCharacters(inputs, getCharacterCount(), hypotheses);
+		int[] positions = new int[getCharacterCount()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = hypotheses.getPosition(i, 0);
+		}
+		return positions;
+	}
+
+	/**
+	 * Count the correctly recognized characters
+	 * @param positions result of detect
+	 * @return number of correct characters
+	 */
+	public int countCorrect(int[] positions) {
+		int rv = 0;
+		for (int i = 0; i < positions.length; i++) {
+			if (positions[i] == expectedOutput.get(i)) {
+				rv++;
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Count the characters with the same result
+	 * @return number of equal positions
+	 */
+	public static int countSame(int[] positions1, int[] positions2) {
+		int rv = 0;
+		for (int i = 0; i < positions1.length; i++) {
+			if (positions1[i] == positions2[i]) {
+				rv++;
+			}
+		}
+		return rv;
+	}
+
+	/**
+	 * Compare the network in all precisions with float64
+	 * @param theta1
+	 * @param theta2
+	 * @return report
+	 */
+	public String report(Matrix theta1, Matrix theta2) {
+		int[] reference = detect(Precision.float64.createEngine(theta1, theta2));
+
+		StringBuilder rv = new StringBuilder();
+		rv.append(getCharacterCount() + " characters\n");
+		for (Precision precision : Precision.values()) {
+			InferenceEngine engine = precision.createEngine(theta1, theta2);
+			int[] positions = detect(engine);
+			rv.append(precision + ": top-1 agreement " + countSame(reference, positions)
+					+ " / " + getCharacterCount() + ", " + countCorrect(positions) + " correct, "
+					+ engine.getWeightBytes() + " bytes of weights, "
+					+ Math.round(getThroughput(engine, null)) + " characters/s\n");
+		}
+		return rv.toString();
+	}
+
+	/**
+	 * Compare a cascade with its full network
+	 * @param cascade
+	 * @return report
+	 */
+	public String reportCascade(Cascade cascade) {
+		int[] reference = detect(cascade.getFullNetwork());
+		cascade.resetStatistics();
+		int[] positions = detect(cascade);
+		double escalationRate = cascade.getEscalationRate();
+
+		StringBuilder rv = new StringBuilder();
+		rv.append(getCharacterCount() + " characters\n");
+		rv.append("full network: " + countCorrect(reference) + " correct, "
+				+ Math.round(getThroughput(null, cascade.getFullNetwork())) + " characters/s\n");
+		rv.append("cascade: top-1 agreement " + countSame(reference, positions)
+				+ " / " + getCharacterCount() + ", " + countCorrect(positions) + " correct, "
+				+ Math.round(100 * escalationRate) + "% escalated, "
+				+ Math.round(getThroughput(null, cascade)) + " characters/s\n");
+		return rv.toString();
+	}
+
+	/**
+	 * Measure how many characters per second are recognized in one batch by
+	 * the engine, or by the classifier if the engine is null
+	 */
+	private double getThroughput(InferenceEngine engine, CharacterClassifier classifier) {
+		long nanos = 0;
+		for (int round = 0; round < 2 * throughputRounds; round++) {
+			long t = System.nanoTime();
+			if (engine != null) {
+				detect(engine);
+			} else {
+				detect(classifier);
+			}
+			if (round >= throughputRounds) {
+				nanos += System.nanoTime() - t;
+			}
+		}
+		return throughputRounds * getCharacterCount() * 1e9 / nanos;
+	}
+
+	public static void main(String[] args) throws IOException {
+		NeuralNetwork nn = new NeuralNetwork("production", Precision.float64);
+		File folder = new File(args.length > 0 ? args[0] : Properties.nnResourcePath);
+		Calibration calibration = new Calibration(folder);
+		System.out.print(calibration.report(nn.getTheta1(), nn.getTheta2()));
+		System.out.print(calibration.reportCascade(new Cascade(nn)));
+	}
+}
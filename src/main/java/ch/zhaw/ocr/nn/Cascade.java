@@ -0,0 +1,203 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.zhaw.ocr.Properties;
+
+/**
+ * Two networks recognizing characters one after the other. A small network
+ * (Properties.nnCascadeHiddenLayerSize hidden units, trained like the full
+ * one) recognizes all characters first. A character is escalated to the full
+ * network if the output value of its most likely character is below
+ * minActivation or exceeds the second one by less than minMargin; all other
+ * characters keep the hypotheses of the small network.
+ * 
+ * The cascade counts the recognized and escalated characters (see
+ * getEscalationRate). Calibration.reportCascade compares it with the full
+ * network.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class Cascade implements CharacterClassifier {
+	// results of the small network and escalated vectors of the thread
+	private static final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+		@Override
+		protected Buffers initialValue() {
+			return new Buffers();
+		}
+	};
+
+	private final NeuralNetwork small;
+	private final NeuralNetwork full;
+	private final double minActivation;
+	private final double minMargin;
+	private final AtomicLong characterCount = new AtomicLong();
+	private final AtomicLong escalatedCount = new AtomicLong();
+
+	/**
+	 * Create a cascade in front of a network, using the small network saved
+	 * at Properties.nnCascadeSerializationPath (trained and saved if there is
+	 * none) and the thresholds of the Properties
+	 * @param full network recognizing the escalated characters
+	 * @throws IOException
+	 */
+	public Cascade(NeuralNetwork full) throws IOException {
+		this(loadSmallNetwork(full.getPrecision()), full,
+				Properties.nnCascadeMinActivation, Properties.nnCascadeMinMargin);
+	}
+
+	/**
+	 * Create a cascade of two networks
+	 * @param small network recognizing all characters
+	 * @param full network recognizing the escalated characters
+	 * @param minActivation characters with a lower output value are escalated
+	 * @param minMargin characters with a smaller difference between the two most likely output values are escalated
+	 */
+	public Cascade(NeuralNetwork small, NeuralNetwork full, double minActivation, double minMargin) {
+		this.small = small;
+		this.full = full;
+		this.minActivation = minActivation;
+		this.minMargin = minMargin;
+	}
+
+	/**
+	 * Load the small network, train it with
+	 * Properties.nnCascadeMaxIterationCount iterations if it was not saved
+	 */
+	private static NeuralNetwork loadSmallNetwork(Precision precision) throws IOException {
+		File f = new File(Properties.nnCascadeSerializationPath);
+		int hiddenLayerSize = Properties.nnCascadeHiddenLayerSize;
+		if (f.exists()) {
+			return new NeuralNetwork("production", precision, hiddenLayerSize, f);
+		}
+		NeuralNetwork rv = new NeuralNetwork(MatrixFactory.createMatrix(hiddenLayerSize, Properties.nnInputLayerSize + 1),
+				MatrixFactory.createMatrix(Properties.nnOutputLayerSize, hiddenLayerSize + 1), precision);
+		NeuralNetworkTraining nnt = new NeuralNetworkTraining(new File(Properties.nnResourcePath));
+		nnt.trainNetwork(rv, "random", Properties.nnCascadeMaxIterationCount);
+		rv.saveNeuronalNetwork(f);
+		return rv;
+	}
+
+	@Override
+	public void detectCharacters(double[] input, int count, Hypotheses hypotheses) {
+		int k = hypotheses.getK();
+		int inputSize = Properties.nnInputLayerSize;
+		Buffers b = buffers.get();
+		b.ensureCapacity(count, k);
+		small.detectCharacters(input, count, b.first);
+
+		hypotheses.ensureCapacity(count);
+		int escalated = 0;
+		for (int i = 0; i < count; i++) {
+			if (isDoubtful(b.first, i)) {
+				System.arraycopy(input, i * inputSize, b.input, escalated * inputSize, inputSize);
+				b.indices[escalated++] = i;
+			} else {
+				copy(b.first, i, hypotheses, i);
+			}
+		}
+		if (escalated > 0) {
+			full.detectCharacters(b.input, escalated, b.second);
+			for (int j = 0; j < escalated; j++) {
+				copy(b.second, j, hypotheses, b.indices[j]);
+			}
+		}
+		characterCount.addAndGet(count);
+		escalatedCount.addAndGet(escalated);
+	}
+
+	/**
+	 * Check whether the small network is not sure about a character
+	 */
+	private boolean isDoubtful(Hypotheses first, int index) {
+		double activation = first.getActivation(index, 0);
+		return activation < minActivation || activation - first.getActivation(index, 1) < minMargin;
+	}
+
+	/**
+	 * Copy the hypotheses of a vector, as many as dst has per vector
+	 */
+	private static void copy(Hypotheses src, int srcIndex, Hypotheses dst, int dstIndex) {
+		int k = dst.getK();
+		System.arraycopy(src.getPositions(), srcIndex * src.getK(), dst.getPositions(), dstIndex * k, k);
+		System.arraycopy(src.getActivations(), srcIndex * src.getK(), dst.getActivations(), dstIndex * k, k);
+	}
+
+	/**
+	 * Get the number of characters recognized since the last reset
+	 * @return number of characters
+	 */
+	public long getCharacterCount() {
+		return characterCount.get();
+	}
+
+	/**
+	 * Get the number of characters recognized by the full network since the
+	 * last reset
+	 * @return number of escalated characters
+	 */
+	public long getEscalatedCount() {
+		return escalatedCount.get();
+	}
+
+	/**
+	 * Get the part of the characters recognized by the full network since
+	 * the last reset
+	 * @return escalated characters / characters, 0 if there were none
+	 */
+	public double getEscalationRate() {
+		long characters = characterCount.get();
+		return characters == 0 ? 0 : (double) escalatedCount.get() / characters;
+	}
+
+	/**
+	 * Reset the counters of the characters
+	 */
+	public void resetStatistics() {
+		characterCount.set(0);
+		escalatedCount.set(0);
+	}
+
+	/**
+	 * Get the network recognizing all characters
+	 * @return small network
+	 */
+	public NeuralNetwork getSmallNetwork() {
+		return small;
+	}
+
+	/**
+	 * Get the network recognizing the escalated characters
+	 * @return full network
+	 */
+	public NeuralNetwork getFullNetwork() {
+		return full;
+	}
+
+	/**
+	 * Hypotheses of the small network (at least two per vector for the
+	 * margin) and input vectors and hypotheses of the escalated characters
+	 */
+	private static class Buffers {
+		private Hypotheses first = new Hypotheses(2);
+		private Hypotheses second = new Hypotheses(1);
+		private double[] input = new double[0];
+		private int[] indices = new int[0];
+
+		private void ensureCapacity(int count, int k) {
+			if (first.getK() != Math.max(2, k)) {
+				first = new Hypotheses(Math.max(2, k));
+			}
+			if (second.getK() != k) {
+				second = new Hypotheses(k);
+			}
+			if (indices.length < count) {
+				indices = new int[count];
+				input = new double[count * Properties.nnInputLayerSize];
+			}
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package ch.zhaw.ocr.nn;
+
+/**
+ * Interface CharacterClassifier. Finds the most likely characters of input
+ * vectors, implemented by NeuralNetwork and Cascade.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ * 
+ */
+public interface CharacterClassifier {
+
+	/**
+	 * Find the hypotheses.getK() most likely characters of many input
+	 * vectors
+	 * @param input packed input vectors: vector i starts at index i * Properties.nnInputLayerSize
+	 * @param count number of vectors
+	 * @param hypotheses output, made large enough for count vectors
+	 */
+	public void detectCharacters(double[] input, int count, Hypotheses hypotheses);
+}
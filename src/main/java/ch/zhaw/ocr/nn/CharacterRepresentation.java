@@ -5,54 +5,146 @@ import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
 
 /**
  * CharacterRepresentation. Used to create valid input vectors for our neural network
+ * 
+ * The character is split into 20 x 20 fields and the ink pixels of every
+ * field are counted. The first field is divided by the field size, all
+ * others are used as counts; the network in res/knn.ser has been trained
+ * with these values.
+ * 
+ * The static extract methods write the values into a buffer of the caller
+ * without creating any objects, e.g. into one scratch buffer per thread.
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
- *
+ * 
  */
 public class CharacterRepresentation {
+	private static final int fieldNo = (int) Math.sqrt(Properties.nnInputLayerSize);
+
+	// ink pixels per field of the character extracted last by the thread
+	private static final ThreadLocal<int[]> fieldSums = new ThreadLocal<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[fieldNo * fieldNo];
+		}
+	};
+
 	private ContrastMatrix characterM;
 	private double[][] comparisonVector = new double[1][Properties.nnInputLayerSize];
 
-	private int fieldNo = (int) Math.sqrt(Properties.nnInputLayerSize);
-
 	/*
 	 * comparisonVector: Split character matrix into 400 parts (20x20)
 	 */
-
-	
-	  	
 	public CharacterRepresentation(ContrastMatrix characterM) {
 		characterM.trim();
-		
-		int fh = (int) Math.round(((double) characterM.getHeight())
-				/ (double) fieldNo);
-		int fw = (int) Math.round(((double) characterM.getWidth())
-				/ (double) fieldNo);
-		
-		fh = (fh == 0) ? 1 : fh;
-		fw = (fw == 0) ? 1 : fw;
-		
-		int fieldSize = fh * fw;
+		this.characterM = characterM;
+		extract(characterM, comparisonVector[0], 0);
+	}
 
-		for (int y = 0; y < characterM.getHeight(); y++) {
-			for (int x = 0; x < characterM.getWidth(); x++) {
-				// correct "overflowing" pixels (will be in the
-				// "last part")
-				int yc = (y >= fh * fieldNo) ? fh * fieldNo - 1 : y;
-				int xc = (x >= fw * fieldNo) ? fw * fieldNo - 1 : x;
+	/**
+	 * Write the input vector of a character into a buffer. The matrix is not
+	 * changed; empty leading & tailing rows / cols are skipped like
+	 * ContrastMatrix.trim() does.
+	 * @param characterM character
+	 * @param dst buffer
+	 * @param offset index of the first of the Properties.nnInputLayerSize values
+	 */
+	public static void extract(ContrastMatrix characterM, double[] dst, int offset) {
+		int[] sums = fieldSums.get();
+		int fieldSize = countFields(characterM, sums);
+		dst[offset] = (double) sums[0] / fieldSize;
+		for (int i = 1; i < sums.length; i++) {
+			dst[offset + i] = sums[i];
+		}
+	}
 
-				int part = (int) Math.floor(yc / fh) * fieldNo
-						+ (int) Math.floor(xc / fw);
+	/**
+	 * Write the input vector of a character into a buffer (see
+	 * extract(ContrastMatrix, double[], int))
+	 * @param characterM character
+	 * @param dst buffer
+	 * @param offset index of the first of the Properties.nnInputLayerSize values
+	 */
+	public static void extract(ContrastMatrix characterM, float[] dst, int offset) {
+		int[] sums = fieldSums.get();
+		int fieldSize = countFields(characterM, sums);
+		dst[offset] = (float) ((double) sums[0] / fieldSize);
+		for (int i = 1; i < sums.length; i++) {
+			dst[offset + i] = sums[i];
+		}
+	}
 
-				comparisonVector[0][part] += characterM.getValue(x, y);
+	/**
+	 * Count the ink pixels of every field in one pass over the rows of the
+	 * character. "overflowing" pixels belong to the last field of a row /
+	 * column.
+	 * @return number of pixels of a field
+	 */
+	private static int countFields(ContrastMatrix m, int[] sums) {
+		// bounding box of the ink, the whole matrix if there is none
+		int left = m.getWidth();
+		int right = -1;
+		int top = -1;
+		int bottom = -1;
+		for (int y = 0; y < m.getHeight(); y++) {
+			for (int x = 0; x < m.getWidth(); x += 64) {
+				long bits = m.getRowBits(y, x);
+				if (bits != 0) {
+					left = Math.min(left, x + Long.numberOfTrailingZeros(bits));
+					right = Math.max(right, x + 63 - Long.numberOfLeadingZeros(bits));
+					if (top == -1) {
+						top = y;
+					}
+					bottom = y;
+				}
 			}
 		}
+		if (right == -1) {
+			left = 0;
+			right = m.getWidth() - 1;
+			top = 0;
+			bottom = m.getHeight() - 1;
+		}
+		int width = right - left + 1;
+		int height = bottom - top + 1;
+
+		int fh = (int) Math.round(((double) height) / (double) fieldNo);
+		int fw = (int) Math.round(((double) width) / (double) fieldNo);
 
-		for (int i = 0; i < comparisonVector.length; i++) {
-			comparisonVector[0][i] = comparisonVector[0][i] / fieldSize;
+		fh = (fh == 0) ? 1 : fh;
+		fw = (fw == 0) ? 1 : fw;
+
+		for (int i = 0; i < sums.length; i++) {
+			sums[i] = 0;
 		}
+		for (int y = 0; y < height; y++) {
+			int row = Math.min(y / fh, fieldNo - 1);
+			for (int col = 0; col < fieldNo; col++) {
+				int startX = col * fw;
+				if (startX >= width) {
+					break;
+				}
+				int endX = (col == fieldNo - 1) ? width : Math.min(startX + fw, width);
+				sums[row * fieldNo + col] += countRow(m, top + y, left + startX,
+						left + endX);
+			}
+		}
+		return fh * fw;
+	}
 
+	/**
+	 * Count the ink pixels of row y in the columns [fromX, toX)
+	 */
+	private static int countRow(ContrastMatrix m, int y, int fromX, int toX) {
+		int rv = 0;
+		for (int x = fromX; x < toX; x += 64) {
+			long bits = m.getRowBits(y, x);
+			if (toX - x < 64) {
+				bits &= (1L << (toX - x)) - 1;
+			}
+			rv += Long.bitCount(bits);
+		}
+		return rv;
 	}
-	
+
 	/**
 	 * Get contrast matrix
 	 * @return contrast matrix
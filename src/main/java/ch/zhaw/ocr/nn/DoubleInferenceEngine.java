@@ -0,0 +1,229 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.Matrix;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.nn.helper.Sigmoid;
+
+/**
+ * Forward pass of a trained neural network on double arrays. The thetas are
+ * copied into row-major arrays with the bias (first column) kept apart, the
+ * layers are computed in a scratch buffer of the thread: no objects are
+ * created per character.
+ * 
+ * Every sum is computed like Matrix.mul does it (bias first, then the inputs
+ * in ascending order), so with Sigmoid.exact the results are exactly the
+ * same as the ones of the Matrix based computation. Independent sums are interleaved instead:
+ * four characters (or four units of one character) are computed together,
+ * which reads every weight once for four characters.
+ * 
+ * The engine does not change after construction and can be used by many
+ * threads.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class DoubleInferenceEngine implements InferenceEngine {
+	// layers of the characters computed last by the thread
+	private static final ThreadLocal<double[]> layerBuffer = new ThreadLocal<double[]>() {
+		@Override
+		protected double[] initialValue() {
+			return new double[0];
+		}
+	};
+
+	private final int inputSize;
+	private final int hiddenSize;
+	private final int outputSize;
+	private final double[] bias1;
+	private final double[] weights1;
+	private final double[] bias2;
+	private final double[] weights2;
+	private final Sigmoid sigmoid;
+
+	/**
+	 * Create an engine with a copy of the thetas, using
+	 * Properties.nnInferenceSigmoid
+	 * @param theta1 hidden layer size x (input layer size + 1)
+	 * @param theta2 output layer size x (hidden layer size + 1)
+	 */
+	public DoubleInferenceEngine(Matrix theta1, Matrix theta2) {
+		this(theta1, theta2, Properties.nnInferenceSigmoid);
+	}
+
+	/**
+	 * Create an engine with a copy of the thetas
+	 * @param theta1 hidden layer size x (input layer size + 1)
+	 * @param theta2 output layer size x (hidden layer size + 1)
+	 * @param sigmoid activation of the hidden and output units
+	 */
+	public DoubleInferenceEngine(Matrix theta1, Matrix theta2, Sigmoid sigmoid) {
+		this.sigmoid = sigmoid;
+		inputSize = theta1.getColumnCount() - 1;
+		hiddenSize = theta1.getRowCount();
+		outputSize = theta2.getRowCount();
+		if (theta2.getColumnCount() != hiddenSize + 1) {
+			throw new IllegalArgumentException("theta2 must have " + (hiddenSize + 1) + " columns");
+		}
+		bias1 = new double[hiddenSize];
+		weights1 = new double[hiddenSize * inputSize];
+		bias2 = new double[outputSize];
+		weights2 = new double[outputSize * hiddenSize];
+		split(theta1, bias1, weights1);
+		split(theta2, bias2, weights2);
+	}
+
+	private static void split(Matrix theta, double[] bias, double[] weights) {
+		int inputs = theta.getColumnCount() - 1;
+		for (int j = 0; j < theta.getRowCount(); j++) {
+			bias[j] = theta.get(j, 0);
+			for (int k = 0; k < inputs; k++) {
+				weights[j * inputs + k] = theta.get(j, k + 1);
+			}
+		}
+	}
+
+	@Override
+	public void detect(double[] input, int offset, int count, int[] positions,
+			double[] emphasis, int resultOffset) {
+		detect(input, offset, count, 1, positions, emphasis, resultOffset);
+	}
+
+	@Override
+	public void detect(double[] input, int offset, int count, int k,
+			int[] positions, double[] activations, int resultOffset) {
+		int block = Math.min(count, 4);
+		double[] layers = layerBuffer.get();
+		if (layers.length < block * (hiddenSize + outputSize)) {
+			layers = new double[block * (hiddenSize + outputSize)];
+			layerBuffer.set(layers);
+		}
+		int out = block * hiddenSize;
+
+		int i = 0;
+		for (; i + 4 <= count; i += 4) {
+			layer4(input, offset + i * inputSize, inputSize, weights1, bias1, hiddenSize, layers, 0);
+			layer4(layers, 0, hiddenSize, weights2, bias2, outputSize, layers, out);
+			for (int r = 0; r < 4; r++) {
+				findLargest(layers, out + r * outputSize, k, positions, activations, (resultOffset + i + r) * k);
+			}
+		}
+		for (; i < count; i++) {
+			layer1(input, offset + i * inputSize, inputSize, weights1, bias1, hiddenSize, layers, 0);
+			layer1(layers, 0, hiddenSize, weights2, bias2, outputSize, layers, out);
+			findLargest(layers, out, k, positions, activations, (resultOffset + i) * k);
+		}
+	}
+
+	/**
+	 * dst = sigmoid(bias + weights * src) for four vectors at once
+	 */
+	private void layer4(double[] src, int srcStart, int inputs,
+			double[] weights, double[] bias, int units, double[] dst,
+			int dstStart) {
+		int s1 = srcStart + inputs;
+		int s2 = s1 + inputs;
+		int s3 = s2 + inputs;
+		for (int j = 0; j < units; j++) {
+			int w = j * inputs;
+			double z0 = bias[j];
+			double z1 = z0;
+			double z2 = z0;
+			double z3 = z0;
+			for (int k = 0; k < inputs; k++) {
+				double weight = weights[w + k];
+				z0 += weight * src[srcStart + k];
+				z1 += weight * src[s1 + k];
+				z2 += weight * src[s2 + k];
+				z3 += weight * src[s3 + k];
+			}
+			dst[dstStart + j] = sigmoid.apply(z0);
+			dst[dstStart + units + j] = sigmoid.apply(z1);
+			dst[dstStart + 2 * units + j] = sigmoid.apply(z2);
+			dst[dstStart + 3 * units + j] = sigmoid.apply(z3);
+		}
+	}
+
+	/**
+	 * dst = sigmoid(bias + weights * src) for one vector, four units at once
+	 */
+	private void layer1(double[] src, int srcStart, int inputs,
+			double[] weights, double[] bias, int units, double[] dst,
+			int dstStart) {
+		int j = 0;
+		for (; j + 4 <= units; j += 4) {
+			int w0 = j * inputs;
+			int w1 = w0 + inputs;
+			int w2 = w1 + inputs;
+			int w3 = w2 + inputs;
+			double z0 = bias[j];
+			double z1 = bias[j + 1];
+			double z2 = bias[j + 2];
+			double z3 = bias[j + 3];
+			for (int k = 0; k < inputs; k++) {
+				double v = src[srcStart + k];
+				z0 += weights[w0 + k] * v;
+				z1 += weights[w1 + k] * v;
+				z2 += weights[w2 + k] * v;
+				z3 += weights[w3 + k] * v;
+			}
+			dst[dstStart + j] = sigmoid.apply(z0);
+			dst[dstStart + j + 1] = sigmoid.apply(z1);
+			dst[dstStart + j + 2] = sigmoid.apply(z2);
+			dst[dstStart + j + 3] = sigmoid.apply(z3);
+		}
+		for (; j < units; j++) {
+			int w = j * inputs;
+			double z = bias[j];
+			for (int k = 0; k < inputs; k++) {
+				z += weights[w + k] * src[srcStart + k];
+			}
+			dst[dstStart + j] = sigmoid.apply(z);
+		}
+	}
+
+	/**
+	 * Find the k largest output values of a vector, in descending order
+	 */
+	private void findLargest(double[] layers, int start, int k, int[] positions,
+			double[] activations, int first) {
+		int last = first + k - 1;
+		for (int r = first; r <= last; r++) {
+			positions[r] = -1;
+			activations[r] = -1;
+		}
+		for (int j = 0; j < outputSize; j++) {
+			double a = layers[start + j];
+			if (a > activations[last]) {
+				int r = last;
+				for (; r > first && a > activations[r - 1]; r--) {
+					positions[r] = positions[r - 1];
+					activations[r] = activations[r - 1];
+				}
+				positions[r] = j;
+				activations[r] = a;
+			}
+		}
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	/**
+	 * Get the activation of the units
+	 * @return sigmoid mode
+	 */
+	public Sigmoid getSigmoid() {
+		return sigmoid;
+	}
+
+	@Override
+	public int getOutputSize() {
+		return outputSize;
+	}
+
+	@Override
+	public long getWeightBytes() {
+		return 8L * (bias1.length + weights1.length + bias2.length + weights2.length);
+	}
+}
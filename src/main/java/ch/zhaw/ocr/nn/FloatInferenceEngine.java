@@ -0,0 +1,204 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.Matrix;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.nn.helper.FloatKernel;
+import ch.zhaw.ocr.nn.helper.Kernels;
+import ch.zhaw.ocr.nn.helper.Sigmoid;
+
+/**
+ * Forward pass of a trained neural network on float arrays: same
+ * computation as DoubleInferenceEngine with half of the memory for the
+ * weights and the layers. Inputs are rounded to float when they are read,
+ * sums and activations are floats. The sums are computed by the FloatKernel
+ * of Kernels (Vector API if available).
+ * 
+ * The engine does not change after construction and can be used by many
+ * threads.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class FloatInferenceEngine implements InferenceEngine {
+	// layers of the characters computed last by the thread
+	private static final ThreadLocal<float[]> layerBuffer = new ThreadLocal<float[]>() {
+		@Override
+		protected float[] initialValue() {
+			return new float[0];
+		}
+	};
+
+	private final int inputSize;
+	private final int hiddenSize;
+	private final int outputSize;
+	private final float[] bias1;
+	private final float[] weights1;
+	private final float[] bias2;
+	private final float[] weights2;
+	private final Sigmoid sigmoid;
+	private final FloatKernel kernel = Kernels.getFloatKernel();
+
+	/**
+	 * Create an engine with a copy of the thetas, using
+	 * Properties.nnInferenceSigmoid
+	 * @param theta1 hidden layer size x (input layer size + 1)
+	 * @param theta2 output layer size x (hidden layer size + 1)
+	 */
+	public FloatInferenceEngine(Matrix theta1, Matrix theta2) {
+		this(theta1, theta2, Properties.nnInferenceSigmoid);
+	}
+
+	/**
+	 * Create an engine with a copy of the thetas
+	 * @param theta1 hidden layer size x (input layer size + 1)
+	 * @param theta2 output layer size x (hidden layer size + 1)
+	 * @param sigmoid activation of the hidden and output units
+	 */
+	public FloatInferenceEngine(Matrix theta1, Matrix theta2, Sigmoid sigmoid) {
+		this.sigmoid = sigmoid;
+		inputSize = theta1.getColumnCount() - 1;
+		hiddenSize = theta1.getRowCount();
+		outputSize = theta2.getRowCount();
+		if (theta2.getColumnCount() != hiddenSize + 1) {
+			throw new IllegalArgumentException("theta2 must have " + (hiddenSize + 1) + " columns");
+		}
+		bias1 = new float[hiddenSize];
+		weights1 = new float[hiddenSize * inputSize];
+		bias2 = new float[outputSize];
+		weights2 = new float[outputSize * hiddenSize];
+		split(theta1, bias1, weights1);
+		split(theta2, bias2, weights2);
+	}
+
+	private static void split(Matrix theta, float[] bias, float[] weights) {
+		int inputs = theta.getColumnCount() - 1;
+		for (int j = 0; j < theta.getRowCount(); j++) {
+			bias[j] = (float) theta.get(j, 0);
+			for (int k = 0; k < inputs; k++) {
+				weights[j * inputs + k] = (float) theta.get(j, k + 1);
+			}
+		}
+	}
+
+	@Override
+	public void detect(double[] input, int offset, int count, int[] positions,
+			double[] emphasis, int resultOffset) {
+		detect(input, offset, count, 1, positions, emphasis, resultOffset);
+	}
+
+	@Override
+	public void detect(double[] input, int offset, int count, int k,
+			int[] positions, double[] activations, int resultOffset) {
+		int block = Math.min(count, 4);
+		float[] layers = layerBuffer.get();
+		if (layers.length < block * (inputSize + hiddenSize + outputSize) + 4) {
+			layers = new float[block * (inputSize + hiddenSize + outputSize) + 4];
+			layerBuffer.set(layers);
+		}
+		// input, hidden and output layer of a block, sums of four units
+		int hidden = block * inputSize;
+		int out = hidden + block * hiddenSize;
+		int sums = out + block * outputSize;
+
+		int i = 0;
+		for (; i + 4 <= count; i += 4) {
+			toFloat(input, offset + i * inputSize, 4 * inputSize, layers);
+			layer4(layers, 0, inputSize, weights1, bias1, hiddenSize, layers, hidden, sums);
+			layer4(layers, hidden, hiddenSize, weights2, bias2, outputSize, layers, out, sums);
+			for (int r = 0; r < 4; r++) {
+				findLargest(layers, out + r * outputSize, k, positions, activations, (resultOffset + i + r) * k);
+			}
+		}
+		for (; i < count; i++) {
+			toFloat(input, offset + i * inputSize, inputSize, layers);
+			layer1(layers, 0, inputSize, weights1, bias1, hiddenSize, layers, hidden, sums);
+			layer1(layers, hidden, hiddenSize, weights2, bias2, outputSize, layers, out, sums);
+			findLargest(layers, out, k, positions, activations, (resultOffset + i) * k);
+		}
+	}
+
+	private static void toFloat(double[] src, int srcStart, int length, float[] dst) {
+		for (int k = 0; k < length; k++) {
+			dst[k] = (float) src[srcStart + k];
+		}
+	}
+
+	/**
+	 * dst = sigmoid(bias + weights * src) for four vectors at once
+	 */
+	private void layer4(float[] src, int srcStart, int inputs,
+			float[] weights, float[] bias, int units, float[] dst,
+			int dstStart, int sums) {
+		for (int j = 0; j < units; j++) {
+			kernel.dot4(weights, j * inputs, src, srcStart, inputs, inputs, dst, sums);
+			for (int r = 0; r < 4; r++) {
+				dst[dstStart + r * units + j] = (float) sigmoid.apply(bias[j] + dst[sums + r]);
+			}
+		}
+	}
+
+	/**
+	 * dst = sigmoid(bias + weights * src) for one vector, four units at once
+	 */
+	private void layer1(float[] src, int srcStart, int inputs,
+			float[] weights, float[] bias, int units, float[] dst,
+			int dstStart, int sums) {
+		int j = 0;
+		for (; j + 4 <= units; j += 4) {
+			kernel.dot4(src, srcStart, weights, j * inputs, inputs, inputs, dst, sums);
+			for (int r = 0; r < 4; r++) {
+				dst[dstStart + j + r] = (float) sigmoid.apply(bias[j + r] + dst[sums + r]);
+			}
+		}
+		for (; j < units; j++) {
+			float z = kernel.dot(weights, j * inputs, src, srcStart, inputs);
+			dst[dstStart + j] = (float) sigmoid.apply(bias[j] + z);
+		}
+	}
+
+	/**
+	 * Find the k largest output values of a vector, in descending order
+	 */
+	private void findLargest(float[] layers, int start, int k, int[] positions,
+			double[] activations, int first) {
+		int last = first + k - 1;
+		for (int r = first; r <= last; r++) {
+			positions[r] = -1;
+			activations[r] = -1;
+		}
+		for (int j = 0; j < outputSize; j++) {
+			double a = layers[start + j];
+			if (a > activations[last]) {
+				int r = last;
+				for (; r > first && a > activations[r - 1]; r--) {
+					positions[r] = positions[r - 1];
+					activations[r] = activations[r - 1];
+				}
+				positions[r] = j;
+				activations[r] = a;
+			}
+		}
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	/**
+	 * Get the activation of the units
+	 * @return sigmoid mode
+	 */
+	public Sigmoid getSigmoid() {
+		return sigmoid;
+	}
+
+	@Override
+	public int getOutputSize() {
+		return outputSize;
+	}
+
+	@Override
+	public long getWeightBytes() {
+		return 4L * (bias1.length + weights1.length + bias2.length + weights2.length);
+	}
+}
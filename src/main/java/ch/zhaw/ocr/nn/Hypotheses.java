@@ -0,0 +1,86 @@
+package ch.zhaw.ocr.nn;
+
+import ch.zhaw.ocr.Properties;
+
+/**
+ * The k most likely characters of some input vectors together with their
+ * output values, filled by NeuralNetwork.detectCharacters. The hypotheses of
+ * vector i are stored at the indices i * k to i * k + k - 1 of two arrays,
+ * the most likely one first, so no objects are created per character.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class Hypotheses {
+	private final int k;
+	private int[] positions = new int[0];
+	private double[] activations = new double[0];
+
+	/**
+	 * Create an empty result
+	 * @param k number of hypotheses per vector, at most Properties.nnOutputLayerSize
+	 */
+	public Hypotheses(int k) {
+		if (k < 1 || k > Properties.nnOutputLayerSize) {
+			throw new IllegalArgumentException("k must be between 1 and " + Properties.nnOutputLayerSize);
+		}
+		this.k = k;
+	}
+
+	/**
+	 * Make room for the hypotheses of count vectors. The content is lost
+	 * when the arrays grow.
+	 * @param count number of vectors
+	 */
+	public void ensureCapacity(int count) {
+		if (positions.length < count * k) {
+			int capacity = Math.max(count, 2 * positions.length / k);
+			positions = new int[capacity * k];
+			activations = new double[capacity * k];
+		}
+	}
+
+	/**
+	 * Get the number of hypotheses per vector
+	 * @return k
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Get the position of a hypothesis
+	 * @param index index of the vector
+	 * @param rank 0 for the most likely character
+	 * @return position of the character (see Properties.nnOutputLayer)
+	 */
+	public int getPosition(int index, int rank) {
+		return positions[index * k + rank];
+	}
+
+	/**
+	 * Get the output value of a hypothesis
+	 * @param index index of the vector
+	 * @param rank 0 for the most likely character
+	 * @return output value of the character
+	 */
+	public double getActivation(int index, int rank) {
+		return activations[index * k + rank];
+	}
+
+	/**
+	 * Get the character of a hypothesis
+	 * @param index index of the vector
+	 * @param rank 0 for the most likely character
+	 * @return character
+	 */
+	public char getCharacter(int index, int rank) {
+		return Properties.nnOutputLayer.get(getPosition(index, rank));
+	}
+
+	int[] getPositions() {
+		return positions;
+	}
+
+	double[] getActivations() {
+		return activations;
+	}
+}
@@ -0,0 +1,57 @@
+package ch.zhaw.ocr.nn;
+
+/**
+ * Interface InferenceEngine. Computes the forward pass of a trained neural
+ * network without creating objects per character. Implementations do not
+ * change after construction and can be used by many threads.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ * 
+ */
+public interface InferenceEngine {
+
+	/**
+	 * Compute the output layer of some input vectors and find the most
+	 * likely character of each
+	 * @param input packed input vectors: vector i starts at index offset + i * getInputSize()
+	 * @param offset index of the first vector
+	 * @param count number of vectors
+	 * @param positions output: index of the largest output value of every vector
+	 * @param emphasis output: largest output value of every vector (0 if all are 0)
+	 * @param resultOffset index of the result of the first vector
+	 */
+	public void detect(double[] input, int offset, int count, int[] positions,
+			double[] emphasis, int resultOffset);
+
+	/**
+	 * Compute the output layer of some input vectors and find the k most
+	 * likely characters of each. With k = 1 the results are the same as the
+	 * ones of detect(double[], int, int, int[], double[], int).
+	 * @param input packed input vectors: vector i starts at index offset + i * getInputSize()
+	 * @param offset index of the first vector
+	 * @param count number of vectors
+	 * @param k number of results per vector, at most getOutputSize()
+	 * @param positions output: indices of the k largest output values of vector i, in descending order of the values, at (resultOffset + i) * k
+	 * @param activations output: the k largest output values of vector i at (resultOffset + i) * k
+	 * @param resultOffset index of the result of the first vector
+	 */
+	public void detect(double[] input, int offset, int count, int k,
+			int[] positions, double[] activations, int resultOffset);
+
+	/**
+	 * Get the size of an input vector
+	 * @return input layer size
+	 */
+	public int getInputSize();
+
+	/**
+	 * Get the number of output values
+	 * @return output layer size
+	 */
+	public int getOutputSize();
+
+	/**
+	 * Get the memory used by the weights and biases
+	 * @return size in bytes
+	 */
+	public long getWeightBytes();
+}
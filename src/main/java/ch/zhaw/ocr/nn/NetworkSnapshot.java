@@ -0,0 +1,64 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.immutable.ImmutableMatrixFactory;
+
+/**
+ * Immutable state of a trained neural network: both thetas and the
+ * InferenceEngine computed from them. The thetas are copied into immutable
+ * matrices, so a snapshot never changes after construction and can be used
+ * by many threads. A NeuralNetwork replaces its snapshot as a whole (see
+ * NeuralNetwork.setSnapshot), so theta1 and theta2 always belong together.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public final class NetworkSnapshot {
+	private final Matrix theta1;
+	private final Matrix theta2;
+	private final Precision precision;
+	private final InferenceEngine engine;
+
+	/**
+	 * Create a snapshot of the thetas
+	 * @param theta1 hidden layer size x (input layer size + 1)
+	 * @param theta2 output layer size x (hidden layer size + 1)
+	 * @param precision computation of the characters (see Precision)
+	 */
+	public NetworkSnapshot(Matrix theta1, Matrix theta2, Precision precision) {
+		this.theta1 = ImmutableMatrixFactory.copy(theta1);
+		this.theta2 = ImmutableMatrixFactory.copy(theta2);
+		this.precision = precision;
+		this.engine = precision.createEngine(this.theta1, this.theta2);
+	}
+
+	/**
+	 * Get theta matrix 1
+	 * @return theta 1, cannot be changed
+	 */
+	public Matrix getTheta1() {
+		return theta1;
+	}
+
+	/**
+	 * Get theta matrix 2
+	 * @return theta 2, cannot be changed
+	 */
+	public Matrix getTheta2() {
+		return theta2;
+	}
+
+	/**
+	 * Get the computation of the characters
+	 * @return precision
+	 */
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Get the engine computing the forward pass on the thetas
+	 * @return inference engine
+	 */
+	public InferenceEngine getEngine() {
+		return engine;
+	}
+}
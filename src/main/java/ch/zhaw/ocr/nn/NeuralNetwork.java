@@ -1,37 +1,106 @@
 package ch.zhaw.ocr.nn;
 
 import hu.kazocsaba.math.matrix.Matrix;
-import hu.kazocsaba.math.matrix.MatrixFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 import ch.zhaw.ocr.Properties;
 import ch.zhaw.ocr.nn.helper.MatrixHelper;
+import ch.zhaw.ocr.textRecognition.RecognitionListener;
 
 /**
  * Class representing the used NeuralNetwork. Consists of two theta matrices.
+ * 
+ * The characters are detected by an InferenceEngine holding a copy of the
+ * thetas as arrays, with doubles, floats or quantized to 8 bits (see
+ * Precision). detectCharacters recognizes many characters at once: the
+ * input vectors of a batch are computed together, which reads the weights
+ * once per four characters. The results are exactly the same as the ones of
+ * detectCharacter. detectCharacters can also keep the k most likely
+ * characters of every vector (see Hypotheses).
+ * 
+ * The thetas and the engine are kept in an immutable NetworkSnapshot which
+ * is replaced as a whole when the thetas change (training, loading). Every
+ * detect call reads the snapshot once: recognitions running meanwhile are
+ * not blocked and always use thetas that belong together.
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
  */
-public class NeuralNetwork {
-	private Matrix theta1;
-	private Matrix theta2;
+public class NeuralNetwork implements CharacterClassifier {
+	// comment of a saved network recording its precision
+	private static final String precisionComment = "precision=";
+
+	// pool shared by all networks using the default configuration
+	private static ForkJoinPool defaultPool = null;
+
+	// input and result of the character detected last by the thread
+	private static final ThreadLocal<Results> resultBuffer = new ThreadLocal<Results>() {
+		@Override
+		protected Results initialValue() {
+			return new Results();
+		}
+	};
+
+	// thetas and engine, null until the network is trained or loaded
+	private final AtomicReference<NetworkSnapshot> snapshot = new AtomicReference<NetworkSnapshot>();
+	// precision of the next snapshots and of the training
+	private volatile Precision precision = Precision.float64;
+	// number of hidden units of all snapshots
+	private final int hiddenLayerSize;
 
 	
 	public NeuralNetwork(Matrix theta1, Matrix theta2) {
-		super();
-		this.theta1 = theta1;
-		this.theta2 = theta2;
+		this(theta1, theta2, Precision.float64);
+	}
+	
+	/**
+	 * Create a neural network with the given thetas
+	 * @param theta1
+	 * @param theta2
+	 * @param precision computation of the characters (see Precision)
+	 */
+	public NeuralNetwork(Matrix theta1, Matrix theta2, Precision precision) {
+		this.precision = precision;
+		this.hiddenLayerSize = theta1.getRowCount();
+		setThetas(theta1, theta2);
 	}
 	
 	/**
 	 * Create a neural network. The "mode" defines the build method to be used.
+	 * The characters are computed with Properties.nnPrecision.
 	 * @param mode valid values: "production" - loads the knn from a configured file if possible, "rebuild" - rebuilds the knn
 	 * @throws IOException 
 	 */
 	public NeuralNetwork(String mode) throws IOException{
+		this(mode, Properties.nnPrecision);
+	}
+	
+	/**
+	 * Create a neural network. The "mode" defines the build method to be used.
+	 * @param mode valid values: "production" - loads the knn from a configured file if possible, "rebuild" - rebuilds the knn
+	 * @param precision computation of the characters and training (see Precision), replaced by the one recorded in a loaded file
+	 * @throws IOException 
+	 */
+	public NeuralNetwork(String mode, Precision precision) throws IOException{
+		this(mode, precision, Properties.nnHiddenLayerSize, new File(Properties.nnSerializationPath));
+	}
+
+	/**
+	 * Create a neural network with another hidden layer size or file than the
+	 * production network, e.g. the first network of a Cascade
+	 * @param mode valid values: "production" - loads the knn from the given file if possible, "rebuild" - rebuilds the knn
+	 * @param precision computation of the characters and training (see Precision), replaced by the one recorded in a loaded file
+	 * @param hiddenLayerSize number of hidden units
+	 * @param f saved network with hiddenLayerSize hidden units
+	 * @throws IOException 
+	 */
+	public NeuralNetwork(String mode, Precision precision, int hiddenLayerSize, File f) throws IOException{
+		this.precision = precision;
+		this.hiddenLayerSize = hiddenLayerSize;
 		if(mode.equals("production")){
-			File f = new File(Properties.nnSerializationPath);
 			if(f.exists()){
 				loadNeuronalNetwork(f);
 			}else{
@@ -46,59 +115,204 @@ public class NeuralNetwork {
 	/**
 	 * Use the trained neural network to align an input vector with a character
 	 * @param input
+	 * @param listener is told about the result
 	 * @return character
 	 */
-	public char detectCharacter(Matrix input, StringBuffer consoleText) {
-		double bigest = 0;
-		int bigestPos = 0;
-		
-		Matrix a1 = MatrixFactory.copy(input);
-		a1 = MatrixHelper.add1ToVector(a1, "horizontal");
-
-		Matrix z2 = theta1.mul(a1.transpose());
-		Matrix a2 = MatrixHelper.sigmoid(z2);
-		a2 = MatrixHelper.add1ToVector(a2, "vertical");
-
-		Matrix z3 = theta2.mul(a2);
-		Matrix a3 = MatrixHelper.sigmoid(z3);
-		
-		//find the "correct" result
-		for(int i = 0; i < a3.getRowCount();i++){
-			if(a3.get(i, 0) > bigest){
-				bigest = a3.get(i, 0);
-				bigestPos = i;
+	public char detectCharacter(Matrix input, RecognitionListener listener) {
+		Results results = resultBuffer.get();
+		for (int i = 0; i < input.getColumnCount(); i++) {
+			results.input[i] = input.get(0, i);
+		}
+		return detectCharacter(results.input, 0, listener);
+	}
+	
+	/**
+	 * Use the trained neural network to align an input vector with a
+	 * character. Same result as detectCharacter(Matrix, RecognitionListener),
+	 * but the input is read from a buffer (see CharacterRepresentation.extract).
+	 * @param input buffer containing the input vector
+	 * @param offset index of the first of the Properties.nnInputLayerSize values
+	 * @param listener is told about the result
+	 * @return character
+	 */
+	public char detectCharacter(double[] input, int offset, RecognitionListener listener) {
+		Results results = resultBuffer.get();
+		getEngine().detect(input, offset, 1, results.positions, results.emphasis, 0);
+		return getCharacter(results.positions[0], results.emphasis[0], listener);
+	}
+
+	/**
+	 * Use the trained neural network to align many input vectors with
+	 * characters. The vectors are computed in batches of
+	 * Properties.nnBatchSize using Properties.nnThreads threads. The results
+	 * are the same as the ones of detectCharacter.
+	 * @param input packed input vectors: vector i starts at index i * Properties.nnInputLayerSize
+	 * @param count number of vectors
+	 * @param positions output: position of the most likely character of every vector (see Properties.nnOutputLayer)
+	 * @param emphasis output: output value of this character for every vector
+	 */
+	public void detectCharacters(double[] input, int count, int[] positions, double[] emphasis) {
+		detectCharacters(input, count, positions, emphasis, Properties.nnBatchSize, getDefaultPool());
+	}
+
+	/**
+	 * Use the trained neural network to align many input vectors with
+	 * characters (see detectCharacters(double[], int, int[], double[]))
+	 * @param input packed input vectors: vector i starts at index i * Properties.nnInputLayerSize
+	 * @param count number of vectors
+	 * @param positions output: position of the most likely character of every vector
+	 * @param emphasis output: output value of this character for every vector
+	 * @param batchSize number of vectors computed together
+	 * @param pool pool computing the batches, null to compute them in the current thread
+	 */
+	public void detectCharacters(double[] input, int count, int[] positions,
+			double[] emphasis, int batchSize, ForkJoinPool pool) {
+		detectCharacters(input, count, 1, positions, emphasis, batchSize, pool);
+	}
+
+	/**
+	 * Use the trained neural network to find the hypotheses.getK() most
+	 * likely characters of many input vectors, computed like
+	 * detectCharacters(double[], int, int[], double[]). The first hypothesis
+	 * of every vector is the result of detectCharacter.
+	 * @param input packed input vectors: vector i starts at index i * Properties.nnInputLayerSize
+	 * @param count number of vectors
+	 * @param hypotheses output, made large enough for count vectors
+	 */
+	@Override
+	public void detectCharacters(double[] input, int count, Hypotheses hypotheses) {
+		hypotheses.ensureCapacity(count);
+		detectCharacters(input, count, hypotheses.getK(), hypotheses.getPositions(),
+				hypotheses.getActivations(), Properties.nnBatchSize, getDefaultPool());
+	}
+
+	private void detectCharacters(double[] input, int count, int k, int[] positions,
+			double[] activations, int batchSize, ForkJoinPool pool) {
+		InferenceEngine engine = getEngine();
+		batchSize = Math.max(1, batchSize);
+		if (pool == null || count <= batchSize) {
+			for (int from = 0; from < count; from += batchSize) {
+				int to = Math.min(count, from + batchSize);
+				engine.detect(input, from * engine.getInputSize(), to - from, k, positions, activations, from);
 			}
+		} else {
+			pool.invoke(new BatchTask(engine, input, k, positions, activations, 0, count, batchSize));
 		}
-		
-		consoleText.append("Pos: " + bigestPos + " Char: " + Properties.nnOutputLayer.get(bigestPos) + " Emphasis: "+ bigest + "\n");
-		if(bigest < 0.2){
+	}
+
+	/**
+	 * Report the result for an input vector to a listener and get the
+	 * character
+	 * @param position position of the most likely character (see Properties.nnOutputLayer)
+	 * @param emphasis output value of this character
+	 * @param listener is told about the result
+	 * @return character, Properties.unknownChar if the emphasis is too low
+	 */
+	public static char getCharacter(int position, double emphasis, RecognitionListener listener) {
+		char c = Properties.nnOutputLayer.get(position);
+		listener.glyphClassified(position, c, emphasis);
+		if(emphasis < 0.2){
 			return Properties.unknownChar;
 		}else{
-			return Properties.nnOutputLayer.get(bigestPos);	
+			return c;
 		}
 	}
-	
+
+	/**
+	 * Get the engine computing the forward pass on the current thetas
+	 * @return inference engine of the current snapshot
+	 */
+	public InferenceEngine getEngine() {
+		return getSnapshot().getEngine();
+	}
+
+	/**
+	 * Get the current thetas and engine. Use the snapshot for several calls
+	 * that must see the same thetas.
+	 * @return current snapshot
+	 * @throws IllegalStateException if the network has no thetas yet
+	 */
+	public NetworkSnapshot getSnapshot() {
+		NetworkSnapshot rv = snapshot.get();
+		if (rv == null) {
+			throw new IllegalStateException("the neural network has no thetas");
+		}
+		return rv;
+	}
+
+	/**
+	 * Replace the thetas and engine at once. Recognitions running meanwhile
+	 * finish with the old snapshot.
+	 * @param snapshot new snapshot, its precision becomes the one of the network
+	 * @return previous snapshot, null if there was none
+	 * @throws IllegalArgumentException if the hidden layer size differs
+	 */
+	public synchronized NetworkSnapshot setSnapshot(NetworkSnapshot snapshot) {
+		if (snapshot.getTheta1().getRowCount() != hiddenLayerSize) {
+			throw new IllegalArgumentException("theta1 must have " + hiddenLayerSize + " rows");
+		}
+		this.precision = snapshot.getPrecision();
+		return this.snapshot.getAndSet(snapshot);
+	}
+
+	/**
+	 * Replace both thetas at once (see setSnapshot)
+	 * @param theta1 new theta 1
+	 * @param theta2 new theta 2
+	 */
+	public void setThetas(Matrix theta1, Matrix theta2) {
+		setSnapshot(new NetworkSnapshot(theta1, theta2, precision));
+	}
+
+	private static synchronized ForkJoinPool getDefaultPool() {
+		if (Properties.nnThreads <= 1) {
+			return null;
+		}
+		if (defaultPool == null) {
+			defaultPool = new ForkJoinPool(Properties.nnThreads);
+		}
+		return defaultPool;
+	}
+
 	/**
-	 * Loads neural network values (thetas) from a given file
+	 * Loads neural network values (thetas) from a given file. A precision
+	 * recorded in the file replaces the one of the network.
 	 * 
 	 * @param f
-	 * @throws IOException
+	 * @throws IOException also if the hidden layer size of the file differs
 	 */
-	private void loadNeuronalNetwork(File f) throws IOException{
+	void loadNeuronalNetwork(File f) throws IOException{
+		String comment = MatrixHelper.readComment(f);
+		if (comment != null && comment.startsWith(precisionComment)) {
+			this.precision = Precision.valueOf(comment.substring(precisionComment.length()));
+		}
 		Matrix m;
 		m = MatrixHelper.deserializeMatrix(f);
-		Matrix[] thetas = MatrixHelper.unmergeThetas(m, Properties.nnInputLayerSize, Properties.nnHiddenLayerSize, Properties.nnOutputLayerSize);
-		this.theta1 = thetas[0];
-		this.theta2 = thetas[1];
+		int size = hiddenLayerSize * (Properties.nnInputLayerSize + 1) + Properties.nnOutputLayerSize * (hiddenLayerSize + 1);
+		if (m.getRowCount() != size) {
+			throw new IOException(f + " does not contain a network with " + hiddenLayerSize + " hidden units");
+		}
+		Matrix[] thetas = MatrixHelper.unmergeThetas(m, Properties.nnInputLayerSize, hiddenLayerSize, Properties.nnOutputLayerSize);
+		setThetas(thetas[0], thetas[1]);
 	}
 	
 	/**
-	 * Saves the neural network to a given file
+	 * Saves the neural network to a given file. The precision is recorded
+	 * unless it is float64 (files without it are loaded as float64); float32
+	 * networks are saved as floats.
 	 * @param f
 	 * @throws IOException 
 	 */
 	public void saveNeuronalNetwork(File f) throws IOException{
-		MatrixHelper.serializeMatrix(MatrixHelper.mergeThetas(theta1, theta2), f);
+		NetworkSnapshot current = getSnapshot();
+		Precision precision = current.getPrecision();
+		Matrix merged = MatrixHelper.mergeThetas(current.getTheta1(), current.getTheta2());
+		if (precision == Precision.float64) {
+			MatrixHelper.serializeMatrix(merged, f);
+		} else {
+			MatrixHelper.serializeMatrix(merged, f, precisionComment + precision,
+					precision == Precision.float32);
+		}
 	}
 	
 	/**
@@ -112,34 +326,108 @@ public class NeuralNetwork {
 	
 	
 	/**
-	 * Get theta matrix 1
-	 * @return theta 1
+	 * Get the computation of the characters
+	 * @return precision
+	 */
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Get the number of hidden units
+	 * @return hidden layer size of the thetas
+	 */
+	public int getHiddenLayerSize() {
+		return hiddenLayerSize;
+	}
+
+	/**
+	 * Get theta matrix 1 of the current snapshot
+	 * @return theta 1, cannot be changed; null if the network has no thetas
 	 */
 	public Matrix getTheta1() {
-		return theta1;
+		NetworkSnapshot current = snapshot.get();
+		return current == null ? null : current.getTheta1();
 	}
 
 	/**
-	 * Set theta matrix 1
+	 * Set theta matrix 1, keeping theta 2. Recognitions use the new theta 1
+	 * with the old theta 2 from now on.
 	 * @param theta1 new theta 1
+	 * @deprecated a network changed one theta at a time can mix thetas that do
+	 *             not belong together: use setThetas or setSnapshot
 	 */
-	public void setTheta1(Matrix theta1) {
-		this.theta1 = theta1;
+	@Deprecated
+	public synchronized void setTheta1(Matrix theta1) {
+		setThetas(theta1, getSnapshot().getTheta2());
 	}
 
 	/**
-	 * Get theta matrix 2
-	 * @return theta 2
+	 * Get theta matrix 2 of the current snapshot
+	 * @return theta 2, cannot be changed; null if the network has no thetas
 	 */
 	public Matrix getTheta2() {
-		return theta2;
+		NetworkSnapshot current = snapshot.get();
+		return current == null ? null : current.getTheta2();
 	}
 
 	/**
-	 * Set theta matrix 2
+	 * Set theta matrix 2, keeping theta 1. Recognitions use the new theta 2
+	 * with the old theta 1 from now on.
 	 * @param theta2 new theta 2
+	 * @deprecated a network changed one theta at a time can mix thetas that do
+	 *             not belong together: use setThetas or setSnapshot
 	 */
-	public void setTheta2(Matrix theta2) {
-		this.theta2 = theta2;
+	@Deprecated
+	public synchronized void setTheta2(Matrix theta2) {
+		setThetas(getSnapshot().getTheta1(), theta2);
+	}
+
+	/**
+	 * Buffers of detectCharacter
+	 */
+	private static class Results {
+		private final double[] input = new double[Properties.nnInputLayerSize];
+		private final int[] positions = new int[1];
+		private final double[] emphasis = new double[1];
+	}
+
+	/**
+	 * Computes the vectors [from, to), split in halves at a multiple of the
+	 * batch size as long as there is more than one batch
+	 */
+	private static class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private InferenceEngine engine;
+		private double[] input;
+		private int k;
+		private int[] positions;
+		private double[] activations;
+		private int from;
+		private int to;
+		private int batchSize;
+
+		BatchTask(InferenceEngine engine, double[] input, int k, int[] positions,
+				double[] activations, int from, int to, int batchSize) {
+			this.engine = engine;
+			this.input = input;
+			this.k = k;
+			this.positions = positions;
+			this.activations = activations;
+			this.from = from;
+			this.to = to;
+			this.batchSize = batchSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= batchSize) {
+				engine.detect(input, from * engine.getInputSize(), to - from, k, positions, activations, from);
+				return;
+			}
+			int middle = from + ((to - from) / batchSize + 1) / 2 * batchSize;
+			invokeAll(new BatchTask(engine, input, k, positions, activations, from, middle, batchSize),
+					new BatchTask(engine, input, k, positions, activations, middle, to, batchSize));
+		}
 	}
 }
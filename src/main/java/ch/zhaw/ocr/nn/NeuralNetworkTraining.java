@@ -48,7 +48,10 @@ public class NeuralNetworkTraining {
 
 	/**
 	 * Trains a neural network using the files in the given resourceFolder.
-	 * These files should contain 1 character for each output neuron
+	 * These files should contain 1 character for each output neuron.
+	 * The costs are computed with the precision of the network (see
+	 * BackPropagation.nnCostFunction), the size of the hidden layer is the one
+	 * of the network.
 	 * 
 	 * @param nn
 	 *            neural network to be trained
@@ -57,20 +60,22 @@ public class NeuralNetworkTraining {
 	 */
 	public void trainNetwork(NeuralNetwork nn, String thetaMode,
 			int maxIterationCount) {
+		int hiddenLayerSize = nn.getHiddenLayerSize();
 		// initialize thetas
-		if (thetaMode.equals("random") || nn.getTheta1() == null
-				|| nn.getTheta2() == null) {
+		// both thetas of the same snapshot
+		NetworkSnapshot snapshot = (nn.getTheta1() == null) ? null : nn.getSnapshot();
+		if (thetaMode.equals("random") || snapshot == null) {
 			// initialize thetas randomly
 			long t1 = System.currentTimeMillis();
 			System.out.println("randomly initialising thetas...");
-			theta1 = bp.randInitializeWeights(Properties.nnHiddenLayerSize,
+			theta1 = bp.randInitializeWeights(hiddenLayerSize,
 					Properties.nnInputLayerSize);
 			theta2 = bp.randInitializeWeights(Properties.nnOutputLayerSize,
-					Properties.nnHiddenLayerSize);
+					hiddenLayerSize);
 			System.out.println("thetas initialised...("+(System.currentTimeMillis()-t1)+"ms)");
 		} else {
-			theta1 = nn.getTheta1();
-			theta2 = nn.getTheta2();
+			theta1 = snapshot.getTheta1();
+			theta2 = snapshot.getTheta2();
 		}
 
 		// get input from resource folder
@@ -107,6 +112,8 @@ public class NeuralNetworkTraining {
 				e.printStackTrace();
 			}
 		}
+		final Precision precision = nn.getPrecision();
+		final int hiddenSize = hiddenLayerSize;
 		// declare cost function in an "minimizable" form
 		CostFunction inlineFunction = new CostFunction() {
 			@Override
@@ -115,8 +122,8 @@ public class NeuralNetworkTraining {
 				CostFunctionResult rv = bp.nnCostFunction(
 						MatrixHelper.convertToMatrix(input),
 						Properties.nnInputLayerSize,
-						Properties.nnHiddenLayerSize,
-						Properties.nnOutputLayerSize, in, expectedOutput);
+						hiddenSize,
+						Properties.nnOutputLayerSize, in, expectedOutput, precision);
 
 				return new Tuple<Double, DoubleVector>(rv.getJ(),
 						MatrixHelper.convertToDoubleVector(rv.getTheta1Grad()));
@@ -131,11 +138,10 @@ public class NeuralNetworkTraining {
 		// read thetas
 		Matrix[] thetas = MatrixHelper.unmergeThetas(
 				MatrixHelper.convertToMatrix(minimizeFunction),
-				Properties.nnInputLayerSize, Properties.nnHiddenLayerSize,
+				Properties.nnInputLayerSize, hiddenLayerSize,
 				Properties.nnOutputLayerSize);
 
-		// write thetas back to the given neuronal network
-		nn.setTheta1(thetas[0]);
-		nn.setTheta2(thetas[1]);
+		// write thetas back to the given neuronal network, both at once
+		nn.setThetas(thetas[0], thetas[1]);
 	}
 }
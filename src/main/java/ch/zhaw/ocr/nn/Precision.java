@@ -0,0 +1,43 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.Matrix;
+
+/**
+ * Enum Precision used to select how a NeuralNetwork computes characters and
+ * how it is trained and saved
+ * 
+ * float64: DoubleInferenceEngine, same results as the matrix computation.
+ * float32: FloatInferenceEngine, training with floats, saved as floats.
+ * int8: QuantizedInferenceEngine, weights with 8 bits per value.
+ * See Calibration for the agreement with float64.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ * 
+ */
+public enum Precision {
+	float64 {
+		@Override
+		public InferenceEngine createEngine(Matrix theta1, Matrix theta2) {
+			return new DoubleInferenceEngine(theta1, theta2);
+		}
+	},
+	float32 {
+		@Override
+		public InferenceEngine createEngine(Matrix theta1, Matrix theta2) {
+			return new FloatInferenceEngine(theta1, theta2);
+		}
+	},
+	int8 {
+		@Override
+		public InferenceEngine createEngine(Matrix theta1, Matrix theta2) {
+			return new QuantizedInferenceEngine(theta1, theta2);
+		}
+	};
+
+	/**
+	 * Create the engine computing characters with this precision
+	 * @param theta1
+	 * @param theta2
+	 * @return inference engine
+	 */
+	public abstract InferenceEngine createEngine(Matrix theta1, Matrix theta2);
+}
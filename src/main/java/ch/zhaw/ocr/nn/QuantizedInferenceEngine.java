@@ -0,0 +1,240 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.Matrix;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.nn.helper.Sigmoid;
+
+/**
+ * Forward pass of a trained neural network on 8 bit weights. Every row of a
+ * theta matrix (the weights of one unit) is scaled to [-127, 127] and
+ * rounded; the scale of the row and the bias are kept as doubles. The input
+ * vector is scaled the same way per character, the hidden layer (sigmoid
+ * values in [0, 1]) is stored as multiples of 1/127. The products are
+ * summed up as ints and scaled back once per unit.
+ * 
+ * The weights need an eighth of the memory of DoubleInferenceEngine; the
+ * results are approximations (see Calibration for the agreement with the
+ * double network). The engine is meant for batches: the weights of a unit
+ * are widened once per call, which costs more than the double computation
+ * for a single character.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class QuantizedInferenceEngine implements InferenceEngine {
+	// largest absolute quantized value
+	private static final int maxLevel = 127;
+
+	// quantized layers of the characters computed last by the thread
+	private static final ThreadLocal<Layers> layerBuffer = new ThreadLocal<Layers>() {
+		@Override
+		protected Layers initialValue() {
+			return new Layers();
+		}
+	};
+
+	private final int inputSize;
+	private final int hiddenSize;
+	private final int outputSize;
+	private final double[] bias1;
+	private final double[] scales1;
+	private final byte[] weights1;
+	private final double[] bias2;
+	private final double[] scales2;
+	private final byte[] weights2;
+	private final Sigmoid sigmoid;
+
+	/**
+	 * Create an engine with quantized thetas, using
+	 * Properties.nnInferenceSigmoid
+	 * @param theta1 hidden layer size x (input layer size + 1)
+	 * @param theta2 output layer size x (hidden layer size + 1)
+	 */
+	public QuantizedInferenceEngine(Matrix theta1, Matrix theta2) {
+		this(theta1, theta2, Properties.nnInferenceSigmoid);
+	}
+
+	/**
+	 * Create an engine with quantized thetas
+	 * @param theta1 hidden layer size x (input layer size + 1)
+	 * @param theta2 output layer size x (hidden layer size + 1)
+	 * @param sigmoid activation of the hidden and output units
+	 */
+	public QuantizedInferenceEngine(Matrix theta1, Matrix theta2, Sigmoid sigmoid) {
+		this.sigmoid = sigmoid;
+		inputSize = theta1.getColumnCount() - 1;
+		hiddenSize = theta1.getRowCount();
+		outputSize = theta2.getRowCount();
+		if (theta2.getColumnCount() != hiddenSize + 1) {
+			throw new IllegalArgumentException("theta2 must have " + (hiddenSize + 1) + " columns");
+		}
+		bias1 = new double[hiddenSize];
+		scales1 = new double[hiddenSize];
+		weights1 = new byte[hiddenSize * inputSize];
+		bias2 = new double[outputSize];
+		scales2 = new double[outputSize];
+		weights2 = new byte[outputSize * hiddenSize];
+		quantize(theta1, bias1, scales1, weights1);
+		quantize(theta2, bias2, scales2, weights2);
+	}
+
+	/**
+	 * Split the bias column off and scale every row of weights to
+	 * [-maxLevel, maxLevel]
+	 */
+	private static void quantize(Matrix theta, double[] bias, double[] scales, byte[] weights) {
+		int inputs = theta.getColumnCount() - 1;
+		for (int j = 0; j < theta.getRowCount(); j++) {
+			bias[j] = theta.get(j, 0);
+			double max = 0;
+			for (int k = 0; k < inputs; k++) {
+				max = Math.max(max, Math.abs(theta.get(j, k + 1)));
+			}
+			scales[j] = max / maxLevel;
+			for (int k = 0; k < inputs; k++) {
+				weights[j * inputs + k] = (max == 0) ? 0 : (byte) Math.round(theta.get(j, k + 1) / scales[j]);
+			}
+		}
+	}
+
+	@Override
+	public void detect(double[] input, int offset, int count, int[] positions,
+			double[] emphasis, int resultOffset) {
+		detect(input, offset, count, 1, positions, emphasis, resultOffset);
+	}
+
+	@Override
+	public void detect(double[] input, int offset, int count, int k,
+			int[] positions, double[] activations, int resultOffset) {
+		Layers layers = layerBuffer.get();
+		layers.ensureCapacity(count, inputSize, hiddenSize, outputSize);
+
+		for (int r = 0; r < count; r++) {
+			layers.scales[r] = quantizeInput(input, offset + r * inputSize, layers.input, r * inputSize);
+		}
+		multiply(layers.input, count, inputSize, layers.scales, weights1, scales1, bias1, hiddenSize, layers);
+		for (int i = 0; i < count * hiddenSize; i++) {
+			layers.hidden[i] = (int) Math.round(sigmoid.apply(layers.z[i]) * maxLevel);
+		}
+		for (int r = 0; r < count; r++) {
+			layers.scales[r] = 1.0 / maxLevel;
+		}
+		multiply(layers.hidden, count, hiddenSize, layers.scales, weights2, scales2, bias2, outputSize, layers);
+		for (int r = 0; r < count; r++) {
+			findLargest(layers.z, r * outputSize, k, positions, activations, (resultOffset + r) * k);
+		}
+	}
+
+	/**
+	 * Scale an input vector to [-maxLevel, maxLevel]
+	 * @return scale of the vector, 0 if all values are 0
+	 */
+	private double quantizeInput(double[] input, int start, int[] dst, int dstStart) {
+		double max = 0;
+		for (int k = 0; k < inputSize; k++) {
+			max = Math.max(max, Math.abs(input[start + k]));
+		}
+		double scale = max / maxLevel;
+		for (int k = 0; k < inputSize; k++) {
+			dst[dstStart + k] = (max == 0) ? 0 : (int) Math.round(input[start + k] / scale);
+		}
+		return scale;
+	}
+
+	/**
+	 * layers.z = bias + scale * (weights * src) for all vectors. The weights
+	 * of a unit are widened to ints once and used for all vectors: int dot
+	 * products are computed with SIMD instructions by the JIT, byte ones are
+	 * not.
+	 */
+	private static void multiply(int[] src, int rows, int inputs,
+			double[] srcScales, byte[] weights, double[] scales, double[] bias,
+			int units, Layers layers) {
+		int[] row = layers.row;
+		double[] dst = layers.z;
+		for (int j = 0; j < units; j++) {
+			int w = j * inputs;
+			for (int k = 0; k < inputs; k++) {
+				row[k] = weights[w + k];
+			}
+			for (int r = 0; r < rows; r++) {
+				int s = r * inputs;
+				int acc = 0;
+				for (int k = 0; k < inputs; k++) {
+					acc += row[k] * src[s + k];
+				}
+				dst[r * units + j] = bias[j] + scales[j] * srcScales[r] * acc;
+			}
+		}
+	}
+
+	/**
+	 * Find the k largest output values of a vector, in descending order
+	 */
+	private void findLargest(double[] layers, int start, int k, int[] positions,
+			double[] activations, int first) {
+		int last = first + k - 1;
+		for (int r = first; r <= last; r++) {
+			positions[r] = -1;
+			activations[r] = -1;
+		}
+		for (int j = 0; j < outputSize; j++) {
+			double a = sigmoid.apply(layers[start + j]);
+			if (a > activations[last]) {
+				int r = last;
+				for (; r > first && a > activations[r - 1]; r--) {
+					positions[r] = positions[r - 1];
+					activations[r] = activations[r - 1];
+				}
+				positions[r] = j;
+				activations[r] = a;
+			}
+		}
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	@Override
+	public int getOutputSize() {
+		return outputSize;
+	}
+
+	@Override
+	public long getWeightBytes() {
+		return weights1.length + weights2.length
+				+ 8L * (bias1.length + scales1.length + bias2.length + scales2.length);
+	}
+
+	/**
+	 * Quantized input and hidden layer, sums and scales of the vectors of a
+	 * call
+	 */
+	private static class Layers {
+		private int[] input = new int[0];
+		private int[] hidden = new int[0];
+		private int[] row = new int[0];
+		private double[] z = new double[0];
+		private double[] scales = new double[0];
+
+		private void ensureCapacity(int count, int inputSize, int hiddenSize, int outputSize) {
+			// the buffers are shared by all engines of the thread: check every size
+			if (scales.length < count) {
+				scales = new double[count];
+			}
+			if (input.length < count * inputSize) {
+				input = new int[count * inputSize];
+			}
+			if (hidden.length < count * hiddenSize) {
+				hidden = new int[count * hiddenSize];
+			}
+			if (z.length < count * Math.max(hiddenSize, outputSize)) {
+				z = new double[count * Math.max(hiddenSize, outputSize)];
+			}
+			if (row.length < Math.max(inputSize, hiddenSize)) {
+				row = new int[Math.max(inputSize, hiddenSize)];
+			}
+		}
+	}
+}
@@ -5,7 +5,7 @@ import hu.kazocsaba.math.matrix.Matrix;
 /**
  * CostFunctionResult used as return value of our cost function
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
- *
+ * 
  */
 public class CostFunctionResult {
 	private double J;
@@ -0,0 +1,32 @@
+package ch.zhaw.ocr.nn.helper;
+
+/**
+ * Interface FloatKernel. The loops on float arrays that dominate the
+ * forward pass and the backpropagation of float32 networks. Get the kernel
+ * to be used from Kernels.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ * 
+ */
+public interface FloatKernel {
+
+	/**
+	 * Compute a dot product
+	 * @return sum of a[aStart + k] * b[bStart + k] for k < length
+	 */
+	public float dot(float[] a, int aStart, float[] b, int bStart, int length);
+
+	/**
+	 * Compute the dot products of one vector with four vectors, reading the
+	 * first one once
+	 * @param bStride distance of the four vectors in b
+	 * @param sums output: sums[sumsStart + r] = dot(a, aStart, b, bStart + r * bStride, length) for r < 4
+	 */
+	public void dot4(float[] a, int aStart, float[] b, int bStart, int bStride,
+			int length, float[] sums, int sumsStart);
+
+	/**
+	 * Add a multiple of a vector to another one
+	 * @param y output: y[yStart + k] += alpha * x[xStart + k] for k < length
+	 */
+	public void axpy(float alpha, float[] x, int xStart, float[] y, int yStart, int length);
+}
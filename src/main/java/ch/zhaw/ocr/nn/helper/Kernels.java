@@ -0,0 +1,52 @@
+package ch.zhaw.ocr.nn.helper;
+
+import ch.zhaw.ocr.Properties;
+
+/**
+ * Selects the kernels once per JVM. The kernels using the Vector API
+ * (jdk.incubator.vector) are compiled from src/main/java17 by the maven
+ * profile "vector" (mvn -Pvector, needs JDK 17) and only work if the JVM is
+ * started with --add-modules jdk.incubator.vector. Otherwise, or if
+ * Properties.nnVectorKernels is false, the scalar kernels are used.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public final class Kernels {
+	// compiled by the "vector" profile only
+	static final String vectorFloatKernel = "ch.zhaw.ocr.nn.helper.VectorFloatKernel";
+
+	private static final FloatKernel floatKernel = loadFloatKernel(Properties.nnVectorKernels);
+
+	private Kernels() {
+	}
+
+	/**
+	 * Get the kernel for float arrays
+	 * @return vector kernel if available, scalar kernel otherwise
+	 */
+	public static FloatKernel getFloatKernel() {
+		return floatKernel;
+	}
+
+	/**
+	 * Create a kernel for float arrays
+	 * @param vector true to use the Vector API if possible
+	 * @return new kernel
+	 */
+	static FloatKernel loadFloatKernel(boolean vector) {
+		if (vector) {
+			try {
+				FloatKernel kernel = (FloatKernel) Class.forName(vectorFloatKernel).getDeclaredConstructor().newInstance();
+				// fails here if the module is missing
+				kernel.dot(new float[1], 0, new float[1], 0, 1);
+				return kernel;
+			} catch (ClassNotFoundException e) {
+				// not compiled
+			} catch (LinkageError e) {
+				// jdk.incubator.vector not added
+			} catch (ReflectiveOperationException e) {
+				// not compiled correctly
+			}
+		}
+		return new ScalarFloatKernel();
+	}
+}
@@ -55,10 +55,23 @@ public class MatrixHelper {
 	 * @return transformed matrix
 	 */
 	public static Matrix sigmoid(Matrix m) {
+		return sigmoid(m, Sigmoid.exact);
+	}
+
+	/**
+	 * Use sigmoid function on each element of a given matrix
+	 * 
+	 * @param m
+	 *            input matrix
+	 * @param mode
+	 *            computation of the sigmoid function
+	 * @return transformed matrix
+	 */
+	public static Matrix sigmoid(Matrix m, Sigmoid mode) {
 		m = MatrixFactory.copy(m);
 		for (int col = 0; col < m.getColumnCount(); col++) {
 			for (int row = 0; row < m.getRowCount(); row++) {
-				m.set(row, col, 1 / (1 + Math.exp(-1 * m.get(row, col))));
+				m.set(row, col, mode.apply(m.get(row, col)));
 			}
 		}
 		return m;
@@ -301,19 +314,70 @@ public class MatrixHelper {
 	 * @throws IOException
 	 */
 	public static void serializeMatrix(Matrix m, File f) throws IOException {
+		serializeMatrix(m, f, null, false);
+	}
+
+	/**
+	 * Serialize Matrix into a textfile (see serializeMatrix(Matrix, File)).
+	 * The comment is written into a first line starting with "# " (see
+	 * readComment); deserializeMatrix skips it.
+	 * 
+	 * @param m matrix to be serialized
+	 * @param f target file
+	 * @param comment comment line, null for none
+	 * @param singlePrecision store the values as floats
+	 * @throws IOException
+	 */
+	public static void serializeMatrix(Matrix m, File f, String comment,
+			boolean singlePrecision) throws IOException {
 		BufferedWriter bw = new BufferedWriter(new FileWriter(f));
-		StringBuffer sb = new StringBuffer();
+		try {
+			if (comment != null) {
+				bw.write("# " + comment + "\n");
+			}
+			StringBuffer sb = new StringBuffer();
 
-		for (int row = 0; row < m.getRowCount(); row++) {
-			sb = new StringBuffer();
-			for (int col = 0; col < m.getColumnCount(); col++) {
-				sb.append(Double.toString(m.get(row, col)));
-				sb.append(",");
+			for (int row = 0; row < m.getRowCount(); row++) {
+				sb = new StringBuffer();
+				for (int col = 0; col < m.getColumnCount(); col++) {
+					if (singlePrecision) {
+						sb.append(Float.toString((float) m.get(row, col)));
+					} else {
+						sb.append(Double.toString(m.get(row, col)));
+					}
+					sb.append(",");
+				}
+				sb.deleteCharAt(sb.length() - 1);
+				bw.write(sb.toString());
+				bw.write(";");
+				bw.flush();
+			}
+		} finally {
+			bw.close();
+		}
+	}
+
+	/**
+	 * Read the comment of a serialized matrix
+	 * 
+	 * @param f file containing a serialized matrix
+	 * @return comment without "# ", null if the file has none
+	 * @throws IOException
+	 */
+	public static String readComment(File f) throws IOException {
+		BufferedReader input = new BufferedReader(new FileReader(f));
+		try {
+			// the values are in one long line, only its start is needed
+			char[] start = new char[256];
+			int n = input.read(start);
+			if (n < 2 || start[0] != '#') {
+				return null;
 			}
-			sb.deleteCharAt(sb.length() - 1);
-			bw.write(sb.toString());
-			bw.write(";");
-			bw.flush();
+			String rv = new String(start, 0, n);
+			int end = rv.indexOf('\n');
+			return rv.substring(1, end == -1 ? rv.length() : end).trim();
+		} finally {
+			input.close();
 		}
 	}
 
@@ -328,6 +392,8 @@ public class MatrixHelper {
 	 * m = 	(n21 n22 n23 n24)
 	 * 		(n31 n32 n33 n34)
 	 * 
+	 * Lines starting with # are skipped.
+	 * 
 	 * @param f file containing a serialized matrix (created using the MatrixHelper.serializeMatrix() function)
 	 * @return Matrix containing the values of the textfile
 	 * @throws IOException
@@ -342,6 +408,10 @@ public class MatrixHelper {
 		input = new BufferedReader(new FileReader(f));
 		String line = null; // not declared within while loop
 		while ((line = input.readLine()) != null) {
+			if (line.startsWith("#")) {
+				// comment (see serializeMatrix)
+				continue;
+			}
 			for (String row : line.split(";")) {
 				if (!row.trim().isEmpty()) {
 					c = 0;
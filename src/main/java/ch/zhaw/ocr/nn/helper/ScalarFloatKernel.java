@@ -0,0 +1,49 @@
+package ch.zhaw.ocr.nn.helper;
+
+/**
+ * FloatKernel with plain loops, used when the Vector API is not available.
+ * The JIT vectorizes axpy, the sums are computed one product after the
+ * other.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class ScalarFloatKernel implements FloatKernel {
+
+	@Override
+	public float dot(float[] a, int aStart, float[] b, int bStart, int length) {
+		float sum = 0;
+		for (int k = 0; k < length; k++) {
+			sum += a[aStart + k] * b[bStart + k];
+		}
+		return sum;
+	}
+
+	@Override
+	public void dot4(float[] a, int aStart, float[] b, int bStart, int bStride,
+			int length, float[] sums, int sumsStart) {
+		int b1 = bStart + bStride;
+		int b2 = b1 + bStride;
+		int b3 = b2 + bStride;
+		float z0 = 0;
+		float z1 = 0;
+		float z2 = 0;
+		float z3 = 0;
+		for (int k = 0; k < length; k++) {
+			float v = a[aStart + k];
+			z0 += v * b[bStart + k];
+			z1 += v * b[b1 + k];
+			z2 += v * b[b2 + k];
+			z3 += v * b[b3 + k];
+		}
+		sums[sumsStart] = z0;
+		sums[sumsStart + 1] = z1;
+		sums[sumsStart + 2] = z2;
+		sums[sumsStart + 3] = z3;
+	}
+
+	@Override
+	public void axpy(float alpha, float[] x, int xStart, float[] y, int yStart, int length) {
+		for (int k = 0; k < length; k++) {
+			y[yStart + k] += alpha * x[xStart + k];
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package ch.zhaw.ocr.nn.helper;
+
+/**
+ * Enum Sigmoid used to select how the activation 1 / (1 + e^-z) of the
+ * neural network is computed
+ * 
+ * exact: Math.exp, same values as before any approximation existed.
+ * table: linear interpolation in a table of tableSteps values per unit over
+ * [-tableRange, tableRange], 0 / 1 outside (max. error about 3e-6).
+ * rational: 0.5 + 0.5 * tanh(z / 2), tanh as a rational function (Lambert's
+ * continued fraction), clamped for |z / 2| > 4.97 (max. error about 5e-5).
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ * 
+ */
+public enum Sigmoid {
+	exact {
+		@Override
+		public double apply(double z) {
+			return 1 / (1 + Math.exp(-1 * z));
+		}
+	},
+	table {
+		@Override
+		public double apply(double z) {
+			double x = (z + tableRange) * tableSteps;
+			if (x <= 0) {
+				return Table.values[0];
+			}
+			if (x >= Table.last) {
+				return Table.values[Table.last];
+			}
+			int i = (int) x;
+			double low = Table.values[i];
+			return low + (x - i) * (Table.values[i + 1] - low);
+		}
+	},
+	rational {
+		@Override
+		public double apply(double z) {
+			double t = z / 2;
+			if (t > 4.97) {
+				return 1;
+			}
+			if (t < -4.97) {
+				return 0;
+			}
+			double t2 = t * t;
+			double tanh = t * (135135 + t2 * (17325 + t2 * (378 + t2)))
+					/ (135135 + t2 * (62370 + t2 * (3150 + t2 * 28)));
+			return 0.5 + 0.5 * Math.max(-1, Math.min(1, tanh));
+		}
+	};
+
+	private static final int tableRange = 16;
+	private static final int tableSteps = 64;
+
+	/**
+	 * Compute the sigmoid function
+	 * @param z input
+	 * @return 1 / (1 + e^-z), approximated depending on the mode
+	 */
+	public abstract double apply(double z);
+
+	/**
+	 * Values of the table mode, created when the mode is used the first time
+	 */
+	private static class Table {
+		private static final int last = 2 * tableRange * tableSteps;
+		private static final double[] values = new double[last + 1];
+
+		static {
+			for (int i = 0; i <= last; i++) {
+				values[i] = exact.apply((double) i / tableSteps - tableRange);
+			}
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package ch.zhaw.ocr.textRecognition;
+
+/**
+ * RecognitionListener writing the events as text lines, used for the
+ * neural network console of the UI. Only the total time is written of the
+ * stages.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class ConsoleListener implements RecognitionListener {
+	private StringBuffer consoleText;
+
+	/**
+	 * Create a listener appending to a buffer
+	 * @param consoleText
+	 */
+	public ConsoleListener(StringBuffer consoleText) {
+		this.consoleText = consoleText;
+	}
+
+	@Override
+	public void glyphClassified(int position, char character, double emphasis) {
+		consoleText.append("Pos: " + position + " Char: " + character + " Emphasis: " + emphasis + "\n");
+	}
+
+	@Override
+	public void wordCorrected(String input, String output) {
+		consoleText.append("Dictionary Input: " + input + "\n");
+		consoleText.append("Dictionary Output: " + output + "\n");
+	}
+
+	@Override
+	public void stageFinished(Stage stage, long nanos) {
+		if (stage == Stage.total) {
+			consoleText.append("Einlesen des Textes abgeschlossen...(" + nanos / 1000000 + "ms)");
+		}
+	}
+
+	/**
+	 * Get the text written so far
+	 * @return console text
+	 */
+	public StringBuffer getConsoleText() {
+		return consoleText;
+	}
+}
@@ -1,40 +1,69 @@
 package ch.zhaw.ocr.textRecognition;
 
-import hu.kazocsaba.math.matrix.MatrixFactory;
-
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
 import javax.imageio.ImageIO;
 
 import ch.zhaw.ocr.Properties;
 import ch.zhaw.ocr.bitmapParser.BitmapParser;
+import ch.zhaw.ocr.bitmapParser.BitmapParserDecorator;
 import ch.zhaw.ocr.bitmapParser.CharacterParser;
 import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
-import ch.zhaw.ocr.bitmapParser.RowParser;
+import ch.zhaw.ocr.bitmapParser.Downscaler;
+import ch.zhaw.ocr.bitmapParser.FunctionalCharacter;
+import ch.zhaw.ocr.bitmapParser.MatrixArena;
+import ch.zhaw.ocr.bitmapParser.NetpbmReader;
 import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+import ch.zhaw.ocr.bitmapParser.SinglePassParser;
+import ch.zhaw.ocr.bitmapParser.StripRowReader;
 import ch.zhaw.ocr.bitmapParser.UnderlineRemover;
 import ch.zhaw.ocr.bitmapParser.WordParser;
 import ch.zhaw.ocr.dictionary.Dictionary;
+import ch.zhaw.ocr.nn.CharacterClassifier;
 import ch.zhaw.ocr.nn.CharacterRepresentation;
+import ch.zhaw.ocr.nn.Hypotheses;
 import ch.zhaw.ocr.nn.NeuralNetwork;
+import ch.zhaw.ocr.textRecognition.RecognitionListener.Stage;
 
 /**
  * Class OCR. Combines TextParsing, Neural Network and Dictionary
+ * 
+ * The characters are collected per text row and the neural network
+ * recognizes all characters of a row at once (see
+ * NeuralNetwork.detectCharacters, or a Cascade). The results are then handled in the
+ * order of the characters, so text and console are the same as with one
+ * call per character. The dictionary replaces a character of a word only
+ * by the Properties.nnCandidates most likely characters of the network.
+ * 
+ * The characters, dictionary lookups and timings are reported to a
+ * RecognitionListener (see ConsoleListener for the console of the UI).
  * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
  */
 public class Ocr {
+	// input vectors and results of the row recognized last by the thread
+	private static final ThreadLocal<RowBuffers> rowBuffers = new ThreadLocal<RowBuffers>() {
+		@Override
+		protected RowBuffers initialValue() {
+			return new RowBuffers();
+		}
+	};
+
 	
-	private NeuralNetwork nn;
+	private CharacterClassifier nn;
 	private Dictionary dic;
 	
 	/**
 	 * Initialise OCR
-	 * @param nn NeuralNetwork instance to be used
+	 * @param nn NeuralNetwork or Cascade to be used
 	 * @param dic Dictionary instance to be used
 	 */
-	public Ocr(NeuralNetwork nn, Dictionary dic) {
+	public Ocr(CharacterClassifier nn, Dictionary dic) {
 		this.nn = nn;
 		this.dic = dic;
 	}
@@ -42,59 +71,236 @@ public class Ocr {
 	/**
 	 * Parse a given image and return the parsed text as string
 	 * @param f input image
-	 * @param consoleText a string buffer used to display a nn console in our UI.
 	 * @return parsed text
 	 */
-	public String parseImage(File f, StringBuffer consoleText) {
-		long t1 = System.currentTimeMillis();
+	public String parseImage(File f) {
+		return parseImage(f, RecognitionAdapter.none);
+	}
+	
+	/**
+	 * Parse a given image and return the parsed text as string
+	 * @param f input image
+	 * @param listener receives the recognition events, e.g. a ConsoleListener for the nn console of our UI
+	 * @return parsed text
+	 */
+	public String parseImage(File f, RecognitionListener listener) {
+		long t1 = System.nanoTime();
 		
 		StringBuffer textBuffer = new StringBuffer();
 		StringBuffer wordBuffer = new StringBuffer();
+		StringBuilder candidateBuffer = new StringBuilder();
 
 		// parse bitmap
-		BitmapParser bp = new CharacterParser(new WordParser(
-				new UnderlineRemover(new RowParser(new SimpleBitmapParser()))));
+		BitmapParser bp = new SinglePassParser(new Downscaler(
+				new SimpleBitmapParser()));
 
+		// the matrices of the page are dropped at once at the end
+		MatrixArena arena = MatrixArena.open();
 		try {
-			//Word seperating
-			List<ContrastMatrix> matrices = bp.parse(ImageIO.read(f));
+			//Word seperating, the characters of a row are cut when needed
+			Iterator<ContrastMatrix> matrices = bp.parseLazily(ImageIO.read(f));
 			// character output
-			for (ContrastMatrix cm : matrices) {
-				char c = 0;
-				if(cm.getFunctionalChar() != null){
-					c = cm.getFunctionalChar().getCharacter();
-				}else{
-					c = nn.detectCharacter(MatrixFactory.createMatrix(new CharacterRepresentation(cm).getComparisonVector()), consoleText);
-				}
-				//if the character is a functional character
-				if (cm.getFunctionalChar() != null) {
-					String correctedWord = dic.correctWord(wordBuffer.toString());
-					
-					consoleText.append("Dictionary Input: "+wordBuffer.toString() + "\n");
-					consoleText.append("Dictionary Output: "+ correctedWord + "\n");
-					
-					textBuffer.append(correctedWord);
-					textBuffer.append(c);
-					wordBuffer.delete(0, wordBuffer.length());
-				} else {
-					wordBuffer.append(c);
-				}
-				
-			}
-			//check last word in dictionary
-			if (wordBuffer.length() > 0) {
-				textBuffer.append(dic.correctWord(wordBuffer.toString()));
+			List<ContrastMatrix> row = new ArrayList<ContrastMatrix>();
+			while (matrices.hasNext()) {
+				add(matrices.next(), row, textBuffer, wordBuffer, candidateBuffer, listener);
 			}
-			consoleText.append("Einlesen des Textes abgeschlossen...("+ (System.currentTimeMillis()-t1) +"ms)");
-			
-			return textBuffer.toString().replace(Properties.unknownChar, '_');
+			recognizeRow(row, textBuffer, wordBuffer, candidateBuffer, listener);
+			return finish(textBuffer, wordBuffer, candidateBuffer, listener, t1);
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 			return null;
+		} finally {
+			arena.release();
+		}
+	}
+	
+	/**
+	 * Parse a given image file and return the parsed text as string. PBM and
+	 * PGM images are read straight into a ContrastMatrix (see NetpbmReader),
+	 * all other formats are read by ImageIO like in parseImage(File, ...).
+	 * @param p input image
+	 * @param listener receives the recognition events, e.g. a ConsoleListener for the nn console of our UI
+	 * @return parsed text
+	 * @throws IOException if a PBM or PGM image cannot be read
+	 */
+	public String parseImage(Path p, RecognitionListener listener) throws IOException {
+		if (!NetpbmReader.canRead(p)) {
+			return parseImage(p.toFile(), listener);
+		}
+		long t1 = System.nanoTime();
+		
+		StringBuffer textBuffer = new StringBuffer();
+		StringBuffer wordBuffer = new StringBuffer();
+		StringBuilder candidateBuffer = new StringBuilder();
+		
+		// the page comes from the NetpbmReader instead of a SimpleBitmapParser
+		BitmapParserDecorator bp = new SinglePassParser(new Downscaler(null));
+		MatrixArena arena = MatrixArena.open();
+		try {
+			List<ContrastMatrix> pages = new LinkedList<ContrastMatrix>();
+			pages.add(NetpbmReader.read(p));
+			
+			List<ContrastMatrix> row = new ArrayList<ContrastMatrix>();
+			for (ContrastMatrix cm : bp.parse(pages)) {
+				add(cm, row, textBuffer, wordBuffer, candidateBuffer, listener);
+			}
+			recognizeRow(row, textBuffer, wordBuffer, candidateBuffer, listener);
+			return finish(textBuffer, wordBuffer, candidateBuffer, listener, t1);
+		} finally {
+			arena.release();
 		}
 	}
 	
+	/**
+	 * Parse a given image row by row without loading the whole image into
+	 * memory. Used for images that are too large for the heap. Unlike
+	 * parseImage, the characters are not downscaled: high-resolution input is
+	 * recognized at its own scale, so the result can differ from the one of
+	 * parseImage. No MatrixArena is used: it would keep the rows of the whole
+	 * image until the end.
+	 * @param f input image
+	 * @param listener receives the recognition events, e.g. a ConsoleListener for the nn console of our UI
+	 * @return parsed text
+	 * @throws IOException if the image cannot be read, also in the middle of the image
+	 */
+	public String parseLargeImage(File f, RecognitionListener listener) throws IOException {
+		long t1 = System.nanoTime();
+		
+		StringBuffer textBuffer = new StringBuffer();
+		StringBuffer wordBuffer = new StringBuffer();
+		StringBuilder candidateBuffer = new StringBuilder();
+		
+		// the rows come from the StripRowReader instead of a RowParser
+		BitmapParserDecorator bp = new CharacterParser(new WordParser(
+				new UnderlineRemover(null)));
+		
+		StripRowReader reader = new StripRowReader(f, Properties.stripHeight);
+		try {
+			ContrastMatrix row;
+			boolean firstRow = true;
+			while ((row = reader.readRow()) != null) {
+				List<ContrastMatrix> rowMatrices = new LinkedList<ContrastMatrix>();
+				if (!firstRow) {
+					rowMatrices.add(ContrastMatrix.getFunctionalMatrix(FunctionalCharacter.carriageReturn));
+				}
+				rowMatrices.add(row);
+				firstRow = false;
+				
+				List<ContrastMatrix> textRow = new ArrayList<ContrastMatrix>();
+				for (ContrastMatrix cm : bp.parse(rowMatrices)) {
+					add(cm, textRow, textBuffer, wordBuffer, candidateBuffer, listener);
+				}
+				recognizeRow(textRow, textBuffer, wordBuffer, candidateBuffer, listener);
+			}
+		} finally {
+			reader.close();
+		}
+		return finish(textBuffer, wordBuffer, candidateBuffer, listener, t1);
+	}
+	
+	/**
+	 * Add a matrix to the current text row, recognize the row when it is
+	 * complete
+	 */
+	private void add(ContrastMatrix cm, List<ContrastMatrix> row,
+			StringBuffer textBuffer, StringBuffer wordBuffer,
+			StringBuilder candidateBuffer, RecognitionListener listener) {
+		row.add(cm);
+		if (cm.getFunctionalChar() == FunctionalCharacter.carriageReturn) {
+			recognizeRow(row, textBuffer, wordBuffer, candidateBuffer, listener);
+		}
+	}
+
+	/**
+	 * Recognize the characters of a text row at once, then handle the
+	 * characters and functional characters in their order. The row is
+	 * cleared.
+	 */
+	private void recognizeRow(List<ContrastMatrix> row, StringBuffer textBuffer,
+			StringBuffer wordBuffer, StringBuilder candidateBuffer,
+			RecognitionListener listener) {
+		long t = System.nanoTime();
+		int count = 0;
+		for (ContrastMatrix cm : row) {
+			if (cm.getFunctionalChar() == null) {
+				count++;
+			}
+		}
+		RowBuffers buffers = rowBuffers.get();
+		buffers.ensureCapacity(count);
+		int i = 0;
+		for (ContrastMatrix cm : row) {
+			if (cm.getFunctionalChar() == null) {
+				CharacterRepresentation.extract(cm, buffers.input, i++ * Properties.nnInputLayerSize);
+			}
+		}
+		if (count > 0) {
+			nn.detectCharacters(buffers.input, count, buffers.hypotheses);
+		}
+		long t2 = System.nanoTime();
+		listener.stageFinished(Stage.network, t2 - t);
+
+		i = 0;
+		for (ContrastMatrix cm : row) {
+			char c = 0;
+			if(cm.getFunctionalChar() != null){
+				c = cm.getFunctionalChar().getCharacter();
+			}else{
+				Hypotheses hypotheses = buffers.hypotheses;
+				c = NeuralNetwork.getCharacter(hypotheses.getPosition(i, 0), hypotheses.getActivation(i, 0), listener);
+				for (int rank = 0; rank < hypotheses.getK(); rank++) {
+					candidateBuffer.append(hypotheses.getCharacter(i, rank));
+				}
+				i++;
+			}
+			//if the character is a functional character
+			if (cm.getFunctionalChar() != null) {
+				textBuffer.append(correctWord(wordBuffer, candidateBuffer, listener));
+				textBuffer.append(c);
+			} else {
+				wordBuffer.append(c);
+			}
+		}
+		row.clear();
+		listener.stageFinished(Stage.dictionary, System.nanoTime() - t2);
+	}
+	
+	/**
+	 * Correct a word with the dictionary, using the candidates of its
+	 * characters. Both buffers are cleared.
+	 */
+	private String correctWord(StringBuffer wordBuffer,
+			StringBuilder candidateBuffer, RecognitionListener listener) {
+		String word = wordBuffer.toString();
+		String correctedWord;
+		if (Properties.nnCandidates > 0) {
+			char[] candidates = new char[candidateBuffer.length()];
+			candidateBuffer.getChars(0, candidates.length, candidates, 0);
+			correctedWord = dic.correctWord(word, candidates, Properties.nnCandidates);
+		} else {
+			correctedWord = dic.correctWord(word);
+		}
+		listener.wordCorrected(word, correctedWord);
+		wordBuffer.setLength(0);
+		candidateBuffer.setLength(0);
+		return correctedWord;
+	}
+	
+	/**
+	 * Check the last word and return the parsed text
+	 */
+	private String finish(StringBuffer textBuffer, StringBuffer wordBuffer,
+			StringBuilder candidateBuffer, RecognitionListener listener, long t1) {
+		//check last word in dictionary
+		if (wordBuffer.length() > 0) {
+			textBuffer.append(correctWord(wordBuffer, candidateBuffer, listener));
+		}
+		listener.stageFinished(Stage.total, System.nanoTime() - t1);
+		
+		return textBuffer.toString().replace(Properties.unknownChar, '_');
+	}
+	
 	/**
 	 * Get the dictionary
 	 * @return dictionary
@@ -103,4 +309,19 @@ public class Ocr {
 		return dic;
 	}
 
+	/**
+	 * Input vectors and results of the characters of a text row
+	 */
+	private static class RowBuffers {
+		private double[] input = new double[0];
+		private Hypotheses hypotheses = new Hypotheses(Math.max(1, Properties.nnCandidates));
+
+		private void ensureCapacity(int count) {
+			if (input.length < count * Properties.nnInputLayerSize) {
+				int capacity = Math.max(count, 2 * input.length / Properties.nnInputLayerSize);
+				input = new double[capacity * Properties.nnInputLayerSize];
+			}
+		}
+	}
+
 }
@@ -0,0 +1,23 @@
+package ch.zhaw.ocr.textRecognition;
+
+/**
+ * RecognitionListener ignoring all events. The methods are empty, so the
+ * JIT removes their calls.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class RecognitionAdapter implements RecognitionListener {
+	// listener used when no one is interested in the events
+	public static final RecognitionListener none = new RecognitionAdapter();
+
+	@Override
+	public void glyphClassified(int position, char character, double emphasis) {
+	}
+
+	@Override
+	public void wordCorrected(String input, String output) {
+	}
+
+	@Override
+	public void stageFinished(Stage stage, long nanos) {
+	}
+}
@@ -0,0 +1,50 @@
+package ch.zhaw.ocr.textRecognition;
+
+/**
+ * Interface RecognitionListener. Receives the events of the recognition of a
+ * text (see Ocr), e.g. to show them in a console. The methods are called in
+ * the order of the characters by the thread parsing the text and must not
+ * block it.
+ * 
+ * Listeners interested in some events only extend RecognitionAdapter;
+ * RecognitionAdapter.none ignores all events.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ * 
+ */
+public interface RecognitionListener {
+
+	/**
+	 * Parts of the recognition whose time is reported
+	 * 
+	 * network: neural network computation of the characters of a text row.
+	 * dictionary: correction of the words of a text row.
+	 * total: whole text, reported once at the end.
+	 */
+	public enum Stage {
+		network,
+		dictionary,
+		total
+	}
+
+	/**
+	 * A character has been classified by the neural network
+	 * @param position position of the most likely character (see Properties.nnOutputLayer)
+	 * @param character most likely character, also if the emphasis is too low to use it
+	 * @param emphasis output value of this character
+	 */
+	public void glyphClassified(int position, char character, double emphasis);
+
+	/**
+	 * A word has been looked up in the dictionary
+	 * @param input recognized word
+	 * @param output corrected word
+	 */
+	public void wordCorrected(String input, String output);
+
+	/**
+	 * A stage of the recognition has been finished
+	 * @param stage
+	 * @param nanos duration in nanoseconds
+	 */
+	public void stageFinished(Stage stage, long nanos);
+}
@@ -0,0 +1,82 @@
+package ch.zhaw.ocr.nn.helper;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * FloatKernel using the Vector API: the products are summed up in as many
+ * lanes as the CPU provides (16 floats with AVX-512) with fused
+ * multiply-add, the lanes are added at the end. Only compiled by the maven
+ * profile "vector", loaded by Kernels.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class VectorFloatKernel implements FloatKernel {
+	private static final VectorSpecies<Float> species = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public float dot(float[] a, int aStart, float[] b, int bStart, int length) {
+		FloatVector acc = FloatVector.zero(species);
+		int upper = species.loopBound(length);
+		int k = 0;
+		for (; k < upper; k += species.length()) {
+			FloatVector va = FloatVector.fromArray(species, a, aStart + k);
+			acc = va.fma(FloatVector.fromArray(species, b, bStart + k), acc);
+		}
+		float sum = acc.reduceLanes(VectorOperators.ADD);
+		for (; k < length; k++) {
+			sum += a[aStart + k] * b[bStart + k];
+		}
+		return sum;
+	}
+
+	@Override
+	public void dot4(float[] a, int aStart, float[] b, int bStart, int bStride,
+			int length, float[] sums, int sumsStart) {
+		int b1 = bStart + bStride;
+		int b2 = b1 + bStride;
+		int b3 = b2 + bStride;
+		FloatVector acc0 = FloatVector.zero(species);
+		FloatVector acc1 = acc0;
+		FloatVector acc2 = acc0;
+		FloatVector acc3 = acc0;
+		int upper = species.loopBound(length);
+		int k = 0;
+		for (; k < upper; k += species.length()) {
+			FloatVector va = FloatVector.fromArray(species, a, aStart + k);
+			acc0 = va.fma(FloatVector.fromArray(species, b, bStart + k), acc0);
+			acc1 = va.fma(FloatVector.fromArray(species, b, b1 + k), acc1);
+			acc2 = va.fma(FloatVector.fromArray(species, b, b2 + k), acc2);
+			acc3 = va.fma(FloatVector.fromArray(species, b, b3 + k), acc3);
+		}
+		float z0 = acc0.reduceLanes(VectorOperators.ADD);
+		float z1 = acc1.reduceLanes(VectorOperators.ADD);
+		float z2 = acc2.reduceLanes(VectorOperators.ADD);
+		float z3 = acc3.reduceLanes(VectorOperators.ADD);
+		for (; k < length; k++) {
+			float v = a[aStart + k];
+			z0 += v * b[bStart + k];
+			z1 += v * b[b1 + k];
+			z2 += v * b[b2 + k];
+			z3 += v * b[b3 + k];
+		}
+		sums[sumsStart] = z0;
+		sums[sumsStart + 1] = z1;
+		sums[sumsStart + 2] = z2;
+		sums[sumsStart + 3] = z3;
+	}
+
+	@Override
+	public void axpy(float alpha, float[] x, int xStart, float[] y, int yStart, int length) {
+		FloatVector va = FloatVector.broadcast(species, alpha);
+		int upper = species.loopBound(length);
+		int k = 0;
+		for (; k < upper; k += species.length()) {
+			FloatVector vx = FloatVector.fromArray(species, x, xStart + k);
+			vx.fma(va, FloatVector.fromArray(species, y, yStart + k)).intoArray(y, yStart + k);
+		}
+		for (; k < length; k++) {
+			y[yStart + k] += alpha * x[xStart + k];
+		}
+	}
+}
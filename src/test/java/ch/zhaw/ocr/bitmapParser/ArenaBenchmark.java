@@ -0,0 +1,91 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Measures the bytes allocated per page by the segmentation of
+ * Ocr.parseImage (SinglePassParser(Downscaler(SimpleBitmapParser))) with
+ * and without a MatrixArena, for the images in the given directories
+ * (default: img). The images are decoded once up front.
+ * The allocations can also be recorded with JFR, e.g.
+ * java -XX:StartFlightRecording=filename=arena.jfr,settings=profile ...
+ * jfr print --events jdk.ObjectAllocationSample arena.jfr
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class ArenaBenchmark {
+	private static final int warmupRounds = 3;
+	private static final int rounds = 10;
+
+	public static void main(String[] args) throws Exception {
+		List<BufferedImage> images = new ArrayList<BufferedImage>();
+		for (String dir : args.length > 0 ? args : new String[] { "img" }) {
+			collectImages(new File(dir), images);
+		}
+		System.out.println(images.size() + " images");
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long[] bytes = new long[2];
+		long[] nanos = new long[2];
+		for (int round = 0; round < warmupRounds + rounds; round++) {
+			for (int arena = 0; arena < 2; arena++) {
+				long b = threads.getThreadAllocatedBytes(threadId);
+				long t = System.nanoTime();
+				parse(images, arena == 1);
+				if (round >= warmupRounds) {
+					nanos[arena] += System.nanoTime() - t;
+					bytes[arena] += threads.getThreadAllocatedBytes(threadId) - b;
+				}
+			}
+		}
+
+		long pages = (long) rounds * images.size();
+		System.out.println("without arena: " + bytes[0] / pages / 1024
+				+ " KiB per page, " + nanos[0] / rounds / 1000000 + "ms per round");
+		System.out.println("with arena:    " + bytes[1] / pages / 1024
+				+ " KiB per page, " + nanos[1] / rounds / 1000000 + "ms per round");
+	}
+
+	private static void parse(List<BufferedImage> images, boolean useArena) {
+		for (BufferedImage image : images) {
+			MatrixArena arena = useArena ? MatrixArena.open() : null;
+			try {
+				BitmapParser bp = new SinglePassParser(new Downscaler(
+						new SimpleBitmapParser()));
+				Iterator<ContrastMatrix> characters = bp.parseLazily(image);
+				while (characters.hasNext()) {
+					characters.next();
+				}
+			} catch (RuntimeException e) {
+				// some images make the underline detection fail
+			} finally {
+				if (arena != null) {
+					arena.release();
+				}
+			}
+		}
+	}
+
+	private static void collectImages(File f, List<BufferedImage> images) throws Exception {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				collectImages(child, images);
+			}
+		} else {
+			BufferedImage image = ImageIO.read(f);
+			if (image != null) {
+				images.add(image);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Compares the time needed by CharacterParser and ComponentParser to split
+ * the words of the images in the given directories (default: img) into
+ * characters. The words are found once up front, so only the character
+ * segmentation is measured.
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class ComponentBenchmark {
+	private static final int warmupRounds = 3;
+	private static final int rounds = 10;
+	
+	public static void main(String[] args) throws Exception {
+		List<BufferedImage> images = new ArrayList<BufferedImage>();
+		for (String dir : args.length > 0 ? args : new String[] { "img" }) {
+			collectImages(new File(dir), images);
+		}
+		
+		List<ContrastMatrix> words = new ArrayList<ContrastMatrix>();
+		for (BufferedImage image : images) {
+			try {
+				words.addAll(new WordParser(new UnderlineRemover(new RowParser(
+						new SimpleBitmapParser()))).parse(image));
+			} catch (RuntimeException e) {
+				// some images make the underline detection fail
+			}
+		}
+		System.out.println(images.size() + " images, " + words.size() + " words");
+		
+		long characterParser = 0;
+		long componentParser = 0;
+		int characters = 0;
+		int components = 0;
+		for (int round = 0; round < warmupRounds + rounds; round++) {
+			long t = System.nanoTime();
+			characters = new CharacterParser(null).parse(copy(words)).size();
+			long t1 = System.nanoTime() - t;
+			t = System.nanoTime();
+			components = new ComponentParser(null).parse(copy(words)).size();
+			long t2 = System.nanoTime() - t;
+			if (round >= warmupRounds) {
+				characterParser += t1;
+				componentParser += t2;
+			}
+		}
+		
+		System.out.println("CharacterParser: " + characterParser / rounds / 1000000
+				+ "ms per round, " + characters + " matrices");
+		System.out.println("ComponentParser: " + componentParser / rounds / 1000000
+				+ "ms per round, " + components + " matrices");
+	}
+	
+	/**
+	 * Fresh views on the words, since both parsers trim their input
+	 */
+	private static List<ContrastMatrix> copy(List<ContrastMatrix> words) {
+		List<ContrastMatrix> rv = new ArrayList<ContrastMatrix>();
+		for (ContrastMatrix m : words) {
+			if (m.getFunctionalChar() == null) {
+				rv.add(m.getSubMatrix(0, 0, m.getWidth(), m.getHeight()));
+			} else {
+				rv.add(m);
+			}
+		}
+		return rv;
+	}
+	
+	private static void collectImages(File f, List<BufferedImage> images) throws Exception {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				collectImages(child, images);
+			}
+		} else {
+			BufferedImage image = ImageIO.read(f);
+			if (image != null) {
+				images.add(image);
+			}
+		}
+	}
+}
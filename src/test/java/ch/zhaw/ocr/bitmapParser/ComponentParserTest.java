@@ -0,0 +1,112 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.zhaw.ocr.bitmapParser.BitmapParser;
+import ch.zhaw.ocr.bitmapParser.ComponentParser;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.FunctionalCharacter;
+
+public class ComponentParserTest {
+	private ContrastMatrix inputMatrix;
+	private List<ContrastMatrix> expectedResultList;
+	
+	private Mockery context;
+	
+	
+	@Before
+	public void setUp() throws Exception {
+		context = new JUnit4Mockery();
+				
+		inputMatrix = new ContrastMatrix(20, 8);
+		
+		// i: dot and stem
+		inputMatrix.setValue(1, 0, 1);
+		inputMatrix.setValue(1, 1, 1);
+		fillCol(inputMatrix, 1, 3, 7);
+		
+		// slash and underscore, sharing columns 7 and 8 without touching
+		for (int i = 0; i < 5; i++) {
+			inputMatrix.setValue(4 + i, 7 - i, 1);
+		}
+		for (int x = 7; x <= 12; x++) {
+			inputMatrix.setValue(x, 7, 1);
+		}
+		
+		// ä: two dots and a body
+		inputMatrix.setValue(14, 0, 1);
+		inputMatrix.setValue(18, 0, 1);
+		for (int x = 14; x <= 18; x++) {
+			fillCol(inputMatrix, x, 3, 7);
+		}
+		
+		//set up desired result
+		expectedResultList = new LinkedList<ContrastMatrix>();
+		
+		ContrastMatrix cm = new ContrastMatrix(1, 8);
+		cm.setValue(0, 0, 1);
+		cm.setValue(0, 1, 1);
+		fillCol(cm, 0, 3, 7);
+		expectedResultList.add(cm);
+		
+		cm = new ContrastMatrix(5, 5);
+		for (int i = 0; i < 5; i++) {
+			cm.setValue(i, 4 - i, 1);
+		}
+		expectedResultList.add(cm);
+		
+		cm = new ContrastMatrix(6, 1);
+		for (int x = 0; x < 6; x++) {
+			cm.setValue(x, 0, 1);
+		}
+		expectedResultList.add(cm);
+		
+		cm = new ContrastMatrix(5, 8);
+		cm.setValue(0, 0, 1);
+		cm.setValue(4, 0, 1);
+		for (int x = 0; x < 5; x++) {
+			fillCol(cm, x, 3, 7);
+		}
+		expectedResultList.add(cm);
+		
+		expectedResultList.add(new ContrastMatrix(FunctionalCharacter.space));
+	}
+	
+	private void fillCol(ContrastMatrix cm, int colNo, int startY, int endY){
+		for(int y = startY;y <= endY;y++){
+				cm.setValue(colNo, y, 1);
+		}
+	}
+
+	@Test
+	public void testParse() {
+		//input matrices
+		final List<ContrastMatrix> inputList = new LinkedList<ContrastMatrix>();
+		inputList.add(inputMatrix);
+		inputList.add(new ContrastMatrix(FunctionalCharacter.space));
+		
+		
+		final BitmapParser bp = context.mock(BitmapParser.class);
+		
+		context.checking(new Expectations() {{
+			oneOf (bp).parse(null); will(returnValue(inputList));
+	    }});
+
+		
+		BitmapParser instance = new ComponentParser(bp);
+		List<ContrastMatrix> parsedList = instance.parse(null);
+		
+		assertTrue(parsedList.equals(expectedResultList));
+		assertTrue(parsedList.get(4).getFunctionalChar() == FunctionalCharacter.space);
+	}
+
+}
@@ -2,6 +2,8 @@ package ch.zhaw.ocr.bitmapParser;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -51,6 +53,17 @@ public class ContrastMatrixTest {
 		assertTrue(cm.getFunctionalChar().equals(fc));
 	}
 
+	@Test
+	public void testGetFunctionalMatrix() {
+		for (FunctionalCharacter fc : FunctionalCharacter.values()) {
+			ContrastMatrix cm = ContrastMatrix.getFunctionalMatrix(fc);
+
+			assertTrue(cm.getFunctionalChar() == fc);
+			assertSame(cm, ContrastMatrix.getFunctionalMatrix(fc));
+			assertTrue(cm.equals(new ContrastMatrix(fc)));
+		}
+	}
+
 	@Test
 	public void testToString() {
 		String refValue = "1 0 0 0" + System.getProperty("line.separator")
@@ -168,6 +181,56 @@ public class ContrastMatrixTest {
 		assertTrue(cm2.equals(cm));
 	}
 
+	@Test
+	public void testSubMatrixCopyOnWrite() {
+		ContrastMatrix sub = exampleMatrix.getSubMatrix(1, 1, 2, 2);
+		
+		// writing to the sub matrix must not change the parent and vice versa
+		sub.setValue(1, 0, 1);
+		exampleMatrix.setValue(1, 1, 0);
+		
+		assertTrue(sub.getValue(1, 0) == 1);
+		assertTrue(sub.getValue(0, 0) == 1);
+		assertTrue(exampleMatrix.getValue(2, 1) == 0);
+		assertTrue(exampleMatrix.getValue(1, 1) == 0);
+	}
+	
+	@Test
+	public void testTrimSubMatrix() {
+		ContrastMatrix cm = new ContrastMatrix(100, 10);
+		cm.setValue(70, 3, 1);
+		cm.setValue(72, 5, 1);
+		
+		ContrastMatrix sub = cm.getSubMatrix(60, 2, 30, 6);
+		sub.trim();
+		
+		ContrastMatrix cm2 = new ContrastMatrix(3, 3);
+		cm2.setValue(0, 0, 1);
+		cm2.setValue(2, 2, 1);
+		
+		assertTrue(sub.equals(cm2));
+		
+		sub.compact();
+		assertTrue(sub.equals(cm2));
+	}
+
+	@Test
+	public void testInkCount() {
+		assertTrue(exampleMatrix.getRowInkCount(2) == 1);
+		assertTrue(exampleMatrix.getColInkCount(3) == 1);
+		
+		// cached counts must follow changes of the values
+		exampleMatrix.setValue(0, 2, 1);
+		exampleMatrix.setValue(2, 2, 0);
+		assertTrue(exampleMatrix.getRowInkCount(2) == 1);
+		assertTrue(exampleMatrix.getColInkCount(0) == 2);
+		assertTrue(exampleMatrix.isEmptyCol(2));
+		
+		exampleMatrix.invertMatrix();
+		assertTrue(exampleMatrix.getRowInkCount(2) == 3);
+		assertTrue(exampleMatrix.isFullCol(2));
+	}
+	
 	@Test
 	public void testIsFullRow(){
 		ContrastMatrix cm = new ContrastMatrix(2, 2);
@@ -216,6 +279,19 @@ public class ContrastMatrixTest {
 		assertTrue(cm.isFull(1,2,1,2));
 	}
 	
+	@Test
+	public void testGetInkCount(){
+		assertTrue(exampleMatrix.getInkCount(0, 3, 0, 3) == 4);
+		assertTrue(exampleMatrix.getInkCount(1, 2, 0, 3) == 2);
+		assertTrue(exampleMatrix.getInkCount(1, 3, 0, 0) == 0);
+		
+		// summed-area table must be rebuilt after a change
+		exampleMatrix.setValue(3, 0, 1);
+		assertTrue(exampleMatrix.getInkCount(1, 3, 0, 0) == 1);
+		assertTrue(exampleMatrix.isEmpty(1, 2, 0, 0));
+		assertFalse(exampleMatrix.isEmpty(1, 5, 0, 0));
+	}
+	
 	@Test
 	public void testTrim() {
 		ContrastMatrix cm2 = new ContrastMatrix(2, 2);
@@ -231,6 +307,123 @@ public class ContrastMatrixTest {
 		assertTrue(cm.equals(cm2));
 	}
 
-	
-	
+	@Test
+	public void testWideMatrix() {
+		// more than 64 pixels per row => values span several words
+		ContrastMatrix cm = new ContrastMatrix(130, 3);
+		for (int x = 0; x < cm.getWidth(); x++) {
+			cm.setValue(x, 1, 1);
+		}
+		cm.setValue(70, 0, 1);
+		cm.setValue(129, 2, 1);
+
+		assertTrue(cm.isFullRow(1));
+		assertFalse(cm.isFullRow(0));
+		assertFalse(cm.isEmptyRow(2));
+		assertFalse(cm.isFullCol(128));
+		assertFalse(cm.isEmptyCol(129));
+
+		cm.removeCol(64);
+		assertTrue(cm.getWidth() == 129);
+		assertTrue(cm.getValue(69, 0) == 1);
+		assertTrue(cm.getValue(128, 2) == 1);
+		assertTrue(cm.isFullRow(1));
+
+		cm.invertMatrix();
+		assertTrue(cm.isEmptyRow(1));
+		assertTrue(cm.getValue(69, 0) == 0);
+		assertTrue(cm.getValue(0, 0) == 1);
+	}
+
+	@Test
+	public void testRunLengthMatrix() {
+		Random random = new Random(11);
+		ContrastMatrix dense = new ContrastMatrix(150, 20);
+		for (int y = 0; y < dense.getHeight(); y++) {
+			// runs of random length, some crossing word borders
+			int x = random.nextInt(10);
+			while (x < dense.getWidth()) {
+				int end = Math.min(dense.getWidth(), x + 1 + random.nextInt(70));
+				for (; x < end; x++) {
+					dense.setValue(x, y, 1);
+				}
+				x += 1 + random.nextInt(20);
+			}
+		}
+		dense.setValue(5, 3, 0);
+		for (int x = 0; x < dense.getWidth(); x++) {
+			dense.setValue(x, 7, 1);
+		}
+
+		ContrastMatrix runs = dense.toRunLengthMatrix();
+		assertTrue(runs.isRunLengthEncoded());
+		assertFalse(dense.isRunLengthEncoded());
+		assertSameValues(dense, runs);
+
+		// views
+		assertSameValues(dense.getSubMatrix(30, 2, 100, 15),
+				runs.getSubMatrix(30, 2, 100, 15));
+		ContrastMatrix denseSub = dense.getSubMatrix(63, 9, 3, 4);
+		ContrastMatrix runsSub = runs.getSubMatrix(63, 9, 3, 4);
+		denseSub.trim();
+		runsSub.trim();
+		assertSameValues(denseSub, runsSub);
+
+		// writing to a view does not change the parent
+		runsSub.setValue(0, 0, 1 - runsSub.getValue(0, 0));
+		denseSub.setValue(0, 0, 1 - denseSub.getValue(0, 0));
+		assertSameValues(denseSub, runsSub);
+		assertSameValues(dense, runs);
+
+		// changes
+		for (int i = 0; i < 200; i++) {
+			int x = random.nextInt(dense.getWidth());
+			int y = random.nextInt(dense.getHeight());
+			int value = random.nextInt(2);
+			dense.setValue(x, y, value);
+			runs.setValue(x, y, value);
+		}
+		assertSameValues(dense, runs);
+		dense.removeCol(64);
+		runs.removeCol(64);
+		dense.removeRow(0);
+		runs.removeRow(0);
+		assertSameValues(dense, runs);
+		dense.invertMatrix();
+		runs.invertMatrix();
+		assertSameValues(dense, runs);
+		assertTrue(runs.isRunLengthEncoded());
+
+		// back to one bit per pixel
+		ContrastMatrix back = runs.getSubMatrix(1, 1, 120, 10).toDenseMatrix();
+		assertFalse(back.isRunLengthEncoded());
+		assertSameValues(dense.getSubMatrix(1, 1, 120, 10), back);
+	}
+
+	private void assertSameValues(ContrastMatrix expected, ContrastMatrix actual) {
+		assertTrue(expected.equals(actual));
+		assertTrue(actual.equals(expected));
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals(expected.getValue(x, y), actual.getValue(x, y));
+			}
+			assertEquals(expected.getRowInkCount(y), actual.getRowInkCount(y));
+			assertEquals(expected.isFullRow(y), actual.isFullRow(y));
+		}
+		for (int x = 0; x < expected.getWidth(); x++) {
+			assertEquals(expected.getColInkCount(x), actual.getColInkCount(x));
+			assertEquals(expected.isEmptyCol(x), actual.isEmptyCol(x));
+		}
+		Random random = new Random(expected.getWidth());
+		for (int i = 0; i < 50; i++) {
+			int startX = random.nextInt(expected.getWidth());
+			int startY = random.nextInt(expected.getHeight());
+			int endX = startX + random.nextInt(expected.getWidth() - startX);
+			int endY = startY + random.nextInt(expected.getHeight() - startY);
+			assertEquals(expected.getInkCount(startX, endX, startY, endY),
+					actual.getInkCount(startX, endX, startY, endY));
+			assertEquals(expected.isFull(startX, endX, startY, endY),
+					actual.isFull(startX, endX, startY, endY));
+		}
+	}
 }
@@ -0,0 +1,146 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.zhaw.ocr.bitmapParser.BitmapParser;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.Downscaler;
+import ch.zhaw.ocr.bitmapParser.FunctionalCharacter;
+
+public class DownscalerTest {
+	private Mockery context;
+
+
+	@Before
+	public void setUp() throws Exception {
+		context = new JUnit4Mockery();
+	}
+
+	private void fillRect(ContrastMatrix cm, int startX, int startY, int width, int height) {
+		for (int y = startY; y < startY + height; y++) {
+			for (int x = startX; x < startX + width; x++) {
+				cm.setValue(x, y, 1);
+			}
+		}
+	}
+
+	/**
+	 * Box filter computed pixel by pixel
+	 */
+	private ContrastMatrix naiveDownscale(ContrastMatrix m, int factor) {
+		int width = (m.getWidth() + factor - 1) / factor;
+		int height = (m.getHeight() + factor - 1) / factor;
+		ContrastMatrix rv = new ContrastMatrix(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int count = 0;
+				int size = 0;
+				for (int sy = y * factor; sy < Math.min((y + 1) * factor, m.getHeight()); sy++) {
+					for (int sx = x * factor; sx < Math.min((x + 1) * factor, m.getWidth()); sx++) {
+						count += m.getValue(sx, sy);
+						size++;
+					}
+				}
+				if (count > 0 && 2 * count >= size) {
+					rv.setValue(x, y, 1);
+				}
+			}
+		}
+		return rv;
+	}
+
+	private ContrastMatrix randomMatrix(int width, int height) {
+		Random random = new Random(42);
+		ContrastMatrix m = new ContrastMatrix(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (random.nextInt(3) == 0) {
+					m.setValue(x, y, 1);
+				}
+			}
+		}
+		return m;
+	}
+
+	@Test
+	public void testLineHeight() {
+		ContrastMatrix m = new ContrastMatrix(100, 120);
+		fillRect(m, 0, 10, 80, 20);
+		fillRect(m, 0, 40, 60, 20);
+		fillRect(m, 0, 70, 90, 20);
+		// specks of a scan
+		fillRect(m, 5, 100, 2, 2);
+		fillRect(m, 50, 110, 1, 1);
+
+		assertEquals(20, Downscaler.getLineHeight(m));
+		assertEquals(0, Downscaler.getLineHeight(new ContrastMatrix(10, 10)));
+	}
+
+	@Test
+	public void testDownscale() {
+		// sizes not divisible by the factor
+		ContrastMatrix m = randomMatrix(137, 95);
+		ContrastMatrix scaled = Downscaler.downscale(m, 3);
+
+		assertEquals(46, scaled.getWidth());
+		assertEquals(32, scaled.getHeight());
+		assertTrue(naiveDownscale(m, 3).equals(scaled));
+
+		m = randomMatrix(200, 64);
+		assertTrue(naiveDownscale(m, 4).equals(Downscaler.downscale(m, 4)));
+	}
+
+	@Test
+	public void testRunLength() {
+		ContrastMatrix m = randomMatrix(150, 70);
+		ContrastMatrix scaled = Downscaler.downscale(m.toRunLengthMatrix(), 2);
+
+		assertTrue(scaled.isRunLengthEncoded());
+		assertTrue(Downscaler.downscale(m, 2).equals(scaled));
+	}
+
+	@Test
+	public void testParse() {
+		// two text rows of 40 pixels and a page with small text
+		ContrastMatrix large = new ContrastMatrix(120, 100);
+		fillRect(large, 4, 0, 100, 40);
+		fillRect(large, 8, 60, 80, 40);
+		ContrastMatrix small = new ContrastMatrix(50, 30);
+		fillRect(small, 0, 0, 40, 15);
+
+		final List<ContrastMatrix> inputList = new LinkedList<ContrastMatrix>();
+		inputList.add(large);
+		inputList.add(new ContrastMatrix(FunctionalCharacter.carriageReturn));
+		inputList.add(small);
+
+		final BitmapParser bp = context.mock(BitmapParser.class);
+
+		context.checking(new Expectations() {{
+			oneOf (bp).parse(null); will(returnValue(inputList));
+		}});
+
+		BitmapParser instance = new Downscaler(bp, 10);
+		List<ContrastMatrix> parsedList = instance.parse(null);
+
+		ContrastMatrix expected = new ContrastMatrix(30, 25);
+		fillRect(expected, 1, 0, 25, 10);
+		fillRect(expected, 2, 15, 20, 10);
+
+		assertEquals(3, parsedList.size());
+		assertTrue(expected.equals(parsedList.get(0)));
+		assertTrue(parsedList.get(1).getFunctionalChar() == FunctionalCharacter.carriageReturn);
+		// rows lower than twice the target => unchanged
+		assertSame(small, parsedList.get(2));
+	}
+
+}
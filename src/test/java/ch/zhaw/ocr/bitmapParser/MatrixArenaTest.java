@@ -0,0 +1,117 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.MatrixArena;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+import ch.zhaw.ocr.bitmapParser.SinglePassParser;
+
+public class MatrixArenaTest {
+
+	@Test
+	public void testSizeClasses() {
+		for (int n = 16; n < 100000; n++) {
+			int c = MatrixArena.sizeClass(n);
+			int capacity = MatrixArena.capacity(c);
+			assertTrue(capacity >= n);
+			assertTrue(4 * capacity <= 5 * n + 4);
+			assertEquals(c, MatrixArena.sizeClass(capacity));
+		}
+	}
+
+	@Test
+	public void testReuse() {
+		MatrixArena arena = MatrixArena.open();
+		long[] longs = MatrixArena.longs(100);
+		int[] ints = MatrixArena.ints(50);
+		longs[99] = 7;
+		ints[49] = 7;
+		arena.release();
+		long allocated = arena.getAllocatedBytes();
+
+		arena = MatrixArena.open();
+		long[] longs2 = MatrixArena.longs(97);
+		int[] ints2 = MatrixArena.ints(50);
+		arena.release();
+
+		assertSame(longs, longs2);
+		assertSame(ints, ints2);
+		assertEquals(0, longs2[96]);
+		assertEquals(0, ints2[49]);
+		assertEquals(allocated, arena.getAllocatedBytes());
+	}
+
+	@Test
+	public void testClosedArena() {
+		MatrixArena arena = MatrixArena.open();
+		long[] longs = MatrixArena.longs(100);
+		arena.release();
+
+		// not taken from the pool
+		assertNotSame(longs, MatrixArena.longs(100));
+		assertEquals(100, MatrixArena.longs(100).length);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testOpenTwice() {
+		MatrixArena arena = MatrixArena.open();
+		try {
+			MatrixArena.open();
+		} finally {
+			arena.release();
+		}
+	}
+
+	@Test
+	public void testParse() {
+		List<ContrastMatrix> expected = new SinglePassParser(
+				new SimpleBitmapParser(null, 1)).parse(createImage("over the lazy dog"));
+
+		// the second page gets the used arrays of the first one
+		MatrixArena arena = MatrixArena.open();
+		new SinglePassParser(new SimpleBitmapParser(null, 1)).parse(createImage("the quick brown fox"));
+		arena.release();
+		arena = MatrixArena.open();
+		try {
+			List<ContrastMatrix> actual = new SinglePassParser(
+					new SimpleBitmapParser(null, 1)).parse(createImage("over the lazy dog"));
+
+			assertEquals(expected.size(), actual.size());
+			Iterator<ContrastMatrix> it = actual.iterator();
+			for (ContrastMatrix e : expected) {
+				ContrastMatrix a = it.next();
+				assertEquals(e.getFunctionalChar(), a.getFunctionalChar());
+				assertTrue(e.equals(a));
+			}
+		} finally {
+			arena.release();
+		}
+		assertTrue(arena.getRequestedBytes() > 0);
+	}
+
+	private BufferedImage createImage(String text) {
+		BufferedImage image = new BufferedImage(200, 90,
+				BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.setColor(Color.BLACK);
+		g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+		g.drawString(text, 5, 20);
+		g.drawString(text, 15, 50);
+		g.fillRect(5, 55, 150, 2);
+		g.drawString("0123456789", 20, 80);
+		g.dispose();
+		return image;
+	}
+}
@@ -0,0 +1,203 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.NetpbmReader;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+
+public class NetpbmReaderTest {
+	// not a multiple of 8 or 64 => padded rows
+	private static final int width = 150;
+	private static final int height = 40;
+
+	private Path imageFile;
+	private int[][] gray;
+
+
+	@Before
+	public void setUp() throws Exception {
+		imageFile = File.createTempFile("NetpbmReaderTest", ".pnm").toPath();
+
+		gray = new int[width][height];
+		Random random = new Random(12);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				// mostly bright
+				gray[x][y] = (random.nextInt(4) == 0) ? random.nextInt(256) : 255;
+			}
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.delete(imageFile);
+	}
+
+	@Test
+	public void testRawBitmap() throws Exception {
+		ByteArrayOutputStream out = header("P4", "");
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x += 8) {
+				int b = 0;
+				for (int i = 0; i < 8; i++) {
+					if (x + i < width && gray[x + i][y] < 128) {
+						b |= 0x80 >> i;
+					}
+				}
+				out.write(b);
+			}
+		}
+		assertReadLikeSimpleBitmapParser(out, 128, 1);
+	}
+
+	@Test
+	public void testPlainBitmap() throws Exception {
+		ByteArrayOutputStream out = header("P1", "");
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				out.write(gray[x][y] < 128 ? '1' : '0');
+				// whitespace is optional
+				if (x % 7 == 0) {
+					out.write('\n');
+				}
+			}
+		}
+		assertReadLikeSimpleBitmapParser(out, 128, 1);
+	}
+
+	@Test
+	public void testRawGraymap() throws Exception {
+		ByteArrayOutputStream out = header("P5", " 255");
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				out.write(gray[x][y]);
+			}
+		}
+		assertReadLikeSimpleBitmapParser(out, 150, 255);
+	}
+
+	@Test
+	public void testRawGraymap16Bit() throws Exception {
+		ByteArrayOutputStream out = header("P5", " 1020");
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int value = 4 * gray[x][y];
+				out.write(value >> 8);
+				out.write(value & 0xFF);
+			}
+		}
+		assertReadLikeSimpleBitmapParser(out, 150, 255);
+	}
+
+	@Test
+	public void testPlainGraymap() throws Exception {
+		ByteArrayOutputStream out = header("P2", "\n# maximum\n255");
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				out.write((gray[x][y] + " ").getBytes("US-ASCII"));
+			}
+			out.write('\n');
+		}
+		assertReadLikeSimpleBitmapParser(out, 150, 255);
+	}
+
+	@Test
+	public void testInvert() throws Exception {
+		// 3 x 2, all black except one pixel
+		Files.write(imageFile, new byte[] { 'P', '4', ' ', '3', ' ', '2', '\n',
+				(byte) 0xE0, (byte) 0xA0 });
+		ContrastMatrix cm = NetpbmReader.read(imageFile);
+
+		assertTrue(cm.getValue(1, 1) == 1);
+		assertTrue(cm.getInkCount(0, 2, 0, 1) == 1);
+	}
+
+	@Test
+	public void testOtherFormats() throws Exception {
+		ImageIO.write(new BufferedImage(5, 5, BufferedImage.TYPE_INT_RGB),
+				"png", imageFile.toFile());
+		assertFalse(NetpbmReader.canRead(imageFile));
+
+		Files.write(imageFile, "P3 1 1 255 0 0 0".getBytes("US-ASCII"));
+		assertFalse(NetpbmReader.canRead(imageFile));
+		try {
+			NetpbmReader.read(imageFile);
+			fail();
+		} catch (IOException e) {
+			// color images are not supported
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws Exception {
+		Files.write(imageFile, "P4 100 100\n".getBytes("US-ASCII"));
+		NetpbmReader.read(imageFile);
+	}
+
+	@Test
+	public void testInvalidSize() throws Exception {
+		String[] headers = { "P4\n2000000000 2000000000\n",
+				"P4\n100000 100000\n", "P1\n100000 100000\n",
+				"P5\n100000 100000\n255\n", "P4\n0 10\n" };
+		for (String h : headers) {
+			Files.write(imageFile, h.getBytes("US-ASCII"));
+			try {
+				// must not allocate the matrix before the size is checked
+				NetpbmReader.read(imageFile);
+				fail(h);
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	private ByteArrayOutputStream header(String magic, String maxValue)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write((magic + "\n# test image\n" + width + " " + height
+				+ maxValue + "\n").getBytes("US-ASCII"));
+		return out;
+	}
+
+	/**
+	 * Compare with the matrix of an RGB image: gray < threshold is black
+	 */
+	private void assertReadLikeSimpleBitmapParser(ByteArrayOutputStream out,
+			int threshold, int maxValue) throws Exception {
+		Files.write(imageFile, out.toByteArray());
+		assertTrue(NetpbmReader.canRead(imageFile));
+		ContrastMatrix cm = NetpbmReader.read(imageFile);
+
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int g = (maxValue == 1) ? ((gray[x][y] < threshold) ? 0 : 255)
+						: gray[x][y];
+				image.setRGB(x, y, (g << 16) | (g << 8) | g);
+			}
+		}
+		ContrastMatrix expected = new SimpleBitmapParser(null, 1).parse(image)
+				.get(0);
+
+		assertTrue(expected.equals(cm));
+		for (int x = 0; x < width; x++) {
+			assertEquals(expected.getColInkCount(x), cm.getColInkCount(x));
+		}
+	}
+}
@@ -96,6 +96,43 @@ public class RowParserTest {
 		}
 		assertTrue(parsedList.equals(expectedResultList));
 	}
+
+	/**
+	 * A row ending at the bottom edge of a matrix must not be continued in
+	 * the next matrix
+	 */
+	@Test
+	public void testParseTwoMatrices() {
+		ContrastMatrix first = new ContrastMatrix(10, 10);
+		fillRow(first, 0);
+		fillRow(first, 5);
+		fillRow(first, 9);
+		ContrastMatrix second = new ContrastMatrix(10, 3);
+		fillRow(second, 0);
+		fillRow(second, 2);
+
+		final List<ContrastMatrix> inputList = new LinkedList<ContrastMatrix>();
+		inputList.add(first);
+		inputList.add(second);
+		final BitmapParser bp = context.mock(BitmapParser.class);
+		context.checking(new Expectations() {{
+			oneOf (bp).parse(null); will(returnValue(inputList));
+		}});
+
+		BitmapParser instance = new RowParser(bp);
+		List<ContrastMatrix> parsedList = instance.parse(null);
+		// rows 0, 5 and 9 of the first matrix, rows 0 and 2 of the second one
+		List<ContrastMatrix> expected = new LinkedList<ContrastMatrix>();
+		for (int i = 0; i < 5; i++) {
+			ContrastMatrix cm = new ContrastMatrix(10, 1);
+			cm.invertMatrix();
+			expected.add(cm);
+			if (i != 2 && i != 4) {
+				expected.add(new ContrastMatrix(FunctionalCharacter.carriageReturn));
+			}
+		}
+		assertEquals(expected, parsedList);
+	}
 	
 
 }
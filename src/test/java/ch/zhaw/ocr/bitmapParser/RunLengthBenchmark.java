@@ -0,0 +1,128 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Compares bit-packed and run-length encoded pages of the images in the
+ * given directories (default: img): the estimated memory per page and the
+ * time needed to split the pages into text rows and remove the underlines.
+ * The images are binarized once up front, so only the segmentation is
+ * measured.
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class RunLengthBenchmark {
+	private static final int warmupRounds = 3;
+	private static final int rounds = 10;
+	
+	public static void main(String[] args) throws Exception {
+		List<BufferedImage> images = new ArrayList<BufferedImage>();
+		for (String dir : args.length > 0 ? args : new String[] { "img" }) {
+			collectImages(new File(dir), images);
+		}
+		System.out.println(images.size() + " images");
+		
+		List<ContrastMatrix> densePages = new ArrayList<ContrastMatrix>();
+		List<ContrastMatrix> runPages = new ArrayList<ContrastMatrix>();
+		long denseBytes = 0;
+		long runBytes = 0;
+		for (BufferedImage image : images) {
+			ContrastMatrix page = new SimpleBitmapParser().parse(image).get(0);
+			densePages.add(page);
+			runPages.add(page.toRunLengthMatrix());
+			denseBytes += denseBytes(page);
+			runBytes += runLengthBytes(page);
+		}
+		System.out.println("bit-packed pages: " + denseBytes / 1024 + " KiB");
+		System.out.println("run-length pages: " + runBytes / 1024 + " KiB");
+		
+		long dense = 0;
+		long runs = 0;
+		for (int round = 0; round < warmupRounds + rounds; round++) {
+			long t1 = time(densePages);
+			long t2 = time(runPages);
+			if (round >= warmupRounds) {
+				dense += t1;
+				runs += t2;
+			}
+		}
+		
+		System.out.println("bit-packed: " + dense / rounds / 1000000 + "ms per round");
+		System.out.println("run-length: " + runs / rounds / 1000000 + "ms per round");
+	}
+	
+	private static long time(List<ContrastMatrix> pages) {
+		final Iterator<ContrastMatrix> it = pages.iterator();
+		// returns a fresh view on the next page on every call
+		BitmapParser binarized = new BitmapParser() {
+			@Override
+			public List<ContrastMatrix> parse(BufferedImage image) {
+				ContrastMatrix page = it.next();
+				List<ContrastMatrix> rv = new ArrayList<ContrastMatrix>();
+				rv.add(page.getSubMatrix(0, 0, page.getWidth(), page.getHeight()));
+				return rv;
+			}
+			
+			@Override
+			public Iterator<ContrastMatrix> parseLazily(BufferedImage image) {
+				return parse(image).iterator();
+			}
+		};
+		
+		BitmapParser bp = new UnderlineRemover(new RowParser(binarized));
+		long t = System.nanoTime();
+		for (int i = 0; i < pages.size(); i++) {
+			try {
+				bp.parse(null);
+			} catch (RuntimeException e) {
+				// some images make the underline detection fail in both storages
+			}
+		}
+		return System.nanoTime() - t;
+	}
+	
+	/**
+	 * Row-major and column-major words of PackedBits
+	 */
+	private static long denseBytes(ContrastMatrix page) {
+		int w = page.getWidth();
+		int h = page.getHeight();
+		return 8L * (h * PackedBits.wordCount(w) + w * PackedBits.wordCount(h));
+	}
+	
+	/**
+	 * One array per row (header + reference) and two ints per run
+	 */
+	private static long runLengthBytes(ContrastMatrix page) {
+		long runCount = 0;
+		for (int y = 0; y < page.getHeight(); y++) {
+			long previous = 0;
+			for (int x = 0; x < page.getWidth(); x += 64) {
+				long word = page.rowBits(y, x) & PackedBits.mask(page.getWidth() - x);
+				// run starts: ink pixels without ink on their left
+				runCount += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+				previous = word;
+			}
+		}
+		return 20L * page.getHeight() + 8 * runCount;
+	}
+	
+	private static void collectImages(File f, List<BufferedImage> images) throws Exception {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				collectImages(child, images);
+			}
+		} else {
+			BufferedImage image = ImageIO.read(f);
+			if (image != null) {
+				images.add(image);
+			}
+		}
+	}
+}
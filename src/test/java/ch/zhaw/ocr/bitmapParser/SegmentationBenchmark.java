@@ -0,0 +1,93 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Compares the time needed by the decorator chain and the SinglePassParser
+ * to segment the images in the given directories (default: img). The images
+ * are binarized once up front, so only the segmentation is measured.
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class SegmentationBenchmark {
+	private static final int warmupRounds = 3;
+	private static final int rounds = 10;
+	
+	public static void main(String[] args) throws Exception {
+		List<BufferedImage> images = new ArrayList<BufferedImage>();
+		for (String dir : args.length > 0 ? args : new String[] { "img" }) {
+			collectImages(new File(dir), images);
+		}
+		System.out.println(images.size() + " images");
+		
+		final List<ContrastMatrix> pages = new ArrayList<ContrastMatrix>();
+		for (BufferedImage image : images) {
+			pages.addAll(new SimpleBitmapParser().parse(image));
+		}
+		
+		// returns a fresh view on the next binarized page on every call
+		BitmapParser binarized = new BitmapParser() {
+			private int next = 0;
+			
+			@Override
+			public List<ContrastMatrix> parse(BufferedImage image) {
+				ContrastMatrix page = pages.get(next++ % pages.size());
+				List<ContrastMatrix> rv = new ArrayList<ContrastMatrix>();
+				rv.add(page.getSubMatrix(0, 0, page.getWidth(), page.getHeight()));
+				return rv;
+			}
+			
+			@Override
+			public Iterator<ContrastMatrix> parseLazily(BufferedImage image) {
+				return parse(image).iterator();
+			}
+		};
+		
+		long chain = 0;
+		long singlePass = 0;
+		for (int round = 0; round < warmupRounds + rounds; round++) {
+			long t1 = time(new CharacterParser(new WordParser(new UnderlineRemover(
+					new RowParser(binarized)))), images);
+			long t2 = time(new SinglePassParser(binarized), images);
+			if (round >= warmupRounds) {
+				chain += t1;
+				singlePass += t2;
+			}
+		}
+		
+		System.out.println("chain:       " + chain / rounds / 1000000 + "ms per round");
+		System.out.println("single pass: " + singlePass / rounds / 1000000 + "ms per round");
+		System.out.println("speedup:     " + (double) chain / singlePass);
+	}
+	
+	private static long time(BitmapParser bp, List<BufferedImage> images) {
+		long t = System.nanoTime();
+		for (BufferedImage image : images) {
+			try {
+				bp.parse(image);
+			} catch (RuntimeException e) {
+				// some images make the underline detection fail in both parsers
+			}
+		}
+		return System.nanoTime() - t;
+	}
+	
+	private static void collectImages(File f, List<BufferedImage> images) throws Exception {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				collectImages(child, images);
+			}
+		} else {
+			BufferedImage image = ImageIO.read(f);
+			if (image != null) {
+				images.add(image);
+			}
+		}
+	}
+}
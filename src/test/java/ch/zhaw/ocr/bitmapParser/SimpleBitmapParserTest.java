@@ -0,0 +1,217 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.RowParser;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+import ch.zhaw.ocr.bitmapParser.UnderlineRemover;
+
+public class SimpleBitmapParserTest {
+	private static final int width = 150;
+	private static final int height = 40;
+
+
+	@Test
+	public void testIntRgb() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_INT_RGB));
+	}
+
+	@Test
+	public void testIntArgb() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_INT_ARGB));
+	}
+
+	@Test
+	public void testIntBgr() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_INT_BGR));
+	}
+
+	@Test
+	public void test3ByteBgr() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_3BYTE_BGR));
+	}
+
+	@Test
+	public void test4ByteAbgr() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_4BYTE_ABGR));
+	}
+
+	@Test
+	public void testByteGray() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_BYTE_GRAY));
+	}
+
+	@Test
+	public void testByteIndexed() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_BYTE_INDEXED));
+	}
+
+	@Test
+	public void testByteBinary() {
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_BYTE_BINARY));
+	}
+
+	@Test
+	public void testUshortGray() {
+		// not read directly => getRGB per row
+		assertParsedLikeGetRGB(createImage(BufferedImage.TYPE_USHORT_GRAY));
+	}
+
+	@Test
+	public void testSubimage() {
+		// raster with a translated sample model
+		BufferedImage image = createImage(BufferedImage.TYPE_3BYTE_BGR);
+		assertParsedLikeGetRGB(image.getSubimage(7, 3, 100, 30));
+
+		image = createImage(BufferedImage.TYPE_BYTE_BINARY);
+		assertParsedLikeGetRGB(image.getSubimage(5, 2, 70, 20));
+	}
+
+	@Test
+	public void testInvert() {
+		BufferedImage image = new BufferedImage(3, 2,
+				BufferedImage.TYPE_INT_RGB);
+		image.setRGB(1, 1, 0xFFFFFF);
+
+		ContrastMatrix cm = new SimpleBitmapParser().parse(image).get(0);
+
+		// more dark than bright pixels => inverted
+		assertTrue(cm.getValue(1, 1) == 1);
+		assertTrue(cm.getInkCount(0, 2, 0, 1) == 1);
+	}
+
+	@Test
+	public void testParallel() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		int[] types = { BufferedImage.TYPE_INT_RGB,
+				BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_INDEXED,
+				BufferedImage.TYPE_USHORT_GRAY };
+
+		for (int type : types) {
+			BufferedImage image = createImage(type);
+			ContrastMatrix sequential = new SimpleBitmapParser(null, 1).parse(
+					image).get(0);
+			// bands of 3 and 4 rows, column bands of one word
+			ContrastMatrix parallel = new SimpleBitmapParser(pool, 3).parse(
+					image).get(0);
+
+			assertTrue(parallel.equals(sequential));
+			for (int x = 0; x < image.getWidth(); x++) {
+				assertEquals(sequential.getColInkCount(x),
+						parallel.getColInkCount(x));
+			}
+		}
+		pool.shutdown();
+	}
+
+	@Test
+	public void testRunLength() {
+		int[] types = { BufferedImage.TYPE_INT_RGB,
+				BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_USHORT_GRAY };
+
+		for (int type : types) {
+			BufferedImage image = createImage(type);
+			ContrastMatrix dense = new SimpleBitmapParser(null, 1).parse(image)
+					.get(0);
+			// bands of 7 rows
+			ContrastMatrix runs = new SimpleBitmapParser(null, 7, true).parse(
+					image).get(0);
+
+			assertTrue(runs.isRunLengthEncoded());
+			assertTrue(runs.equals(dense));
+			for (int x = 0; x < image.getWidth(); x++) {
+				assertEquals(dense.getColInkCount(x), runs.getColInkCount(x));
+			}
+		}
+	}
+
+	@Test
+	public void testRunLengthSegmentation() {
+		BufferedImage image = new BufferedImage(230, 120,
+				BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.setColor(Color.BLACK);
+		g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+		g.drawString("the quick brown", 12, 20);
+		g.drawString("fox jumps", 30, 50);
+		g.drawString("over the lazy dog", 5, 75);
+		// underline
+		g.fillRect(5, 80, 150, 2);
+		g.dispose();
+
+		List<ContrastMatrix> expected = new UnderlineRemover(new RowParser(
+				new SimpleBitmapParser(null, 1))).parse(image);
+		List<ContrastMatrix> actual = new UnderlineRemover(new RowParser(
+				new SimpleBitmapParser(null, 16, true))).parse(image);
+
+		// the text rows are found and cleaned up on the runs
+		assertTrue(expected.size() > 1);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ContrastMatrix m = actual.get(i);
+			assertTrue(expected.get(i).equals(m));
+			assertTrue(m.getFunctionalChar() != null || m.isRunLengthEncoded());
+		}
+	}
+
+	private BufferedImage createImage(int type) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		Random random = new Random(type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+
+	private void assertParsedLikeGetRGB(BufferedImage image) {
+		ContrastMatrix cm = new SimpleBitmapParser().parse(image).get(0);
+
+		int[][] expected = new int[image.getWidth()][image.getHeight()];
+		int darkCount = 0;
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				int rgb = image.getRGB(x, y);
+				if ((((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)) / 3 < 150) {
+					expected[x][y] = 1;
+					darkCount++;
+				}
+			}
+		}
+		boolean invert = darkCount > image.getWidth() * image.getHeight()
+				- darkCount;
+
+		assertTrue(cm.getWidth() == image.getWidth());
+		assertTrue(cm.getHeight() == image.getHeight());
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				int value = invert ? 1 - expected[x][y] : expected[x][y];
+				assertEquals(value, cm.getValue(x, y));
+			}
+		}
+
+		// the column-major copy must match the rows
+		for (int x = 0; x < image.getWidth(); x++) {
+			int count = 0;
+			for (int y = 0; y < image.getHeight(); y++) {
+				count += cm.getValue(x, y);
+			}
+			assertEquals(count, cm.getColInkCount(x));
+			assertEquals(count == 0, cm.isEmptyCol(x));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.zhaw.ocr.bitmapParser.BitmapParser;
+import ch.zhaw.ocr.bitmapParser.CharacterParser;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.RowParser;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+import ch.zhaw.ocr.bitmapParser.SinglePassParser;
+import ch.zhaw.ocr.bitmapParser.UnderlineRemover;
+import ch.zhaw.ocr.bitmapParser.WordParser;
+
+public class SinglePassParserTest {
+	private List<File> imageFiles;
+	
+	
+	@Before
+	public void setUp() throws Exception {
+		imageFiles = new LinkedList<File>();
+		File[] files = new File("img").listFiles();
+		assertNotNull(files);
+		for (File f : files) {
+			if (f.isFile()) {
+				imageFiles.add(f);
+			}
+		}
+	}
+	
+	@Test
+	public void testImages() throws Exception {
+		for (File f : imageFiles) {
+			BufferedImage image = ImageIO.read(f);
+			if (image != null) {
+				assertSameResult(f.getName(), parse(createChain(), image, false),
+						parse(new SinglePassParser(new SimpleBitmapParser()), image, false));
+			}
+		}
+	}
+	
+	@Test
+	public void testParseLazily() throws Exception {
+		for (File f : imageFiles) {
+			BufferedImage image = ImageIO.read(f);
+			if (image != null) {
+				Object expected = parse(createChain(), image, false);
+				assertSameResult(f.getName(), expected,
+						parse(createChain(), image, true));
+				assertSameResult(f.getName(), expected,
+						parse(new SinglePassParser(new SimpleBitmapParser()), image, true));
+			}
+		}
+	}
+	
+	private BitmapParser createChain() {
+		return new CharacterParser(new WordParser(new UnderlineRemover(
+				new RowParser(new SimpleBitmapParser()))));
+	}
+	
+	/**
+	 * Parse an image
+	 * @return list of contrast matrices or the class of the exception thrown
+	 */
+	private Object parse(BitmapParser bp, BufferedImage image, boolean lazily) {
+		try {
+			if (!lazily) {
+				return bp.parse(image);
+			}
+			List<ContrastMatrix> rv = new LinkedList<ContrastMatrix>();
+			Iterator<ContrastMatrix> it = bp.parseLazily(image);
+			while (it.hasNext()) {
+				rv.add(it.next());
+			}
+			return rv;
+		} catch (RuntimeException e) {
+			return e.getClass();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void assertSameResult(String name, Object expected, Object actual) {
+		if (!(expected instanceof List)) {
+			assertEquals(name, expected, actual);
+			return;
+		}
+		assertTrue(name, actual instanceof List);
+		List<ContrastMatrix> expectedList = (List<ContrastMatrix>) expected;
+		List<ContrastMatrix> actualList = (List<ContrastMatrix>) actual;
+		
+		assertEquals(name, expectedList.size(), actualList.size());
+		Iterator<ContrastMatrix> it = actualList.iterator();
+		for (ContrastMatrix e : expectedList) {
+			ContrastMatrix a = it.next();
+			assertEquals(name, e.getFunctionalChar(), a.getFunctionalChar());
+			assertTrue(name, e.equals(a));
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package ch.zhaw.ocr.bitmapParser;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.zhaw.ocr.bitmapParser.BitmapParserDecorator;
+import ch.zhaw.ocr.bitmapParser.CharacterParser;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.FunctionalCharacter;
+import ch.zhaw.ocr.bitmapParser.RowParser;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+import ch.zhaw.ocr.bitmapParser.StripRowReader;
+import ch.zhaw.ocr.bitmapParser.UnderlineRemover;
+import ch.zhaw.ocr.bitmapParser.WordParser;
+
+public class StripRowReaderTest {
+	private File imageFile;
+
+
+	@Before
+	public void setUp() throws Exception {
+		imageFile = File.createTempFile("StripRowReaderTest", ".png");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		imageFile.delete();
+	}
+
+	@Test
+	public void testRows() throws Exception {
+		BufferedImage image = createImage(Color.WHITE, Color.BLACK);
+
+		// strips smaller than, equal to and larger than a text row
+		assertRowsLikeRowParser(image, 5);
+		assertRowsLikeRowParser(image, 16);
+		assertRowsLikeRowParser(image, 1000);
+	}
+
+	@Test
+	public void testInvertedRows() throws Exception {
+		assertRowsLikeRowParser(createImage(Color.BLACK, Color.WHITE), 7);
+	}
+
+	@Test
+	public void testEmptyImage() throws Exception {
+		BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+		ImageIO.write(image, "png", imageFile);
+
+		StripRowReader reader = new StripRowReader(imageFile, 4);
+		assertNull(reader.readRow());
+		reader.close();
+	}
+
+	@Test
+	public void testParseRowByRow() throws Exception {
+		BufferedImage image = createImage(Color.WHITE, Color.BLACK);
+		ImageIO.write(image, "png", imageFile);
+
+		List<ContrastMatrix> expected = new CharacterParser(new WordParser(
+				new UnderlineRemover(new RowParser(new SimpleBitmapParser(
+						null, 1))))).parse(image);
+
+		// rows passed one by one, as done by Ocr.parseLargeImage
+		BitmapParserDecorator bp = new CharacterParser(new WordParser(
+				new UnderlineRemover(null)));
+		List<ContrastMatrix> actual = new LinkedList<ContrastMatrix>();
+		StripRowReader reader = new StripRowReader(imageFile, 9);
+		ContrastMatrix row;
+		boolean firstRow = true;
+		while ((row = reader.readRow()) != null) {
+			List<ContrastMatrix> rowMatrices = new LinkedList<ContrastMatrix>();
+			if (!firstRow) {
+				rowMatrices.add(new ContrastMatrix(FunctionalCharacter.carriageReturn));
+			}
+			rowMatrices.add(row);
+			firstRow = false;
+			actual.addAll(bp.parse(rowMatrices));
+		}
+		reader.close();
+
+		assertMatricesEqual(expected, actual);
+	}
+
+	private BufferedImage createImage(Color background, Color foreground) {
+		BufferedImage image = new BufferedImage(230, 120,
+				BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D g = image.createGraphics();
+		g.setColor(background);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.setColor(foreground);
+		g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+		g.drawString("the quick brown", 12, 20);
+		g.drawString("fox jumps", 30, 50);
+		g.drawString("over the lazy dog", 5, 75);
+		// underline
+		g.fillRect(5, 80, 150, 2);
+		g.drawString("0123456789", 40, 110);
+		g.dispose();
+		return image;
+	}
+
+	private void assertRowsLikeRowParser(BufferedImage image, int stripHeight)
+			throws Exception {
+		ImageIO.write(image, "png", imageFile);
+
+		List<ContrastMatrix> expected = new LinkedList<ContrastMatrix>();
+		for (ContrastMatrix m : new RowParser(new SimpleBitmapParser(null, 1))
+				.parse(image)) {
+			if (m.getFunctionalChar() == null) {
+				expected.add(m);
+			}
+		}
+
+		List<ContrastMatrix> actual = new LinkedList<ContrastMatrix>();
+		StripRowReader reader = new StripRowReader(imageFile, stripHeight);
+		ContrastMatrix row;
+		while ((row = reader.readRow()) != null) {
+			actual.add(row);
+		}
+		reader.close();
+
+		assertTrue(expected.size() > 1);
+		assertMatricesEqual(expected, actual);
+	}
+
+	private void assertMatricesEqual(List<ContrastMatrix> expected,
+			List<ContrastMatrix> actual) {
+		assertEquals(expected.size(), actual.size());
+		Iterator<ContrastMatrix> it = actual.iterator();
+		for (ContrastMatrix e : expected) {
+			ContrastMatrix a = it.next();
+			assertEquals(e.getFunctionalChar(), a.getFunctionalChar());
+			if (e.getFunctionalChar() == null) {
+				assertTrue(e.equals(a));
+			}
+		}
+	}
+}
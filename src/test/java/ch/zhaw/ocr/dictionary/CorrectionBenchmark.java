@@ -0,0 +1,93 @@
+package ch.zhaw.ocr.dictionary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import ch.zhaw.ocr.Properties;
+
+/**
+ * Compares the correction of noisy words by the whole alphabet with the
+ * correction by Properties.nnCandidates candidates per character (see
+ * Dictionary.correctWord(String, char[], int)). Words of the production
+ * dictionary get one unknown and one wrong character; the candidates of
+ * every character contain the right one at a random rank, as the
+ * hypotheses of the network do for most characters.
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class CorrectionBenchmark {
+	private static final int wordCount = 300;
+	private static final int warmupRounds = 2;
+	private static final int rounds = 5;
+	private static final String letters = "abcdefghijklmnopqrstuvwxyzäöü";
+
+	public static void main(String[] args) throws Exception {
+		Dictionary dict = new Dictionary("production");
+		int k = Math.max(1, Properties.nnCandidates);
+		Random random = new Random(7);
+
+		List<String> words = new ArrayList<String>();
+		for (String word : dict.getDictionary().keySet()) {
+			if (word.length() >= 5 && word.length() <= 10 && isLetters(word)) {
+				words.add(word);
+			}
+		}
+		Collections.sort(words);
+		Collections.shuffle(words, random);
+		words = words.subList(0, Math.min(wordCount, words.size()));
+
+		List<String> noisy = new ArrayList<String>();
+		List<char[]> candidates = new ArrayList<char[]>();
+		for (String word : words) {
+			char[] chars = word.toCharArray();
+			char[] c = new char[chars.length * k];
+			for (int i = 0; i < chars.length; i++) {
+				int right = random.nextInt(k);
+				for (int r = 0; r < k; r++) {
+					c[i * k + r] = (r == right) ? chars[i] : letters.charAt(random.nextInt(letters.length()));
+				}
+			}
+			int unknown = random.nextInt(chars.length);
+			int wrong = (unknown + 1 + random.nextInt(chars.length - 1)) % chars.length;
+			chars[unknown] = Properties.unknownChar;
+			chars[wrong] = letters.charAt(random.nextInt(letters.length()));
+			noisy.add(String.valueOf(chars));
+			candidates.add(c);
+		}
+		System.out.println(noisy.size() + " words, " + k + " candidates per character");
+
+		long[] nanos = new long[2];
+		int[] correct = new int[2];
+		for (int round = 0; round < warmupRounds + rounds; round++) {
+			for (int mode = 0; mode < 2; mode++) {
+				correct[mode] = 0;
+				long t = System.nanoTime();
+				for (int i = 0; i < noisy.size(); i++) {
+					String result = (mode == 0) ? dict.correctWord(noisy.get(i))
+							: dict.correctWord(noisy.get(i), candidates.get(i), k);
+					if (result.equals(words.get(i))) {
+						correct[mode]++;
+					}
+				}
+				if (round >= warmupRounds) {
+					nanos[mode] += System.nanoTime() - t;
+				}
+			}
+		}
+		System.out.println("alphabet: " + nanos[0] / rounds / noisy.size() / 1000
+				+ " us per word, " + correct[0] + " corrected");
+		System.out.println("candidates: " + nanos[1] / rounds / noisy.size() / 1000
+				+ " us per word, " + correct[1] + " corrected");
+	}
+
+	private static boolean isLetters(String word) {
+		for (char c : word.toCharArray()) {
+			if (letters.indexOf(c) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
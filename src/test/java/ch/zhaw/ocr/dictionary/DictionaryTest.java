@@ -80,4 +80,27 @@ public class DictionaryTest {
 				
 		assertTrue(expectedOutput.equals(output));
 	}
+	
+	@Test
+	public void candidatesTest(){
+		// "hallo" and "halle" are one replacement away, only "halle" uses a candidate
+		String testInput = "Hall"+Properties.unknownChar;
+		char[] candidates = "HhAaLlIlEcxX".toCharArray();
+		String output = dict.correctWord(testInput, candidates, 2);
+		
+		assertTrue("Halle".equals(output));
+		assertTrue("Hallo".equals(dict.correctWord(testInput)));
+	}
+	
+	@Test
+	public void candidatesSignTest(){
+		String testInput = "«quter";
+		// the candidates of the removed "«" are skipped
+		char[] candidates = "«.qgtuptepfr".toCharArray();
+		
+		assertTrue("«guter".equals(dict.correctWord(testInput, candidates, 2)));
+		// no candidate leads to a word of the dictionary
+		candidates[3] = 'p';
+		assertTrue("«quter".equals(dict.correctWord(testInput, candidates, 2)));
+	}
 }
@@ -0,0 +1,98 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.nn.helper.CostFunctionResult;
+import ch.zhaw.ocr.nn.helper.MatrixHelper;
+
+public class BackPropagationTest {
+	private static final int inputLayerSize = 20;
+	private static final int hiddenLayerSize = 10;
+	private static final int outputLayerSize = 5;
+
+	private List<Matrix> vectors = new ArrayList<Matrix>();
+	private List<Integer> expected = new ArrayList<Integer>();
+	private Matrix thetas;
+
+	public BackPropagationTest() {
+		Random random = new Random(59);
+		for (int i = 0; i < 30; i++) {
+			Matrix v = MatrixFactory.createMatrix(1, inputLayerSize);
+			for (int k = 0; k < inputLayerSize; k++) {
+				v.set(0, k, random.nextInt(5));
+			}
+			vectors.add(v);
+			expected.add(random.nextInt(outputLayerSize));
+		}
+		BackPropagation bp = new BackPropagation();
+		thetas = MatrixHelper.mergeThetas(
+				bp.randInitializeWeights(hiddenLayerSize, inputLayerSize),
+				bp.randInitializeWeights(outputLayerSize, hiddenLayerSize));
+	}
+
+	@Test
+	public void testFloatCostFunction() {
+		BackPropagation bp = new BackPropagation();
+		CostFunctionResult expectedResult = bp.nnCostFunction(thetas, inputLayerSize,
+				hiddenLayerSize, outputLayerSize, vectors, expected);
+		CostFunctionResult result = bp.nnCostFunction(thetas, inputLayerSize,
+				hiddenLayerSize, outputLayerSize, vectors, expected, Precision.float32);
+
+		assertEquals(expectedResult.getJ(), result.getJ(), 1e-5 * expectedResult.getJ());
+		Matrix expectedGrad = expectedResult.getTheta1Grad();
+		Matrix grad = result.getTheta1Grad();
+		assertEquals(expectedGrad.getRowCount(), grad.getRowCount());
+		for (int i = 0; i < grad.getRowCount(); i++) {
+			assertEquals(expectedGrad.get(i, 0), grad.get(i, 0), 1e-5);
+		}
+	}
+
+	/**
+	 * Output values rounded to 1 as floats (z = 25) must not make the costs
+	 * infinite or NaN
+	 */
+	@Test
+	public void testFloatSaturated() {
+		BackPropagation bp = new BackPropagation();
+		Matrix[] thetas = MatrixHelper.unmergeThetas(this.thetas, inputLayerSize, hiddenLayerSize, outputLayerSize);
+		Matrix theta2 = MatrixFactory.createMatrix(outputLayerSize, hiddenLayerSize + 1);
+		for (int o = 0; o < outputLayerSize; o++) {
+			theta2.set(o, 0, (o % 2 == 0) ? 25 : -25);
+		}
+		Matrix saturated = MatrixHelper.mergeThetas(thetas[0], theta2);
+		CostFunctionResult expectedResult = bp.nnCostFunction(saturated, inputLayerSize,
+				hiddenLayerSize, outputLayerSize, vectors, expected);
+		CostFunctionResult result = bp.nnCostFunction(saturated, inputLayerSize,
+				hiddenLayerSize, outputLayerSize, vectors, expected, Precision.float32);
+
+		assertFalse(Double.isNaN(result.getJ()) || Double.isInfinite(result.getJ()));
+		assertEquals(expectedResult.getJ(), result.getJ(), 1e-5 * expectedResult.getJ());
+	}
+
+	@Test
+	public void testDoublePrecisions() {
+		BackPropagation bp = new BackPropagation();
+		CostFunctionResult expectedResult = bp.nnCostFunction(thetas, inputLayerSize,
+				hiddenLayerSize, outputLayerSize, vectors, expected);
+		for (Precision precision : new Precision[] { Precision.float64, Precision.int8 }) {
+			CostFunctionResult result = bp.nnCostFunction(thetas, inputLayerSize,
+					hiddenLayerSize, outputLayerSize, vectors, expected, precision);
+			assertEquals(expectedResult.getJ(), result.getJ(), 0);
+			assertTrue(MatrixHelper.matrixEquals(expectedResult.getTheta1Grad(), result.getTheta1Grad()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSizes() {
+		new BackPropagation().nnCostFunctionFloat(thetas, inputLayerSize,
+				hiddenLayerSize, outputLayerSize, vectors, expected.subList(1, expected.size()));
+	}
+}
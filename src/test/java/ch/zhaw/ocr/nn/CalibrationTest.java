@@ -0,0 +1,40 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+
+public class CalibrationTest {
+
+	@Test
+	public void testCountSame() {
+		assertEquals(2, Calibration.countSame(new int[] { 1, 2, 3 }, new int[] { 1, 0, 3 }));
+	}
+
+	/**
+	 * Every precision recognizes the training material like the production
+	 * network with doubles (the report is left to Calibration.main)
+	 */
+	@Test
+	public void testProductionNetwork() throws Exception {
+		assumeTrue(new File(Properties.nnSerializationPath).exists());
+		NeuralNetwork nn = new NeuralNetwork("production", Precision.float64);
+		Calibration calibration = new Calibration(new File(Properties.nnResourcePath));
+		int[] reference = calibration.detect(Precision.float64.createEngine(nn.getTheta1(), nn.getTheta2()));
+
+		for (Precision precision : Precision.values()) {
+			int[] positions = calibration.detect(precision.createEngine(nn.getTheta1(), nn.getTheta2()));
+			// at most one character in 100 changes
+			int same = Calibration.countSame(reference, positions);
+			assertTrue(precision + ": " + same + " same",
+					100 * (calibration.getCharacterCount() - same) <= calibration.getCharacterCount());
+			assertTrue(precision + ": " + calibration.countCorrect(positions) + " correct",
+					calibration.countCorrect(positions) >= 0.99 * calibration.countCorrect(reference));
+		}
+	}
+}
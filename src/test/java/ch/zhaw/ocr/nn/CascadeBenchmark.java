@@ -0,0 +1,127 @@
+package ch.zhaw.ocr.nn;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ch.zhaw.ocr.dictionary.Dictionary;
+import ch.zhaw.ocr.textRecognition.Ocr;
+import ch.zhaw.ocr.textRecognition.RecognitionAdapter;
+
+/**
+ * Recognizes the images of the given directory (default: img) with the
+ * production network alone and with a Cascade in front of it, using the
+ * thresholds of the Properties or the ones given as second and third
+ * argument (minActivation, minMargin). Reports per
+ * image and in total the time of the network stage and of the whole
+ * recognition, the escalation rate and how many characters and texts are
+ * the same as with the full network.
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class CascadeBenchmark {
+	private static final int warmupRounds = 5;
+	private static final int rounds = 10;
+
+	/**
+	 * Records the characters and the time of the network stage
+	 */
+	private static class Recorder extends RecognitionAdapter {
+		private StringBuilder glyphs = new StringBuilder();
+		private long networkNanos;
+
+		@Override
+		public void glyphClassified(int position, char character, double emphasis) {
+			glyphs.append(character);
+		}
+
+		@Override
+		public void stageFinished(Stage stage, long nanos) {
+			if (stage == Stage.network) {
+				networkNanos += nanos;
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		NeuralNetwork nn = new NeuralNetwork("production");
+		Cascade cascade = new Cascade(nn);
+		if (args.length > 2) {
+			cascade = new Cascade(cascade.getSmallNetwork(), nn, Double.parseDouble(args[1]), Double.parseDouble(args[2]));
+		}
+		Dictionary dic = new Dictionary("production");
+		Ocr[] ocrs = { new Ocr(nn, dic), new Ocr(cascade, dic) };
+
+		File[] files = new File(args.length > 0 ? args[0] : "img").listFiles();
+		Arrays.sort(files);
+		List<File> images = new ArrayList<File>();
+		for (File f : files) {
+			String name = f.getName().toLowerCase();
+			if (name.endsWith(".png") || name.endsWith(".jpg")) {
+				images.add(f);
+			}
+		}
+
+		long[] networkNanos = new long[2];
+		long[] totalNanos = new long[2];
+		long characters = 0;
+		long sameCharacters = 0;
+		int sameTexts = 0;
+		int recognized = 0;
+		for (File image : images) {
+			Recorder[] recorders = new Recorder[2];
+			String[] texts = new String[2];
+			long[] nanos = new long[2];
+			cascade.resetStatistics();
+			try {
+				for (int round = 0; round < warmupRounds + rounds; round++) {
+					for (int mode = 0; mode < 2; mode++) {
+						Recorder recorder = new Recorder();
+						long t = System.nanoTime();
+						texts[mode] = ocrs[mode].parseImage(image, recorder);
+						if (round >= warmupRounds) {
+							nanos[mode] += System.nanoTime() - t;
+							recorders[mode] = recorder;
+							networkNanos[mode] += recorder.networkNanos;
+						}
+					}
+				}
+			} catch (RuntimeException e) {
+				System.out.println(image.getName() + ": " + e);
+				continue;
+			}
+			recognized++;
+			totalNanos[0] += nanos[0];
+			totalNanos[1] += nanos[1];
+			String full = recorders[0].glyphs.toString();
+			String first = recorders[1].glyphs.toString();
+			int same = 0;
+			for (int i = 0; i < full.length(); i++) {
+				if (full.charAt(i) == first.charAt(i)) {
+					same++;
+				}
+			}
+			characters += full.length();
+			sameCharacters += same;
+			if (texts[0].equals(texts[1])) {
+				sameTexts++;
+			}
+			System.out.println(image.getName() + ": " + full.length() + " characters, "
+					+ Math.round(100 * cascade.getEscalationRate()) + "% escalated, "
+					+ same + " same characters, network " + nanos(recorders[0].networkNanos)
+					+ " -> " + nanos(recorders[1].networkNanos) + ", total "
+					+ nanos(nanos[0] / rounds) + " -> " + nanos(nanos[1] / rounds));
+		}
+		System.out.println(recognized + " images, " + characters + " characters, "
+				+ sameCharacters + " same characters, " + sameTexts + " same texts");
+		System.out.println("network stage: " + nanos(networkNanos[0] / rounds) + " -> " + nanos(networkNanos[1] / rounds)
+				+ " (speedup " + String.format("%.2f", (double) networkNanos[0] / networkNanos[1]) + ")");
+		System.out.println("total: " + nanos(totalNanos[0] / rounds) + " -> " + nanos(totalNanos[1] / rounds)
+				+ " (speedup " + String.format("%.2f", (double) totalNanos[0] / totalNanos[1]) + ")");
+	}
+
+	private static String nanos(long nanos) {
+		return nanos / 1000000 + "ms";
+	}
+}
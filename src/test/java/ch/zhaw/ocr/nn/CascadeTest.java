@@ -0,0 +1,158 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static ch.zhaw.ocr.nn.TestMatrices.randomMatrix;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+
+public class CascadeTest {
+	private static final int count = 40;
+
+	private final Random random = new Random(37);
+	private final NeuralNetwork small = randomNetwork(8);
+	private final NeuralNetwork full = randomNetwork(Properties.nnHiddenLayerSize);
+	private final double[] input = new double[count * Properties.nnInputLayerSize];
+
+	public CascadeTest() {
+		for (int i = 0; i < input.length; i++) {
+			input[i] = random.nextInt(3) == 0 ? random.nextInt(10) : 0;
+		}
+	}
+
+	private NeuralNetwork randomNetwork(int hiddenLayerSize) {
+		return new NeuralNetwork(randomMatrix(random, hiddenLayerSize, Properties.nnInputLayerSize + 1),
+				randomMatrix(random, Properties.nnOutputLayerSize, hiddenLayerSize + 1));
+	}
+
+	private void assertSameHypotheses(Hypotheses expected, int expectedIndex, Hypotheses actual, int actualIndex) {
+		for (int rank = 0; rank < actual.getK(); rank++) {
+			assertEquals(expected.getPosition(expectedIndex, rank), actual.getPosition(actualIndex, rank));
+			assertEquals(expected.getActivation(expectedIndex, rank), actual.getActivation(actualIndex, rank), 0);
+		}
+	}
+
+	@Test
+	public void testNoEscalation() {
+		Cascade cascade = new Cascade(small, full, 0, -1);
+		Hypotheses expected = new Hypotheses(3);
+		small.detectCharacters(input, count, expected);
+		Hypotheses hypotheses = new Hypotheses(3);
+		cascade.detectCharacters(input, count, hypotheses);
+		for (int i = 0; i < count; i++) {
+			assertSameHypotheses(expected, i, hypotheses, i);
+		}
+		assertEquals(count, cascade.getCharacterCount());
+		assertEquals(0, cascade.getEscalationRate(), 0);
+	}
+
+	@Test
+	public void testFullEscalation() {
+		Cascade cascade = new Cascade(small, full, 2, 0);
+		Hypotheses expected = new Hypotheses(1);
+		full.detectCharacters(input, count, expected);
+		Hypotheses hypotheses = new Hypotheses(1);
+		cascade.detectCharacters(input, count, hypotheses);
+		for (int i = 0; i < count; i++) {
+			assertSameHypotheses(expected, i, hypotheses, i);
+		}
+		assertEquals(count, cascade.getEscalatedCount());
+		assertEquals(1, cascade.getEscalationRate(), 0);
+
+		cascade.resetStatistics();
+		assertEquals(0, cascade.getCharacterCount());
+		assertEquals(0, cascade.getEscalationRate(), 0);
+	}
+
+	/**
+	 * An int8 cascade runs both quantized engines on the same thread (fewer
+	 * vectors than a batch, on a new thread)
+	 */
+	@Test
+	public void testInt8() throws Exception {
+		final NeuralNetwork smallInt8 = new NeuralNetwork(small.getTheta1(), small.getTheta2(), Precision.int8);
+		final NeuralNetwork fullInt8 = new NeuralNetwork(full.getTheta1(), full.getTheta2(), Precision.int8);
+		final int vectors = Math.min(12, Properties.nnBatchSize);
+		final Hypotheses hypotheses = new Hypotheses(2);
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					new Cascade(smallInt8, fullInt8, 2, 0).detectCharacters(input, vectors, hypotheses);
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNull(error[0]);
+
+		Hypotheses expected = new Hypotheses(2);
+		fullInt8.detectCharacters(input, vectors, expected);
+		for (int i = 0; i < vectors; i++) {
+			assertSameHypotheses(expected, i, hypotheses, i);
+		}
+	}
+
+	@Test
+	public void testThresholds() {
+		Hypotheses first = new Hypotheses(3);
+		small.detectCharacters(input, count, first);
+		// thresholds escalating some of the characters
+		double[] margins = new double[count];
+		for (int i = 0; i < count; i++) {
+			margins[i] = first.getActivation(i, 0) - first.getActivation(i, 1);
+		}
+		Arrays.sort(margins);
+		double minActivation = first.getActivation(0, 0);
+		double minMargin = margins[count / 2];
+		Cascade cascade = new Cascade(small, full, minActivation, minMargin);
+		Hypotheses second = new Hypotheses(3);
+		full.detectCharacters(input, count, second);
+		Hypotheses hypotheses = new Hypotheses(3);
+		cascade.detectCharacters(input, count, hypotheses);
+
+		int escalated = 0;
+		for (int i = 0; i < count; i++) {
+			double activation = first.getActivation(i, 0);
+			if (activation < minActivation || activation - first.getActivation(i, 1) < minMargin) {
+				assertSameHypotheses(second, i, hypotheses, i);
+				escalated++;
+			} else {
+				assertSameHypotheses(first, i, hypotheses, i);
+			}
+		}
+		assertTrue(escalated > 0 && escalated < count);
+		assertEquals(escalated, cascade.getEscalatedCount());
+	}
+
+	/**
+	 * The cascade of the production networks recognizes the training
+	 * material at most one character in 100 worse than the full network
+	 */
+	@Test
+	public void testProductionCascade() throws Exception {
+		assumeTrue(new File(Properties.nnSerializationPath).exists()
+				&& new File(Properties.nnCascadeSerializationPath).exists());
+		Cascade cascade = new Cascade(new NeuralNetwork("production", Precision.float64));
+		assertEquals(Properties.nnCascadeHiddenLayerSize, cascade.getSmallNetwork().getHiddenLayerSize());
+		Calibration calibration = new Calibration(new File(Properties.nnResourcePath));
+
+		int[] reference = calibration.detect(cascade.getFullNetwork());
+		cascade.resetStatistics();
+		int[] positions = calibration.detect(cascade);
+		assertTrue(calibration.countCorrect(positions) + " correct, full network "
+				+ calibration.countCorrect(reference),
+				calibration.countCorrect(positions) >= 0.99 * calibration.countCorrect(reference));
+		assertTrue("escalation rate " + cascade.getEscalationRate(),
+				cascade.getEscalationRate() < 1);
+	}
+}
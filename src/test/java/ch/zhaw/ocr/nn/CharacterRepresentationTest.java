@@ -0,0 +1,113 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+
+public class CharacterRepresentationTest {
+	private static final int fieldNo = 20;
+
+	/**
+	 * Input vector computed field by field on the trimmed character
+	 */
+	private double[] reference(ContrastMatrix m) {
+		m = m.getSubMatrix(0, 0, m.getWidth(), m.getHeight());
+		m.trim();
+		int fh = Math.max(1, (int) Math.round(m.getHeight() / (double) fieldNo));
+		int fw = Math.max(1, (int) Math.round(m.getWidth() / (double) fieldNo));
+		double[] rv = new double[fieldNo * fieldNo];
+		for (int row = 0; row < fieldNo; row++) {
+			int startY = row * fh;
+			int endY = (row == fieldNo - 1) ? m.getHeight() - 1 : Math.min(startY + fh, m.getHeight()) - 1;
+			for (int col = 0; col < fieldNo; col++) {
+				int startX = col * fw;
+				int endX = (col == fieldNo - 1) ? m.getWidth() - 1 : Math.min(startX + fw, m.getWidth()) - 1;
+				for (int y = startY; y <= endY; y++) {
+					for (int x = startX; x <= endX; x++) {
+						rv[row * fieldNo + col] += m.getValue(x, y);
+					}
+				}
+			}
+		}
+		rv[0] /= fh * fw;
+		return rv;
+	}
+
+	private void assertSameValues(double[] expected, double[] actual, double delta) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], delta);
+		}
+	}
+
+	private ContrastMatrix randomCharacter(Random random, int width, int height) {
+		ContrastMatrix m = new ContrastMatrix(width, height);
+		// empty border of random size
+		for (int y = random.nextInt(3); y < height - random.nextInt(3); y++) {
+			for (int x = random.nextInt(3); x < width - random.nextInt(3); x++) {
+				if (random.nextInt(3) > 0) {
+					m.setValue(x, y, 1);
+				}
+			}
+		}
+		return m;
+	}
+
+	@Test
+	public void testExtract() {
+		Random random = new Random(7);
+		int[][] sizes = { { 1, 1 }, { 5, 9 }, { 19, 21 }, { 30, 41 },
+				{ 70, 50 }, { 150, 130 } };
+		for (int[] size : sizes) {
+			for (int i = 0; i < 10; i++) {
+				ContrastMatrix m = randomCharacter(random, size[0], size[1]);
+				double[] expected = reference(m);
+
+				double[] actual = new double[Properties.nnInputLayerSize + 3];
+				CharacterRepresentation.extract(m, actual, 3);
+				float[] actualFloat = new float[Properties.nnInputLayerSize + 1];
+				CharacterRepresentation.extract(m, actualFloat, 1);
+
+				for (int j = 0; j < expected.length; j++) {
+					assertEquals(expected[j], actual[3 + j], 0);
+					assertEquals((float) expected[j], actualFloat[1 + j], 0);
+				}
+				// the matrix is not trimmed
+				assertEquals(size[0], m.getWidth());
+				assertEquals(size[1], m.getHeight());
+			}
+		}
+	}
+
+	@Test
+	public void testSubMatrix() {
+		ContrastMatrix page = randomCharacter(new Random(3), 120, 80);
+		ContrastMatrix m = page.getSubMatrix(37, 11, 61, 45);
+
+		double[] actual = new double[Properties.nnInputLayerSize];
+		CharacterRepresentation.extract(m, actual, 0);
+		assertSameValues(reference(m), actual, 0);
+	}
+
+	@Test
+	public void testEmptyCharacter() {
+		double[] actual = new double[Properties.nnInputLayerSize];
+		actual[5] = 1;
+		CharacterRepresentation.extract(new ContrastMatrix(10, 10), actual, 0);
+		assertSameValues(new double[Properties.nnInputLayerSize], actual, 0);
+	}
+
+	@Test
+	public void testComparisonVector() {
+		ContrastMatrix m = randomCharacter(new Random(5), 33, 47);
+		double[] expected = reference(m);
+
+		CharacterRepresentation cr = new CharacterRepresentation(m);
+		assertSameValues(expected, cr.getComparisonVector()[0], 0);
+	}
+}
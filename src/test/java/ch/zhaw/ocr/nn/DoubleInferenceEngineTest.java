@@ -0,0 +1,87 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import static ch.zhaw.ocr.nn.TestMatrices.randomMatrix;
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.nn.helper.MatrixHelper;
+
+public class DoubleInferenceEngineTest {
+
+	/**
+	 * Output layer computed with the matrix operations
+	 */
+	private Matrix reference(Matrix theta1, Matrix theta2, double[] input, int offset) {
+		Matrix a1 = MatrixFactory.createMatrix(1, theta1.getColumnCount() - 1);
+		for (int i = 0; i < a1.getColumnCount(); i++) {
+			a1.set(0, i, input[offset + i]);
+		}
+		a1 = MatrixHelper.add1ToVector(a1, "horizontal");
+		Matrix a2 = MatrixHelper.sigmoid(theta1.mul(a1.transpose()));
+		a2 = MatrixHelper.add1ToVector(a2, "vertical");
+		return MatrixHelper.sigmoid(theta2.mul(a2));
+	}
+
+	@Test
+	public void testDetect() {
+		Random random = new Random(23);
+		// unit counts that are no multiples of four
+		Matrix theta1 = randomMatrix(random, 30, 51);
+		Matrix theta2 = randomMatrix(random, 7, 31);
+		DoubleInferenceEngine engine = new DoubleInferenceEngine(theta1, theta2);
+		assertEquals(50, engine.getInputSize());
+		assertEquals(7, engine.getOutputSize());
+
+		int count = 11;
+		double[] input = new double[3 + count * 50];
+		for (int i = 3; i < input.length; i++) {
+			input[i] = random.nextInt(4) == 0 ? random.nextInt(10) : 0;
+		}
+		int[] positions = new int[count + 2];
+		double[] emphasis = new double[count + 2];
+		engine.detect(input, 3, count, positions, emphasis, 2);
+
+		for (int i = 0; i < count; i++) {
+			Matrix a3 = reference(theta1, theta2, input, 3 + i * 50);
+			int bigestPos = 0;
+			for (int j = 1; j < a3.getRowCount(); j++) {
+				if (a3.get(j, 0) > a3.get(bigestPos, 0)) {
+					bigestPos = j;
+				}
+			}
+			assertEquals(bigestPos, positions[2 + i]);
+			// exactly the same value
+			assertEquals(a3.get(bigestPos, 0), emphasis[2 + i], 0);
+		}
+	}
+
+	@Test
+	public void testCopiesThetas() {
+		Random random = new Random(29);
+		Matrix theta1 = randomMatrix(random, 8, 5);
+		Matrix theta2 = randomMatrix(random, 3, 9);
+		DoubleInferenceEngine engine = new DoubleInferenceEngine(theta1, theta2);
+		double[] input = { 1, 2, 3, 4 };
+		int[] positions = new int[1];
+		double[] emphasis = new double[1];
+		engine.detect(input, 0, 1, positions, emphasis, 0);
+
+		theta2.set(0, 0, 100);
+		int[] positionsAfter = new int[1];
+		double[] emphasisAfter = new double[1];
+		engine.detect(input, 0, 1, positionsAfter, emphasisAfter, 0);
+		assertEquals(positions[0], positionsAfter[0]);
+		assertEquals(emphasis[0], emphasisAfter[0], 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalThetas() {
+		Random random = new Random(31);
+		new DoubleInferenceEngine(randomMatrix(random, 8, 5), randomMatrix(random, 3, 8));
+	}
+}
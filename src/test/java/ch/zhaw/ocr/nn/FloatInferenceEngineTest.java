@@ -0,0 +1,47 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import static ch.zhaw.ocr.nn.TestMatrices.randomMatrix;
+import hu.kazocsaba.math.matrix.Matrix;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FloatInferenceEngineTest {
+
+	@Test
+	public void testCloseToDouble() {
+		Random random = new Random(47);
+		// unit counts that are no multiples of four
+		Matrix theta1 = randomMatrix(random, 30, 51);
+		Matrix theta2 = randomMatrix(random, 7, 31);
+		InferenceEngine reference = new DoubleInferenceEngine(theta1, theta2);
+		InferenceEngine engine = new FloatInferenceEngine(theta1, theta2);
+
+		int count = 11;
+		double[] input = new double[2 + count * 50];
+		for (int i = 2; i < input.length; i++) {
+			input[i] = random.nextInt(4) == 0 ? random.nextInt(10) : 0;
+		}
+		int[] expectedPositions = new int[count];
+		double[] expectedEmphasis = new double[count];
+		reference.detect(input, 2, count, expectedPositions, expectedEmphasis, 0);
+		int[] positions = new int[count + 1];
+		double[] emphasis = new double[count + 1];
+		engine.detect(input, 2, count, positions, emphasis, 1);
+
+		for (int i = 0; i < count; i++) {
+			assertEquals(expectedPositions[i], positions[1 + i]);
+			assertEquals(expectedEmphasis[i], emphasis[1 + i], 1e-5);
+		}
+	}
+
+	@Test
+	public void testWeightBytes() {
+		Random random = new Random(53);
+		Matrix theta1 = randomMatrix(random, 8, 5);
+		Matrix theta2 = randomMatrix(random, 3, 9);
+		assertEquals(4 * (8 * 5 + 3 * 9), new FloatInferenceEngine(theta1, theta2).getWeightBytes());
+	}
+}
@@ -0,0 +1,107 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.bitmapParser.BitmapParser;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+import ch.zhaw.ocr.bitmapParser.SinglePassParser;
+import ch.zhaw.ocr.textRecognition.RecognitionAdapter;
+
+/**
+ * Measures the time and the bytes allocated per character for computing the
+ * input vector and running the production network, for the characters of
+ * the images in the given directories (default: img). Compares
+ * CharacterRepresentation + detectCharacter(Matrix) with
+ * CharacterRepresentation.extract + detectCharacter(double[]) (one
+ * character per InferenceEngine call, i.e. the latency of a character) and with
+ * detectCharacters on all characters (batches of Properties.nnBatchSize,
+ * Properties.nnThreads threads; the bytes are those of the current thread).
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class InferenceBenchmark {
+	private static final int warmupRounds = 3;
+	private static final int rounds = 10;
+
+	public static void main(String[] args) throws Exception {
+		List<ContrastMatrix> characters = new ArrayList<ContrastMatrix>();
+		for (String dir : args.length > 0 ? args : new String[] { "img" }) {
+			collectCharacters(new File(dir), characters);
+		}
+		System.out.println(characters.size() + " characters");
+
+		NeuralNetwork nn = new NeuralNetwork("production");
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		double[] input = new double[Properties.nnInputLayerSize];
+		double[] inputs = new double[characters.size() * Properties.nnInputLayerSize];
+		int[] positions = new int[characters.size()];
+		double[] emphasis = new double[characters.size()];
+
+		long[] bytes = new long[3];
+		long[] nanos = new long[3];
+		for (int round = 0; round < warmupRounds + rounds; round++) {
+			for (int mode = 0; mode < 3; mode++) {
+				long b = threads.getThreadAllocatedBytes(threadId);
+				long t = System.nanoTime();
+				if (mode == 2) {
+					for (int i = 0; i < characters.size(); i++) {
+						CharacterRepresentation.extract(characters.get(i), inputs, i * Properties.nnInputLayerSize);
+					}
+					nn.detectCharacters(inputs, characters.size(), positions, emphasis);
+				}
+				for (ContrastMatrix cm : mode == 2 ? new ArrayList<ContrastMatrix>() : characters) {
+					if (mode == 0) {
+						nn.detectCharacter(MatrixFactory.createMatrix(new CharacterRepresentation(cm).getComparisonVector()), RecognitionAdapter.none);
+					} else {
+						CharacterRepresentation.extract(cm, input, 0);
+						nn.detectCharacter(input, 0, RecognitionAdapter.none);
+					}
+				}
+				if (round >= warmupRounds) {
+					nanos[mode] += System.nanoTime() - t;
+					bytes[mode] += threads.getThreadAllocatedBytes(threadId) - b;
+				}
+			}
+		}
+
+		long n = (long) rounds * characters.size();
+		System.out.println("Matrix:  " + nanos[0] / n / 1000 + "us, " + bytes[0] / n + " bytes per character");
+		System.out.println("buffers: " + nanos[1] / n / 1000 + "us, " + bytes[1] / n + " bytes per character");
+		System.out.println("batches: " + nanos[2] / n / 1000 + "us, " + bytes[2] / n + " bytes per character");
+	}
+
+	private static void collectCharacters(File f, List<ContrastMatrix> characters) throws Exception {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				collectCharacters(child, characters);
+			}
+		} else {
+			BufferedImage image = ImageIO.read(f);
+			if (image == null) {
+				return;
+			}
+			BitmapParser bp = new SinglePassParser(new SimpleBitmapParser());
+			try {
+				for (ContrastMatrix cm : bp.parse(image)) {
+					if (cm.getFunctionalChar() == null) {
+						characters.add(cm);
+					}
+				}
+			} catch (RuntimeException e) {
+				// some images make the underline detection fail
+			}
+		}
+	}
+}
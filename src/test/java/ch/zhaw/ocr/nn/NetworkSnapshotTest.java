@@ -0,0 +1,131 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import static ch.zhaw.ocr.nn.TestMatrices.randomMatrix;
+import hu.kazocsaba.math.matrix.Matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+
+public class NetworkSnapshotTest {
+	private static final int count = 12;
+
+	@Test
+	public void testImmutable() {
+		Random random = new Random(31);
+		Matrix theta1 = randomMatrix(random, 8, 5);
+		Matrix theta2 = randomMatrix(random, 3, 9);
+		NetworkSnapshot snapshot = new NetworkSnapshot(theta1, theta2, Precision.float32);
+
+		// later changes of the matrices do not reach the snapshot
+		double value = theta1.get(2, 3);
+		theta1.set(2, 3, value + 1);
+		assertEquals(value, snapshot.getTheta1().get(2, 3), 0);
+		try {
+			snapshot.getTheta2().set(0, 0, 1);
+			fail("theta 2 of a snapshot must not change");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(Precision.float32, snapshot.getPrecision());
+		assertTrue(snapshot.getEngine() instanceof FloatInferenceEngine);
+	}
+
+	@Test
+	public void testSetTheta() {
+		Random random = new Random(37);
+		Matrix theta1 = randomMatrix(random, 8, 5);
+		Matrix theta2 = randomMatrix(random, 3, 9);
+		NeuralNetwork nn = new NeuralNetwork(theta1, theta2);
+		NetworkSnapshot first = nn.getSnapshot();
+
+		Matrix newTheta2 = randomMatrix(random, 3, 9);
+		nn.setThetas(theta1, newTheta2);
+		assertNotSame(first, nn.getSnapshot());
+		assertEquals(theta1.get(1, 1), nn.getTheta1().get(1, 1), 0);
+		assertEquals(newTheta2.get(1, 1), nn.getTheta2().get(1, 1), 0);
+		// the old snapshot is unchanged
+		assertEquals(theta2.get(1, 1), first.getTheta2().get(1, 1), 0);
+
+		NetworkSnapshot previous = nn.getSnapshot();
+		NetworkSnapshot quantized = new NetworkSnapshot(theta1, theta2, Precision.int8);
+		assertSame(previous, nn.setSnapshot(quantized));
+		assertSame(quantized, nn.getSnapshot());
+		assertEquals(Precision.int8, nn.getPrecision());
+	}
+
+	/**
+	 * Recognize characters in several threads while the thetas are swapped
+	 * between two networks: every batch must be computed by one of them.
+	 */
+	@Test
+	public void testConcurrentSwap() throws Exception {
+		Random random = new Random(41);
+		final Matrix[][] thetas = new Matrix[2][];
+		final int[][] expected = new int[2][];
+		final double[] input = new double[count * Properties.nnInputLayerSize];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = random.nextInt(3) == 0 ? random.nextInt(10) : 0;
+		}
+		for (int n = 0; n < 2; n++) {
+			thetas[n] = new Matrix[] {
+					randomMatrix(random, Properties.nnHiddenLayerSize, Properties.nnInputLayerSize + 1),
+					randomMatrix(random, Properties.nnOutputLayerSize, Properties.nnHiddenLayerSize + 1) };
+			expected[n] = new int[count];
+			new NeuralNetwork(thetas[n][0], thetas[n][1]).detectCharacters(input, count,
+					expected[n], new double[count]);
+		}
+		assertFalse(Arrays.equals(expected[0], expected[1]));
+
+		final NeuralNetwork nn = new NeuralNetwork(thetas[0][0], thetas[0][1]);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicInteger batches = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 3; t++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						int[] positions = new int[count];
+						double[] emphasis = new double[count];
+						while (running.get()) {
+							nn.detectCharacters(input, count, positions, emphasis);
+							if (!Arrays.equals(positions, expected[0]) && !Arrays.equals(positions, expected[1])) {
+								throw new AssertionError("result of mixed thetas: " + Arrays.toString(positions));
+							}
+							batches.incrementAndGet();
+						}
+					} catch (Throwable e) {
+						error.compareAndSet(null, e);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (int swap = 0; swap < 200; swap++) {
+			Matrix[] next = thetas[(swap + 1) % 2];
+			nn.setThetas(next[0], next[1]);
+			Thread.yield();
+		}
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (error.get() != null) {
+			throw new AssertionError(error.get());
+		}
+		assertTrue(batches.get() > 0);
+	}
+}
@@ -0,0 +1,229 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import static ch.zhaw.ocr.nn.TestMatrices.randomMatrix;
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.nn.helper.MatrixHelper;
+import ch.zhaw.ocr.textRecognition.ConsoleListener;
+
+public class NeuralNetworkTest {
+
+	@Test
+	public void testDetectCharacterBuffer() {
+		Random random = new Random(11);
+		NeuralNetwork nn = new NeuralNetwork(randomMatrix(random,
+				Properties.nnHiddenLayerSize, Properties.nnInputLayerSize + 1),
+				randomMatrix(random, Properties.nnOutputLayerSize,
+						Properties.nnHiddenLayerSize + 1));
+
+		for (int i = 0; i < 20; i++) {
+			double[] input = new double[Properties.nnInputLayerSize + 2];
+			for (int j = 2; j < input.length; j++) {
+				input[j] = random.nextInt(10);
+			}
+			Matrix m = MatrixFactory.createMatrix(1, Properties.nnInputLayerSize);
+			for (int j = 0; j < Properties.nnInputLayerSize; j++) {
+				m.set(0, j, input[j + 2]);
+			}
+
+			StringBuffer expected = new StringBuffer();
+			StringBuffer actual = new StringBuffer();
+			assertEquals(nn.detectCharacter(m, new ConsoleListener(expected)),
+					nn.detectCharacter(input, 2, new ConsoleListener(actual)));
+			// same position and emphasis, to the last digit
+			assertEquals(expected.toString(), actual.toString());
+		}
+	}
+
+	@Test
+	public void testDetectCharacters() {
+		Random random = new Random(13);
+		NeuralNetwork nn = new NeuralNetwork(randomMatrix(random,
+				Properties.nnHiddenLayerSize, Properties.nnInputLayerSize + 1),
+				randomMatrix(random, Properties.nnOutputLayerSize,
+						Properties.nnHiddenLayerSize + 1));
+
+		int count = 37;
+		double[] input = new double[count * Properties.nnInputLayerSize];
+		for (int i = 0; i < input.length; i++) {
+			// sparse like real characters
+			input[i] = random.nextInt(3) == 0 ? random.nextInt(10) : 0;
+		}
+		StringBuffer expected = new StringBuffer();
+		for (int i = 0; i < count; i++) {
+			nn.detectCharacter(input, i * Properties.nnInputLayerSize, new ConsoleListener(expected));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			for (int batchSize : new int[] { 1, 3, 4, 16, 37, 64 }) {
+				for (ForkJoinPool p : new ForkJoinPool[] { null, pool }) {
+					int[] positions = new int[count];
+					double[] emphasis = new double[count];
+					nn.detectCharacters(input, count, positions, emphasis, batchSize, p);
+
+					StringBuffer actual = new StringBuffer();
+					for (int i = 0; i < count; i++) {
+						NeuralNetwork.getCharacter(positions[i], emphasis[i], new ConsoleListener(actual));
+					}
+					// same position and emphasis, to the last digit
+					assertEquals(expected.toString(), actual.toString());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testDetectCharactersNewTheta() {
+		Random random = new Random(17);
+		NeuralNetwork nn = new NeuralNetwork(randomMatrix(random,
+				Properties.nnHiddenLayerSize, Properties.nnInputLayerSize + 1),
+				randomMatrix(random, Properties.nnOutputLayerSize,
+						Properties.nnHiddenLayerSize + 1));
+		double[] input = new double[Properties.nnInputLayerSize];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = random.nextInt(10);
+		}
+		int[] positions = new int[1];
+		double[] emphasis = new double[1];
+		nn.detectCharacters(input, 1, positions, emphasis);
+
+		// the weights of the batches follow the thetas
+		nn.setThetas(nn.getTheta1(), randomMatrix(random,
+				Properties.nnOutputLayerSize, Properties.nnHiddenLayerSize + 1));
+		StringBuffer expected = new StringBuffer();
+		nn.detectCharacter(input, 0, new ConsoleListener(expected));
+		nn.detectCharacters(input, 1, positions, emphasis);
+		StringBuffer actual = new StringBuffer();
+		NeuralNetwork.getCharacter(positions[0], emphasis[0], new ConsoleListener(actual));
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void testPrecision() {
+		Random random = new Random(19);
+		Matrix theta1 = randomMatrix(random, 8, 5);
+		Matrix theta2 = randomMatrix(random, 3, 9);
+		assertEquals(Precision.float64, new NeuralNetwork(theta1, theta2).getPrecision());
+		assertTrue(new NeuralNetwork(theta1, theta2).getEngine() instanceof DoubleInferenceEngine);
+		NeuralNetwork nn = new NeuralNetwork(theta1, theta2, Precision.int8);
+		assertEquals(Precision.int8, nn.getPrecision());
+		assertTrue(nn.getEngine() instanceof QuantizedInferenceEngine);
+		assertTrue(new NeuralNetwork(theta1, theta2, Precision.float32).getEngine() instanceof FloatInferenceEngine);
+	}
+
+	@Test
+	public void testSavePrecision() throws Exception {
+		Random random = new Random(23);
+		Matrix theta1 = randomMatrix(random, Properties.nnHiddenLayerSize, Properties.nnInputLayerSize + 1);
+		Matrix theta2 = randomMatrix(random, Properties.nnOutputLayerSize, Properties.nnHiddenLayerSize + 1);
+		File f = File.createTempFile("knn", ".ser");
+		try {
+			new NeuralNetwork(theta1, theta2, Precision.float32).saveNeuronalNetwork(f);
+			assertEquals("precision=float32", MatrixHelper.readComment(f));
+
+			// the precision of the file replaces the one of the network
+			NeuralNetwork nn = new NeuralNetwork(theta1, theta2, Precision.float64);
+			nn.loadNeuronalNetwork(f);
+			assertEquals(Precision.float32, nn.getPrecision());
+			assertEquals((float) theta1.get(3, 7), (float) nn.getTheta1().get(3, 7), 0);
+
+			// float64 files have the old format
+			new NeuralNetwork(theta1, theta2).saveNeuronalNetwork(f);
+			assertNull(MatrixHelper.readComment(f));
+			nn = new NeuralNetwork(theta1, theta2, Precision.int8);
+			nn.loadNeuronalNetwork(f);
+			assertEquals(Precision.int8, nn.getPrecision());
+			assertTrue(MatrixHelper.matrixEquals(theta1, nn.getTheta1()));
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testHiddenLayerSize() throws Exception {
+		Random random = new Random(31);
+		Matrix theta1 = randomMatrix(random, 8, Properties.nnInputLayerSize + 1);
+		Matrix theta2 = randomMatrix(random, Properties.nnOutputLayerSize, 8 + 1);
+		NeuralNetwork nn = new NeuralNetwork(theta1, theta2);
+		assertEquals(8, nn.getHiddenLayerSize());
+		try {
+			nn.setThetas(randomMatrix(random, 9, Properties.nnInputLayerSize + 1),
+					randomMatrix(random, Properties.nnOutputLayerSize, 9 + 1));
+			fail("hidden layer size changed");
+		} catch (IllegalArgumentException e) {
+			assertEquals(theta1.get(0, 0), nn.getTheta1().get(0, 0), 0);
+		}
+
+		File f = File.createTempFile("knn", ".ser");
+		try {
+			nn.saveNeuronalNetwork(f);
+			NeuralNetwork loaded = new NeuralNetwork("production", Precision.float64, 8, f);
+			assertTrue(MatrixHelper.matrixEquals(theta1, loaded.getTheta1()));
+			assertTrue(MatrixHelper.matrixEquals(theta2, loaded.getTheta2()));
+			try {
+				new NeuralNetwork("production", Precision.float64, 16, f);
+				fail("file with another hidden layer size loaded");
+			} catch (IOException e) {
+				// expected
+			}
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testHypotheses() {
+		Random random = new Random(29);
+		Matrix theta1 = randomMatrix(random, Properties.nnHiddenLayerSize, Properties.nnInputLayerSize + 1);
+		Matrix theta2 = randomMatrix(random, Properties.nnOutputLayerSize, Properties.nnHiddenLayerSize + 1);
+		int count = 9;
+		double[] input = new double[count * Properties.nnInputLayerSize];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = random.nextInt(3) == 0 ? random.nextInt(10) : 0;
+		}
+
+		for (Precision precision : Precision.values()) {
+			NeuralNetwork nn = new NeuralNetwork(theta1, theta2, precision);
+			int[] positions = new int[count];
+			double[] emphasis = new double[count];
+			nn.detectCharacters(input, count, positions, emphasis);
+			Hypotheses all = new Hypotheses(Properties.nnOutputLayerSize);
+			nn.detectCharacters(input, count, all);
+			Hypotheses hypotheses = new Hypotheses(3);
+			nn.detectCharacters(input, count, hypotheses);
+
+			for (int i = 0; i < count; i++) {
+				// the first hypothesis is the detected character
+				assertEquals(positions[i], hypotheses.getPosition(i, 0));
+				assertEquals(emphasis[i], hypotheses.getActivation(i, 0), 0);
+				// every output unit once, in descending order
+				boolean[] found = new boolean[Properties.nnOutputLayerSize];
+				for (int rank = 0; rank < all.getK(); rank++) {
+					assertFalse(found[all.getPosition(i, rank)]);
+					found[all.getPosition(i, rank)] = true;
+					if (rank > 0) {
+						assertTrue(all.getActivation(i, rank) <= all.getActivation(i, rank - 1));
+					}
+					if (rank < hypotheses.getK()) {
+						assertEquals(all.getPosition(i, rank), hypotheses.getPosition(i, rank));
+						assertEquals(Properties.nnOutputLayer.get(all.getPosition(i, rank)).charValue(),
+								hypotheses.getCharacter(i, rank));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package ch.zhaw.ocr.nn;
+
+import static org.junit.Assert.*;
+import static ch.zhaw.ocr.nn.TestMatrices.randomMatrix;
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.nn.helper.Sigmoid;
+
+public class QuantizedInferenceEngineTest {
+
+	private double[] randomInput(Random random, int count, int size) {
+		double[] input = new double[count * size];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = random.nextInt(3) == 0 ? random.nextInt(10) : 0;
+		}
+		return input;
+	}
+
+	@Test
+	public void testCloseToDouble() {
+		Random random = new Random(37);
+		Matrix theta1 = randomMatrix(random, 60, 101);
+		Matrix theta2 = randomMatrix(random, 10, 61);
+		InferenceEngine reference = new DoubleInferenceEngine(theta1, theta2, Sigmoid.exact);
+		InferenceEngine quantized = new QuantizedInferenceEngine(theta1, theta2, Sigmoid.exact);
+
+		int count = 200;
+		double[] input = randomInput(random, count, 100);
+		int[] expectedPositions = new int[count];
+		double[] expectedEmphasis = new double[count];
+		reference.detect(input, 0, count, expectedPositions, expectedEmphasis, 0);
+		int[] positions = new int[count];
+		double[] emphasis = new double[count];
+		quantized.detect(input, 0, count, positions, emphasis, 0);
+
+		int same = 0;
+		for (int i = 0; i < count; i++) {
+			if (positions[i] == expectedPositions[i]) {
+				same++;
+				assertEquals(expectedEmphasis[i], emphasis[i], 0.02);
+			}
+		}
+		assertTrue(same >= 0.9 * count);
+	}
+
+	@Test
+	public void testBatchEqualsSingle() {
+		Random random = new Random(41);
+		InferenceEngine engine = new QuantizedInferenceEngine(randomMatrix(random, 30, 51),
+				randomMatrix(random, 7, 31));
+		int count = 9;
+		double[] input = randomInput(random, count, 50);
+		int[] positions = new int[count];
+		double[] emphasis = new double[count];
+		engine.detect(input, 0, count, positions, emphasis, 0);
+
+		int[] position = new int[2];
+		double[] emphasisSingle = new double[2];
+		for (int i = 0; i < count; i++) {
+			engine.detect(input, i * 50, 1, position, emphasisSingle, 1);
+			assertEquals(positions[i], position[1]);
+			assertEquals(emphasis[i], emphasisSingle[1], 0);
+		}
+	}
+
+	/**
+	 * Engines of different sizes share the buffers of the thread: a large
+	 * engine runs after a small one on a new thread
+	 */
+	@Test
+	public void testDifferentSizes() throws Exception {
+		Random random = new Random(47);
+		final InferenceEngine small = new QuantizedInferenceEngine(randomMatrix(random, 32, 101),
+				randomMatrix(random, 10, 33));
+		final Matrix theta1 = randomMatrix(random, 250, 101);
+		final Matrix theta2 = randomMatrix(random, 10, 251);
+		final InferenceEngine full = new QuantizedInferenceEngine(theta1, theta2);
+		final double[] input = randomInput(random, 16, 100);
+		final int[] positions = new int[16];
+		final double[] emphasis = new double[16];
+		final Throwable[] error = new Throwable[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					small.detect(input, 0, 16, positions, emphasis, 0);
+					full.detect(input, 0, 3, positions, emphasis, 0);
+				} catch (Throwable e) {
+					error[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNull(error[0]);
+
+		int[] expectedPositions = new int[3];
+		double[] expectedEmphasis = new double[3];
+		full.detect(input, 0, 3, expectedPositions, expectedEmphasis, 0);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expectedPositions[i], positions[i]);
+			assertEquals(expectedEmphasis[i], emphasis[i], 0);
+		}
+	}
+
+	@Test
+	public void testWeightBytes() {
+		Random random = new Random(43);
+		Matrix theta1 = randomMatrix(random, 250, 401);
+		Matrix theta2 = randomMatrix(random, 74, 251);
+		long doubleBytes = new DoubleInferenceEngine(theta1, theta2).getWeightBytes();
+		long quantizedBytes = new QuantizedInferenceEngine(theta1, theta2).getWeightBytes();
+		// one byte instead of 8 per weight, plus a scale per unit
+		assertEquals(8 * (250 * 401 + 74 * 251), doubleBytes);
+		assertEquals(250 * 400 + 74 * 250 + 8 * 2 * (250 + 74), quantizedBytes);
+	}
+
+	@Test
+	public void testZeroWeights() {
+		Matrix theta1 = MatrixFactory.createMatrix(4, 3);
+		Matrix theta2 = MatrixFactory.createMatrix(2, 5);
+		theta2.set(1, 0, 2);
+		InferenceEngine engine = new QuantizedInferenceEngine(theta1, theta2);
+		int[] positions = new int[1];
+		double[] emphasis = new double[1];
+		engine.detect(new double[] { 0, 0 }, 0, 1, positions, emphasis, 0);
+		assertEquals(1, positions[0]);
+		assertEquals(1 / (1 + Math.exp(-2)), emphasis[0], 1e-12);
+	}
+}
@@ -0,0 +1,29 @@
+package ch.zhaw.ocr.nn;
+
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.util.Random;
+
+/**
+ * Random thetas shared by the tests of the networks and engines
+ */
+final class TestMatrices {
+
+	private TestMatrices() {
+	}
+
+	/**
+	 * Create a matrix of small random weights
+	 * @return matrix with normally distributed values, standard deviation 0.1
+	 */
+	static Matrix randomMatrix(Random random, int rows, int cols) {
+		Matrix m = MatrixFactory.createMatrix(rows, cols);
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				m.set(row, col, random.nextGaussian() * 0.1);
+			}
+		}
+		return m;
+	}
+}
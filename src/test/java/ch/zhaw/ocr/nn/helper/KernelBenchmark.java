@@ -0,0 +1,139 @@
+package ch.zhaw.ocr.nn.helper;
+
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.nn.BackPropagation;
+import ch.zhaw.ocr.nn.FloatInferenceEngine;
+
+/**
+ * Compares the scalar kernel with the kernel selected by Kernels on random
+ * weights of the production layer sizes (400 - 250 - 75): the sums of the
+ * forward pass of four characters (dot4 per unit) and the outer products
+ * of the backpropagation (axpy per unit). Then measures
+ * FloatInferenceEngine and BackPropagation.nnCostFunctionFloat, which use
+ * the selected kernel. Run with mvn -Pvector and
+ * --add-modules jdk.incubator.vector to get the Vector API kernel.
+ * Not a unit test: run the main method with the test classpath.
+ * @author Corinne Zeugin, Priscilla Schneider, Adrian Schmid
+ */
+public class KernelBenchmark {
+	private static final int warmupRounds = 2000;
+	private static final int rounds = 10000;
+	private static final int trainingVectors = 200;
+
+	private static final int inputSize = Properties.nnInputLayerSize;
+	private static final int hiddenSize = Properties.nnHiddenLayerSize;
+	private static final int outputSize = Properties.nnOutputLayerSize;
+
+	private static final Random random = new Random(42);
+
+	public static void main(String[] args) {
+		float[] weights1 = randomArray(hiddenSize * inputSize);
+		float[] weights2 = randomArray(outputSize * hiddenSize);
+		float[] layers = randomArray(4 * (inputSize + hiddenSize) + 4);
+
+		FloatKernel[] kernels = { new ScalarFloatKernel(), Kernels.getFloatKernel() };
+		for (FloatKernel kernel : kernels) {
+			String name = kernel.getClass().getSimpleName();
+			long forward = 0;
+			long outer = 0;
+			for (int round = 0; round < warmupRounds + rounds; round++) {
+				long t = System.nanoTime();
+				forward(kernel, weights1, weights2, layers);
+				long t2 = System.nanoTime();
+				outer(kernel, weights1, weights2, layers);
+				if (round >= warmupRounds) {
+					forward += t2 - t;
+					outer += System.nanoTime() - t2;
+				}
+			}
+			System.out.println(name + ": forward pass " + forward / (4L * rounds) + " ns per character, outer products "
+					+ outer / (4L * rounds) + " ns per character");
+		}
+
+		Matrix theta1 = MatrixFactory.random(hiddenSize, inputSize + 1);
+		Matrix theta2 = MatrixFactory.random(outputSize, hiddenSize + 1);
+		theta1.scale(0.1);
+		theta2.scale(0.1);
+		FloatInferenceEngine engine = new FloatInferenceEngine(theta1, theta2);
+		double[] input = new double[Properties.nnBatchSize * inputSize];
+		for (int i = 0; i < input.length; i++) {
+			input[i] = random.nextDouble();
+		}
+		int[] positions = new int[Properties.nnBatchSize];
+		double[] emphasis = new double[Properties.nnBatchSize];
+		long nanos = 0;
+		for (int round = 0; round < (warmupRounds + rounds) / 10; round++) {
+			long t = System.nanoTime();
+			engine.detect(input, 0, Properties.nnBatchSize, positions, emphasis, 0);
+			if (round >= warmupRounds / 10) {
+				nanos += System.nanoTime() - t;
+			}
+		}
+		System.out.println("FloatInferenceEngine (" + Kernels.getFloatKernel().getClass().getSimpleName() + "): "
+				+ nanos / ((long) rounds / 10 * Properties.nnBatchSize) + " ns per character");
+
+		Matrix mergedThetas = MatrixHelper.mergeThetas(theta1, theta2);
+		List<Matrix> vectors = new ArrayList<Matrix>();
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < trainingVectors; i++) {
+			vectors.add(MatrixFactory.random(1, inputSize));
+			expected.add(i % outputSize);
+		}
+		BackPropagation bp = new BackPropagation();
+		nanos = 0;
+		for (int round = 0; round < 30; round++) {
+			long t = System.nanoTime();
+			bp.nnCostFunctionFloat(mergedThetas, inputSize, hiddenSize, outputSize, vectors, expected);
+			if (round >= 10) {
+				nanos += System.nanoTime() - t;
+			}
+		}
+		System.out.println("nnCostFunctionFloat (" + Kernels.getFloatKernel().getClass().getSimpleName() + "): "
+				+ nanos / (20L * trainingVectors) + " ns per training vector");
+	}
+
+	private static float[] randomArray(int length) {
+		float[] rv = new float[length];
+		for (int i = 0; i < length; i++) {
+			rv[i] = (float) random.nextGaussian() * 0.1f;
+		}
+		return rv;
+	}
+
+	/**
+	 * Sums of the hidden and the output layer of four characters, like
+	 * FloatInferenceEngine with four vectors
+	 */
+	private static void forward(FloatKernel kernel, float[] weights1, float[] weights2, float[] layers) {
+		int hidden = 4 * inputSize;
+		int sums = hidden + 4 * hiddenSize;
+		for (int j = 0; j < hiddenSize; j++) {
+			kernel.dot4(weights1, j * inputSize, layers, 0, inputSize, inputSize, layers, sums);
+		}
+		for (int j = 0; j < outputSize; j++) {
+			kernel.dot4(weights2, j * hiddenSize, layers, hidden, hiddenSize, hiddenSize, layers, sums);
+		}
+	}
+
+	/**
+	 * Gradients of four characters, like nnCostFunctionFloat
+	 */
+	private static void outer(FloatKernel kernel, float[] grad1, float[] grad2, float[] layers) {
+		int hidden = 4 * inputSize;
+		for (int r = 0; r < 4; r++) {
+			for (int j = 0; j < hiddenSize; j++) {
+				kernel.axpy(1e-6f, layers, r * inputSize, grad1, j * inputSize, inputSize);
+			}
+			for (int j = 0; j < outputSize; j++) {
+				kernel.axpy(1e-6f, layers, hidden + r * hiddenSize, grad2, j * hiddenSize, hiddenSize);
+			}
+		}
+	}
+}
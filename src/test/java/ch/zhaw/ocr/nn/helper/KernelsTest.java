@@ -0,0 +1,96 @@
+package ch.zhaw.ocr.nn.helper;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+
+/**
+ * Compares the kernel selected by Kernels (the Vector API kernel when the
+ * tests run with mvn -Pvector) with the scalar kernel, on lengths with and
+ * without a remainder after the vector lanes.
+ */
+public class KernelsTest {
+	private static final int[] lengths = { 0, 1, 3, 7, 16, 17, 75, 250, 401 };
+
+	private final FloatKernel kernel = Kernels.getFloatKernel();
+	private final FloatKernel scalar = new ScalarFloatKernel();
+	private final Random random = new Random(42);
+
+	private float[] randomArray(int length) {
+		float[] rv = new float[length];
+		for (int i = 0; i < length; i++) {
+			rv[i] = (float) random.nextGaussian();
+		}
+		return rv;
+	}
+
+	/**
+	 * Check whether a class can be loaded
+	 */
+	private static boolean isAvailable(String className) {
+		try {
+			Class.forName(className);
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testSelection() {
+		// the vector kernel is compiled by -Pvector, the module added by its surefire configuration
+		boolean vector = Properties.nnVectorKernels && isAvailable(Kernels.vectorFloatKernel)
+				&& isAvailable("jdk.incubator.vector.FloatVector");
+		assertEquals(vector ? Kernels.vectorFloatKernel : ScalarFloatKernel.class.getName(),
+				kernel.getClass().getName());
+		assertTrue(Kernels.loadFloatKernel(false) instanceof ScalarFloatKernel);
+		assertNotNull(Kernels.loadFloatKernel(true));
+	}
+
+	@Test
+	public void testDot() {
+		for (int length : lengths) {
+			float[] a = randomArray(length + 2);
+			float[] b = randomArray(length + 5);
+			float expected = scalar.dot(a, 2, b, 5, length);
+			assertEquals(expected, kernel.dot(a, 2, b, 5, length), 1e-4 * (1 + length));
+		}
+		assertEquals(32, kernel.dot(new float[] { 1, 2, 3 }, 0, new float[] { 4, 5, 6 }, 0, 3), 0);
+	}
+
+	@Test
+	public void testDot4() {
+		for (int length : lengths) {
+			int stride = length + 3;
+			float[] a = randomArray(length + 1);
+			float[] b = randomArray(4 * stride + 2);
+			float[] expected = new float[5];
+			float[] sums = new float[5];
+			scalar.dot4(a, 1, b, 2, stride, length, expected, 1);
+			kernel.dot4(a, 1, b, 2, stride, length, sums, 1);
+			for (int r = 0; r < 4; r++) {
+				assertEquals(scalar.dot(a, 1, b, 2 + r * stride, length), expected[r + 1], 1e-4 * (1 + length));
+				assertEquals(expected[r + 1], sums[r + 1], 1e-4 * (1 + length));
+			}
+			assertEquals(0, sums[0], 0);
+		}
+	}
+
+	@Test
+	public void testAxpy() {
+		for (int length : lengths) {
+			float[] x = randomArray(length + 3);
+			float[] y = randomArray(length + 4);
+			float[] expected = y.clone();
+			scalar.axpy(0.5f, x, 3, expected, 1, length);
+			kernel.axpy(0.5f, x, 3, y, 1, length);
+			for (int k = 0; k < y.length; k++) {
+				assertEquals(expected[k], y[k], 1e-6);
+			}
+		}
+	}
+}
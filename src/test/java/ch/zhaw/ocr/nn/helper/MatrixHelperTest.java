@@ -1,9 +1,14 @@
 package ch.zhaw.ocr.nn.helper;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import hu.kazocsaba.math.matrix.Matrix;
 import hu.kazocsaba.math.matrix.MatrixFactory;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.junit.Test;
 
 import de.jungblut.math.DoubleVector;
@@ -151,4 +156,24 @@ public class MatrixHelperTest {
 		
 		assertTrue(result.get(0, 0) == expected.get(0, 0));
 	}
+
+	@Test
+	public void serializeCommentTest() throws IOException{
+		Matrix m = MatrixFactory.createMatrix(new double[][]{{0.1},{-2.5},{1.0/3}});
+		File f = File.createTempFile("matrix", ".ser");
+		try {
+			MatrixHelper.serializeMatrix(m, f, "precision=float32", true);
+			assertEquals("precision=float32", MatrixHelper.readComment(f));
+			Matrix result = MatrixHelper.deserializeMatrix(f);
+			for(int row = 0; row < m.getRowCount(); row++){
+				assertTrue((float) result.get(row, 0) == (float) m.get(row, 0));
+			}
+
+			MatrixHelper.serializeMatrix(m, f);
+			assertNull(MatrixHelper.readComment(f));
+			assertTrue(MatrixHelper.matrixEquals(m, MatrixHelper.deserializeMatrix(f)));
+		} finally {
+			f.delete();
+		}
+	}
 }
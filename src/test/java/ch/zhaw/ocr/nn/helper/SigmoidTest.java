@@ -0,0 +1,118 @@
+package ch.zhaw.ocr.nn.helper;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import hu.kazocsaba.math.matrix.Matrix;
+import hu.kazocsaba.math.matrix.MatrixFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.bitmapParser.BitmapParser;
+import ch.zhaw.ocr.bitmapParser.CharacterParser;
+import ch.zhaw.ocr.bitmapParser.ContrastMatrix;
+import ch.zhaw.ocr.bitmapParser.SimpleBitmapParser;
+import ch.zhaw.ocr.nn.CharacterRepresentation;
+import ch.zhaw.ocr.nn.DoubleInferenceEngine;
+import ch.zhaw.ocr.nn.NeuralNetwork;
+
+/**
+ * Checks the maximum error of the approximations of the sigmoid function
+ * and their effect on the recognition of the training material.
+ */
+public class SigmoidTest {
+
+	private double maxError(Sigmoid mode) {
+		double rv = 0;
+		for (int i = -400000; i <= 400000; i++) {
+			double z = i / 10000.0;
+			rv = Math.max(rv, Math.abs(mode.apply(z) - 1 / (1 + Math.exp(-z))));
+		}
+		return rv;
+	}
+
+	@Test
+	public void testMaxError() {
+		assertEquals(0, maxError(Sigmoid.exact), 0);
+		double table = maxError(Sigmoid.table);
+		double rational = maxError(Sigmoid.rational);
+		assertTrue("table max. error " + table, table < 1e-5);
+		assertTrue("rational max. error " + rational, rational < 1e-4);
+	}
+
+	@Test
+	public void testLimits() {
+		for (Sigmoid mode : Sigmoid.values()) {
+			assertEquals(0.5, mode.apply(0), 1e-6);
+			assertEquals(1, mode.apply(1000), 1e-6);
+			assertEquals(0, mode.apply(-1000), 1e-6);
+			assertTrue(mode.apply(Double.POSITIVE_INFINITY) <= 1);
+			assertTrue(mode.apply(Double.NEGATIVE_INFINITY) >= 0);
+		}
+	}
+
+	@Test
+	public void testMatrixSigmoid() {
+		double[][] values = { { -3, 0.25 }, { 7, -12.5 } };
+		for (Sigmoid mode : Sigmoid.values()) {
+			Matrix result = MatrixHelper.sigmoid(MatrixFactory.createMatrix(values), mode);
+			for (int row = 0; row < values.length; row++) {
+				for (int col = 0; col < values[row].length; col++) {
+					assertEquals(mode.apply(values[row][col]), result.get(row, col), 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Recognize the characters of the training material with every mode and
+	 * compare the results to the exact sigmoid
+	 */
+	@Test
+	public void testRecognitionAccuracy() throws Exception {
+		assumeTrue(new File(Properties.nnSerializationPath).exists());
+		NeuralNetwork nn = new NeuralNetwork("production");
+
+		List<double[]> inputs = new ArrayList<double[]>();
+		BitmapParser bmp = new CharacterParser(new SimpleBitmapParser());
+		for (File f : new File(Properties.nnResourcePath).listFiles()) {
+			if (!f.getName().endsWith(".png")) {
+				continue;
+			}
+			for (ContrastMatrix cm : bmp.parse(ImageIO.read(f))) {
+				double[] input = new double[Properties.nnInputLayerSize];
+				CharacterRepresentation.extract(cm, input, 0);
+				inputs.add(input);
+			}
+		}
+
+		int[][] positions = new int[Sigmoid.values().length][inputs.size()];
+		double[] emphasis = new double[inputs.size()];
+		for (Sigmoid mode : Sigmoid.values()) {
+			DoubleInferenceEngine engine = new DoubleInferenceEngine(nn.getTheta1(), nn.getTheta2(), mode);
+			for (int i = 0; i < inputs.size(); i++) {
+				engine.detect(inputs.get(i), 0, 1, positions[mode.ordinal()], emphasis, i);
+			}
+		}
+
+		int[] exact = positions[Sigmoid.exact.ordinal()];
+		for (Sigmoid mode : Sigmoid.values()) {
+			int sameAsExact = 0;
+			for (int i = 0; i < inputs.size(); i++) {
+				if (positions[mode.ordinal()][i] == exact[i]) {
+					sameAsExact++;
+				}
+			}
+			// the approximations change at most one character in 200
+			assertTrue(mode + ": " + sameAsExact + " / " + inputs.size()
+					+ " same as exact",
+					200 * (inputs.size() - sameAsExact) <= inputs.size());
+		}
+	}
+}
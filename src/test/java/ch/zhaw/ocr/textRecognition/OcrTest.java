@@ -0,0 +1,124 @@
+package ch.zhaw.ocr.textRecognition;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import ch.zhaw.ocr.Properties;
+import ch.zhaw.ocr.dictionary.Dictionary;
+import ch.zhaw.ocr.nn.NeuralNetwork;
+
+public class OcrTest {
+	private static final File image = new File("img/debian_line.png");
+
+	/**
+	 * Listener recording all events
+	 */
+	private static class RecordingListener implements RecognitionListener {
+		private StringBuffer glyphs = new StringBuffer();
+		private List<String> words = new ArrayList<String>();
+		private int[] stages = new int[Stage.values().length];
+
+		@Override
+		public void glyphClassified(int position, char character, double emphasis) {
+			assertEquals(Properties.nnOutputLayer.get(position).charValue(), character);
+			glyphs.append(character);
+		}
+
+		@Override
+		public void wordCorrected(String input, String output) {
+			words.add(input);
+			words.add(output);
+		}
+
+		@Override
+		public void stageFinished(Stage stage, long nanos) {
+			assertTrue(nanos >= 0);
+			stages[stage.ordinal()]++;
+		}
+	}
+
+	@Test
+	public void testListener() throws Exception {
+		assumeTrue(new File(Properties.nnSerializationPath).exists() && image.exists());
+		Ocr ocr = new Ocr(new NeuralNetwork("production"), new Dictionary("debug"));
+
+		String text = ocr.parseImage(image);
+		RecordingListener listener = new RecordingListener();
+		assertEquals(text, ocr.parseImage(image, listener));
+
+		// every character of every word is reported
+		int characters = 0;
+		for (int i = 0; i < listener.words.size(); i += 2) {
+			characters += listener.words.get(i).length();
+		}
+		assertTrue(characters > 0);
+		assertEquals(characters, listener.glyphs.length());
+		assertTrue(text.startsWith(listener.words.get(1).replace(Properties.unknownChar, '_')));
+
+		assertEquals(1, listener.stages[RecognitionListener.Stage.total.ordinal()]);
+		assertTrue(listener.stages[RecognitionListener.Stage.network.ordinal()] > 0);
+		assertEquals(listener.stages[RecognitionListener.Stage.network.ordinal()],
+				listener.stages[RecognitionListener.Stage.dictionary.ordinal()]);
+	}
+
+	/**
+	 * A malformed PGM image is reported, not turned into a null text
+	 */
+	@Test
+	public void testMalformedNetpbm() throws Exception {
+		Path p = File.createTempFile("OcrTest", ".pgm").toPath();
+		try {
+			Files.write(p, "P2\n3 x\n".getBytes("US-ASCII"));
+			new Ocr(null, null).parseImage(p, RecognitionAdapter.none);
+			fail("malformed image parsed");
+		} catch (IOException e) {
+			assertNotNull(e.getMessage());
+		} finally {
+			Files.delete(p);
+		}
+	}
+
+	/**
+	 * A truncated image is reported, not turned into a null text
+	 */
+	@Test
+	public void testTruncatedLargeImage() throws Exception {
+		assumeTrue(image.exists());
+		byte[] content = Files.readAllBytes(image.toPath());
+		File f = File.createTempFile("OcrTest", ".png");
+		try {
+			Files.write(f.toPath(), Arrays.copyOf(content, content.length / 3));
+			new Ocr(null, null).parseLargeImage(f, RecognitionAdapter.none);
+			fail("truncated image parsed");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testConsoleListener() {
+		StringBuffer console = new StringBuffer();
+		ConsoleListener listener = new ConsoleListener(console);
+		listener.glyphClassified(1, 'B', 0.75);
+		listener.stageFinished(RecognitionListener.Stage.network, 5000000);
+		listener.wordCorrected("Bs", "Bus");
+		listener.stageFinished(RecognitionListener.Stage.total, 12345678);
+		assertSame(console, listener.getConsoleText());
+		assertEquals("Pos: 1 Char: B Emphasis: 0.75\n"
+				+ "Dictionary Input: Bs\n"
+				+ "Dictionary Output: Bus\n"
+				+ "Einlesen des Textes abgeschlossen...(12ms)", console.toString());
+	}
+}